@@ -0,0 +1,176 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Request governor for rate-limited APIs (GitHub allows 60 unauthenticated requests per hour per
+ * address, shared by every launcher behind the same NAT).
+ *
+ * Every response's {@code X-RateLimit-Limit/Remaining/Reset} and {@code Retry-After} headers are
+ * recorded per host and persisted, so launchers on one machine and later starts share what the
+ * server said. Before a request, {@link #check} decides whether to send it now, after a short
+ * delay, or not at all: background checks are skipped while the quota is down to its reserve,
+ * and nothing is sent while the server has asked us to back off. Callers serve cached metadata
+ * for skipped checks.
+ */
+final class ApiQuota {
+
+    enum Action { ALLOW, DELAY, SKIP }
+
+    /** What to do with a request; {@code delayMillis} is set for {@link Action#DELAY}. */
+    record Decision(Action action, long delayMillis, String reason) {
+        static final Decision ALLOW = new Decision(Action.ALLOW, 0, null);
+    }
+
+    /** Last known quota of one host. {@code resetAt} and {@code blockedUntil} are epoch millis, 0 when unknown. */
+    record State(int limit, int remaining, long resetAt, long blockedUntil) {
+    }
+
+    // Share of the quota kept back for checks the user is waiting on
+    static final double RESERVE_FRACTION = 0.1;
+    static final int MIN_RESERVE = 5;
+    // Foreground checks wait out a back-off this short instead of being skipped
+    static final long MAX_DELAY_MILLIS = 10_000;
+
+    private final Path file;
+    private final Map<String, State> hosts = new HashMap<>();
+    private long loadedModified = -1;
+
+    ApiQuota(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Decides whether a request to {@code host} may go out at {@code now}. Background requests
+     * (periodic polls) give way early; foreground ones only when the server would refuse them.
+     */
+    synchronized Decision check(String host, boolean background, long now) {
+        reloadIfChanged();
+        State s = hosts.get(host);
+        if (s == null) return Decision.ALLOW;
+        long blockedFor = Math.max(s.blockedUntil(), s.remaining() <= 0 ? s.resetAt() : 0) - now;
+        if (blockedFor > 0) {
+            String reason = host + " rate limit exhausted for another " + (blockedFor + 999) / 1000 + " s";
+            if (!background && blockedFor <= MAX_DELAY_MILLIS) return new Decision(Action.DELAY, blockedFor, reason);
+            return new Decision(Action.SKIP, 0, reason);
+        }
+        boolean windowOpen = s.resetAt() > now;
+        if (background && windowOpen && s.limit() > 0 && s.remaining() <= reserve(s.limit())) {
+            return new Decision(Action.SKIP, 0, host + " quota low (" + s.remaining() + " of " + s.limit()
+                + " left), saving it for foreground checks");
+        }
+        return Decision.ALLOW;
+    }
+
+    /** Records the quota headers of a response from {@code host}; responses without them are ignored. */
+    synchronized void record(String host, int status, HttpHeaders headers, long now) {
+        reloadIfChanged();
+        State old = hosts.get(host);
+        int limit = (int) headers.firstValueAsLong("X-RateLimit-Limit").orElse(old != null ? old.limit() : -1);
+        long remainingHeader = headers.firstValueAsLong("X-RateLimit-Remaining").orElse(-1);
+        long resetHeader = headers.firstValueAsLong("X-RateLimit-Reset").orElse(-1);
+        long retryAfter = parseRetryAfter(headers.firstValue("Retry-After").orElse(null), now);
+        boolean limited = status == 429 || (status == 403 && (remainingHeader == 0 || retryAfter > 0));
+        if (remainingHeader < 0 && retryAfter < 0 && !limited) return;
+
+        int remaining = remainingHeader >= 0 ? (int) remainingHeader : old != null ? old.remaining() : -1;
+        long resetAt = resetHeader >= 0 ? resetHeader * 1000 : old != null ? old.resetAt() : 0;
+        long blockedUntil = old != null && old.blockedUntil() > now ? old.blockedUntil() : 0;
+        if (retryAfter > 0) blockedUntil = Math.max(blockedUntil, retryAfter);
+        // A secondary limit without Retry-After: GitHub asks to wait at least a minute
+        else if (limited && remainingHeader != 0) blockedUntil = Math.max(blockedUntil, now + 60_000);
+        hosts.put(host, new State(limit, remaining, resetAt, blockedUntil));
+        save();
+    }
+
+    synchronized State state(String host) {
+        reloadIfChanged();
+        return hosts.get(host);
+    }
+
+    static int reserve(int limit) {
+        return Math.max(MIN_RESERVE, (int) Math.ceil(limit * RESERVE_FRACTION));
+    }
+
+    /** Parses {@code Retry-After} (delta seconds or an HTTP date) into epoch millis, or -1. */
+    static long parseRetryAfter(String value, long now) {
+        if (value == null || value.isBlank()) return -1;
+        String v = value.trim();
+        try {
+            return now + Long.parseLong(v) * 1000;
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            return ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    // ------------------------ Persistence ------------------------
+
+    /** Picks up what other launchers on this machine recorded since we last looked. */
+    private void reloadIfChanged() {
+        long modified;
+        try {
+            modified = Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : -1;
+        } catch (IOException e) {
+            return;
+        }
+        if (modified == loadedModified) return;
+        loadedModified = modified;
+        if (modified < 0) return;
+        try (var in = Files.newInputStream(file)) {
+            var p = new Properties();
+            p.load(in);
+            hosts.clear();
+            for (String key : p.stringPropertyNames()) {
+                if (!key.endsWith(".limit")) continue;
+                String host = key.substring(0, key.length() - ".limit".length());
+                hosts.put(host, new State(
+                    (int) parseLong(p.getProperty(host + ".limit"), -1),
+                    (int) parseLong(p.getProperty(host + ".remaining"), -1),
+                    parseLong(p.getProperty(host + ".resetAt"), 0),
+                    parseLong(p.getProperty(host + ".blockedUntil"), 0)));
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to read rate limit state: " + e.getMessage());
+        }
+    }
+
+    private void save() {
+        try {
+            var p = new Properties();
+            hosts.forEach((host, s) -> {
+                p.setProperty(host + ".limit", Integer.toString(s.limit()));
+                p.setProperty(host + ".remaining", Integer.toString(s.remaining()));
+                p.setProperty(host + ".resetAt", Long.toString(s.resetAt()));
+                p.setProperty(host + ".blockedUntil", Long.toString(s.blockedUntil()));
+            });
+            var buf = new ByteArrayOutputStream();
+            p.store(buf, "TLOB API rate limit state");
+            AtomicFiles.write(file, buf.toByteArray());
+            loadedModified = Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            System.out.println("Failed to record rate limit state: " + e.getMessage());
+        }
+    }
+
+    private static long parseLong(String s, long fallback) {
+        try {
+            return s == null ? fallback : Long.parseLong(s.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replaces files under ~/.tlob atomically, so readers see either the old or the new content.
+ *
+ * Each write goes through a temp file of its own, created next to the target with a unique name,
+ * and is then moved over the target. The Swing launcher, the CLI and a prefetching launcher may
+ * save the same file at the same time; with a shared temp name they would write into each
+ * other's data before the move.
+ */
+final class AtomicFiles {
+
+    /** Writes a file's content into a freshly created, empty channel. */
+    @FunctionalInterface
+    interface Content {
+        void writeTo(FileChannel out) throws IOException;
+    }
+
+    private AtomicFiles() {
+    }
+
+    /** Replaces {@code target} with {@code data}, creating its directory if needed. */
+    static void write(Path target, byte[] data) throws IOException {
+        write(target, out -> {
+            ByteBuffer buf = ByteBuffer.wrap(data);
+            while (buf.hasRemaining()) out.write(buf);
+        });
+    }
+
+    /** Replaces {@code target} with whatever {@code content} writes, creating its directory if needed. */
+    static void write(Path target, Content content) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                content.writeTo(out);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
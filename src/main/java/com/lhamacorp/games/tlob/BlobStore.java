@@ -0,0 +1,258 @@
+package com.lhamacorp.games.tlob;
+
+import com.lhamacorp.games.tlob.ZipLayout.CentralDirectory;
+import com.lhamacorp.games.tlob.ZipLayout.Entry;
+import com.lhamacorp.games.tlob.ZipLayout.Piece;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store of jar entries under {@code ~/.tlob/store}.
+ *
+ * Each entry's compressed bytes are kept once as {@code blobs/<ab>/<sha256>}, however many versions
+ * contain it. A version is a manifest ({@code manifests/<name>.manifest}) listing its central directory
+ * records and the blob behind each, so any stored version can be materialized back into a working jar
+ * without the network and unchanged entries never have to be downloaded again.
+ *
+ * Manifest format, one record per line: {@code eocd <base64>} first, {@code sha256 <hex>} of the jar
+ * the version was taken from, then {@code <sha256> <base64 record>} for every entry in central
+ * directory order. Materialized jars get rebuilt local headers, so they are checked against the
+ * recorded digest rather than by hashing their own bytes.
+ */
+final class BlobStore {
+
+    private static final String MANIFEST_SUFFIX = ".manifest";
+    private static final String EOCD_KEY = "eocd";
+    private static final String DIGEST_KEY = "sha256";
+
+    private final Path blobs;
+    private final Path manifests;
+    // Content key (CRC, sizes, method) -> blob hash, built lazily from the manifests
+    private Map<String, String> index;
+
+    BlobStore(Path dir) {
+        this.blobs = dir.resolve("blobs");
+        this.manifests = dir.resolve("manifests");
+    }
+
+    /** True when a manifest for this version is stored. */
+    synchronized boolean has(String name) {
+        return Files.isRegularFile(manifest(name));
+    }
+
+    /**
+     * Stores every entry of {@code jar} that is not already present and writes its manifest under {@code name}.
+     * Returns the number of new blobs written.
+     */
+    synchronized int ingest(Path jar, String name) throws IOException {
+        Files.createDirectories(manifests);
+        int added = 0;
+        StringBuilder manifest = new StringBuilder();
+        try (FileChannel ch = FileChannel.open(jar, StandardOpenOption.READ)) {
+            CentralDirectory cd = ZipLayout.readCentralDirectory(ch);
+            manifest.append(EOCD_KEY).append(' ').append(base64(cd.eocd())).append('\n');
+            manifest.append(DIGEST_KEY).append(' ').append(sha256(ch, 0, ch.size())).append('\n');
+            for (Entry e : cd.entries()) {
+                long start = ZipLayout.dataStart(ch, e);
+                String sha = sha256(ch, start, e.compressedSize());
+                Path blob = blob(sha);
+                if (!Files.exists(blob)) {
+                    AtomicFiles.write(blob, out -> ZipLayout.copy(ch, start, e.compressedSize(), out, 0));
+                    added++;
+                }
+                if (index != null) index.put(e.contentKey(), sha);
+                manifest.append(sha).append(' ').append(base64(e.record())).append('\n');
+            }
+        }
+        AtomicFiles.write(manifest(name), manifest.toString().getBytes(StandardCharsets.UTF_8));
+        return added;
+    }
+
+    /**
+     * The SHA-256 (lowercase hex) of the jar the stored version {@code name} was taken from, or null
+     * when it is not stored or was stored before digests were recorded.
+     */
+    synchronized String digest(String name) {
+        Path m = manifest(name);
+        if (!Files.isRegularFile(m)) return null;
+        try {
+            for (String line : Files.readAllLines(m, StandardCharsets.UTF_8)) {
+                if (line.startsWith(DIGEST_KEY + " ")) return line.substring(DIGEST_KEY.length() + 1).trim();
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read store manifest " + m.getFileName() + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Writes the stored version {@code name} to {@code target}, verifies every entry's CRC and
+     * returns the SHA-256 (lowercase hex) of the written jar.
+     */
+    synchronized String materialize(String name, Path target) throws IOException {
+        Map<Entry, String> shas = new HashMap<>();
+        CentralDirectory cd = readManifest(name, shas);
+        ZipLayout.write(target, cd, e -> {
+            Path blob = blob(shas.get(e));
+            if (!Files.isRegularFile(blob)) throw new IOException("Store is missing blob for " + e.name());
+            return Piece.data(blob, e.compressedSize());
+        });
+        String sha256 = ZipLayout.verify(target, cd.entries().size());
+        Files.setLastModifiedTime(manifest(name), FileTime.fromMillis(System.currentTimeMillis()));
+        return sha256;
+    }
+
+    /** Returns the blob holding this entry's compressed bytes, or null when no stored version has it. */
+    synchronized Path find(Entry e) {
+        if ((e.flags() & ZipLayout.FLAG_ENCRYPTED) != 0) return null;
+        if (index == null) index = buildIndex();
+        String sha = index.get(e.contentKey());
+        if (sha == null) return null;
+        Path blob = blob(sha);
+        return Files.isRegularFile(blob) ? blob : null;
+    }
+
+    /**
+     * Keeps the {@code keep} most recently written manifests whose name starts with {@code prefix},
+     * deletes the others, then removes blobs no remaining manifest refers to.
+     */
+    synchronized void prune(String prefix, int keep) throws IOException {
+        if (!Files.isDirectory(manifests)) return;
+        List<Path> versions = new ArrayList<>();
+        for (Path m : listManifests()) {
+            if (m.getFileName().toString().startsWith(prefix)) versions.add(m);
+        }
+        versions.sort(Comparator.comparing(BlobStore::modified).reversed());
+        for (int i = keep; i < versions.size(); i++) Files.deleteIfExists(versions.get(i));
+
+        Set<String> live = new HashSet<>();
+        for (Path m : listManifests()) {
+            for (String line : Files.readAllLines(m, StandardCharsets.UTF_8)) {
+                int sp = line.indexOf(' ');
+                if (sp > 0 && !line.startsWith(EOCD_KEY + " ") && !line.startsWith(DIGEST_KEY + " ")) live.add(line.substring(0, sp));
+            }
+        }
+        if (Files.isDirectory(blobs)) {
+            try (Stream<Path> files = Files.walk(blobs)) {
+                for (Path f : files.filter(Files::isRegularFile).toList()) {
+                    if (!live.contains(f.getFileName().toString())) Files.deleteIfExists(f);
+                }
+            }
+        }
+        index = null;
+    }
+
+    // ------------------------ Manifests ------------------------
+
+    private CentralDirectory readManifest(String name, Map<Entry, String> shas) throws IOException {
+        Path m = manifest(name);
+        if (!Files.isRegularFile(m)) throw new IOException("No stored version " + name);
+        byte[] eocd = null;
+        List<Entry> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(m, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) continue;
+            int sp = line.indexOf(' ');
+            if (sp < 0) throw new IOException("Corrupt manifest " + m.getFileName());
+            String key = line.substring(0, sp);
+            if (key.equals(DIGEST_KEY)) continue;
+            byte[] data = Base64.getDecoder().decode(line.substring(sp + 1).trim());
+            if (key.equals(EOCD_KEY)) {
+                eocd = data;
+                continue;
+            }
+            List<Entry> parsed = ZipLayout.parseEntries(data);
+            if (parsed.size() != 1) throw new IOException("Corrupt manifest " + m.getFileName());
+            entries.add(parsed.get(0));
+            shas.put(parsed.get(0), key);
+        }
+        if (eocd == null || eocd.length < ZipLayout.EOCD_LEN) throw new IOException("Corrupt manifest " + m.getFileName());
+        return new CentralDirectory(entries, -1, -1, eocd);
+    }
+
+    private Map<String, String> buildIndex() {
+        Map<String, String> idx = new HashMap<>();
+        if (!Files.isDirectory(manifests)) return idx;
+        try {
+            for (Path m : listManifests()) {
+                String name = m.getFileName().toString();
+                Map<Entry, String> shas = new HashMap<>();
+                try {
+                    readManifest(name.substring(0, name.length() - MANIFEST_SUFFIX.length()), shas);
+                } catch (IOException | IllegalArgumentException e) {
+                    System.out.println("Skipping unreadable store manifest " + name + ": " + e.getMessage());
+                    continue;
+                }
+                shas.forEach((e, sha) -> idx.put(e.contentKey(), sha));
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to index store: " + e.getMessage());
+        }
+        return idx;
+    }
+
+    private List<Path> listManifests() throws IOException {
+        try (Stream<Path> files = Files.list(manifests)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(MANIFEST_SUFFIX)).toList();
+        }
+    }
+
+    private Path manifest(String name) {
+        return manifests.resolve(name.replaceAll("[^A-Za-z0-9._-]", "_") + MANIFEST_SUFFIX);
+    }
+
+    private Path blob(String sha) {
+        return blobs.resolve(sha.substring(0, 2)).resolve(sha);
+    }
+
+    // ------------------------ Helpers ------------------------
+
+    private static String sha256(FileChannel ch, long position, long length) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+        long pos = position, end = position + length;
+        while (pos < end) {
+            buf.clear().limit((int) Math.min(buf.capacity(), end - pos));
+            int n = ch.read(buf, pos);
+            if (n < 0) throw new IOException("Unexpected end of file while hashing entry data");
+            md.update(buf.flip());
+            pos += n;
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private static FileTime modified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String base64(byte[] data) {
+        return Base64.getEncoder().encodeToString(data);
+    }
+}
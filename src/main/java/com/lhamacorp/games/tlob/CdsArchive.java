@@ -0,0 +1,128 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Class data sharing archives for the game JVM, kept in {@code ~/.tlob/cds}.
+ *
+ * The first launch of a game version records the classes it loads
+ * ({@code -XX:ArchiveClassesAtExit}); later launches map that archive instead of loading and
+ * verifying the classes again ({@code -XX:SharedArchiveFile}). On JDK 25+ the AOT cache is used
+ * instead ({@code -XX:AOTCacheOutput} / {@code -XX:AOTCache}), which also keeps linked classes and
+ * method profiles. Archive names carry a fingerprint of the game jar and the Java runtime, so a new
+ * game version or a different/updated JDK simply gets a fresh archive and stale ones are deleted.
+ */
+final class CdsArchive {
+
+    /** The Java runtime that will run the game. */
+    record JavaRuntime(Path home, Runtime.Version version) {
+    }
+
+    // Dynamic AppCDS archives need JDK 13; the single-step AOT cache needs JDK 25
+    static final int MIN_DYNAMIC_CDS = 13;
+    static final int MIN_AOT_CACHE = 25;
+
+    private final Path dir;
+
+    CdsArchive(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * JVM options for launching {@code gameJar} with {@code java} and the other {@code vmOptions}:
+     * record on the first run, reuse after. Returns no options when the runtime cannot be identified
+     * or is too old; never throws.
+     */
+    List<String> jvmOptions(String java, Path gameJar, String gameSha256, List<String> vmOptions) {
+        try {
+            JavaRuntime runtime = detect(java);
+            if (runtime == null || runtime.version().feature() < MIN_DYNAMIC_CDS) {
+                System.out.println("CDS: skipped, Java runtime unknown or older than " + MIN_DYNAMIC_CDS + ": " + java);
+                return List.of();
+            }
+            Files.createDirectories(dir);
+            String name = "game-" + fingerprint(gameJar, gameSha256, runtime, vmOptions);
+            boolean aot = runtime.version().feature() >= MIN_AOT_CACHE;
+            Path archive = dir.resolve(name + (aot ? ".aot" : ".jsa"));
+            prune(archive.getFileName().toString());
+            boolean ready = Files.isRegularFile(archive) && Files.size(archive) > 0;
+            System.out.println("CDS: " + (ready ? "using " : "recording ") + archive.getFileName()
+                + " (" + (aot ? "AOT cache" : "dynamic AppCDS") + ", Java " + runtime.version() + ")");
+            return options(aot, ready, archive);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("CDS: skipped: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    static List<String> options(boolean aot, boolean archiveReady, Path archive) {
+        String file = archive.toAbsolutePath().toString();
+        if (aot) return List.of(archiveReady ? "-XX:AOTCache=" + file : "-XX:AOTCacheOutput=" + file);
+        return List.of(archiveReady ? "-XX:SharedArchiveFile=" + file : "-XX:ArchiveClassesAtExit=" + file);
+    }
+
+    /**
+     * Identifies the runtime behind {@code java} ({@code <home>/bin/java}): the launcher's own when it
+     * matches, otherwise from {@code <home>/release}. Returns null for a bare command on the PATH.
+     */
+    static JavaRuntime detect(String java) throws IOException {
+        Path bin = Path.of(java);
+        if (!bin.isAbsolute() || bin.getParent() == null || bin.getParent().getParent() == null) return null;
+        Path home = bin.getParent().getParent();
+        if (Files.isSameFile(home, Path.of(System.getProperty("java.home")))) return new JavaRuntime(home, Runtime.version());
+        Path release = home.resolve("release");
+        if (!Files.isRegularFile(release)) return null;
+        var p = new Properties();
+        try (var in = Files.newBufferedReader(release, StandardCharsets.UTF_8)) {
+            p.load(in);
+        }
+        String v = p.getProperty("JAVA_VERSION");
+        if (v == null) return null;
+        return new JavaRuntime(home, Runtime.Version.parse(v.replace("\"", "").trim()));
+    }
+
+    /**
+     * Short hash of everything that makes an archive unusable when it changes: the game jar (its
+     * SHA-256 when known, else size and mtime) and the runtime (home, version, and the mtime of its
+     * {@code lib/modules} image, which changes when a JDK is updated in place), plus the other VM
+     * options, since a different GC or heap layout makes the JVM reject the archive.
+     */
+    static String fingerprint(Path gameJar, String gameSha256, JavaRuntime runtime, List<String> vmOptions) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (gameSha256 != null) sb.append(gameSha256);
+        else sb.append(Files.size(gameJar)).append(':').append(Files.getLastModifiedTime(gameJar).toMillis());
+        sb.append('|').append(runtime.home().toRealPath()).append('|').append(runtime.version());
+        Path modules = runtime.home().resolve("lib").resolve("modules");
+        if (Files.isRegularFile(modules)) sb.append('|').append(Files.getLastModifiedTime(modules).toMillis());
+        sb.append('|').append(String.join(" ", vmOptions));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /** Deletes every game archive except {@code keep}. */
+    void prune(String keep) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : files.toList()) {
+                String n = f.getFileName().toString();
+                if (n.startsWith("game-") && !n.equals(keep)) {
+                    System.out.println("CDS: removing stale archive " + n);
+                    Files.deleteIfExists(f);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response body subscriber that writes the HTTP client's {@link ByteBuffer}s straight into a
+ * {@link FileChannel} at a fixed offset, with no intermediate streams or heap copies.
+ *
+ * Progress, the running SHA-256 and download checkpoints are all fed from here, one buffer list
+ * at a time; the next list is requested only after the current one is on disk, and, with a
+ * {@link TokenBucket}, only once the bucket allows it, so a bandwidth cap turns into TCP
+ * backpressure without parking any thread. The body value is the number of bytes written.
+ */
+final class ChannelSink implements HttpResponse.BodySubscriber<Long> {
+
+    /** Work to do once the response is known to be usable, before the first byte is written. */
+    @FunctionalInterface
+    interface Prepare {
+        void run() throws IOException;
+    }
+
+    // How often a body that extends the completed prefix records its progress in the sidecar
+    static final long CHECKPOINT_BYTES = 1L << 20;
+
+    private final FileChannel channel;
+    private final long start;
+    private final SegmentedDownloader.PrefixHasher hasher;
+    private final SegmentedDownloader.Progress progress;
+    private final PartialDownload part;
+    private final Prepare prepare;
+    private final TokenBucket limiter;
+    private final CompletableFuture<Long> result = new CompletableFuture<>();
+    private volatile Flow.Subscription subscription;
+    private long position;
+    private long lastCheckpoint;
+
+    /**
+     * @param hasher  fed every buffer (it ignores bytes that do not continue its prefix); may be null
+     * @param part    checkpointed as the body grows, when this body extends the completed prefix; may be null
+     * @param prepare run once before writing, e.g. to truncate or preallocate the file; may be null
+     * @param limiter bandwidth cap shared with other sinks; null for unlimited
+     */
+    ChannelSink(FileChannel channel, long start, SegmentedDownloader.PrefixHasher hasher,
+                SegmentedDownloader.Progress progress, PartialDownload part, Prepare prepare, TokenBucket limiter) {
+        this.channel = channel;
+        this.start = start;
+        this.position = start;
+        this.lastCheckpoint = start;
+        this.hasher = hasher;
+        this.progress = progress;
+        this.part = part;
+        this.prepare = prepare;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        try {
+            if (prepare != null) prepare.run();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        if (result.isDone()) {
+            subscription.cancel();
+            return;
+        }
+        long received = 0;
+        try {
+            for (ByteBuffer b : items) {
+                int n = b.remaining();
+                if (hasher != null) hasher.update(position, b.duplicate());
+                long pos = position;
+                while (b.hasRemaining()) pos += channel.write(b, pos);
+                position = pos;
+                progress.transferred(n);
+                received += n;
+            }
+            if (part != null && position - lastCheckpoint >= CHECKPOINT_BYTES) {
+                part.checkpoint(position);
+                lastCheckpoint = position;
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            return;
+        }
+        long wait = limiter != null ? limiter.reserve(received) : 0;
+        if (wait <= 0) {
+            subscription.request(1);
+            return;
+        }
+        CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS).execute(() -> {
+            if (!result.isDone()) subscription.request(1);
+        });
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        result.complete(position - start);
+    }
+
+    @Override
+    public CompletionStage<Long> getBody() {
+        return result;
+    }
+
+    /**
+     * A subscriber for responses that will not be used (wrong status or range): it cancels the
+     * body at once instead of draining it, and completes with -1.
+     */
+    static HttpResponse.BodySubscriber<Long> rejecting() {
+        return new HttpResponse.BodySubscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.cancel();
+            }
+
+            @Override
+            public void onNext(List<ByteBuffer> items) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+
+            @Override
+            public CompletionStage<Long> getBody() {
+                return CompletableFuture.completedFuture(-1L);
+            }
+        };
+    }
+
+    /** Stops writing; the body completes with an {@link InterruptedIOException}. */
+    void cancel() {
+        fail(new InterruptedIOException("Download cancelled"));
+    }
+
+    private void fail(Throwable t) {
+        result.completeExceptionally(t);
+        Flow.Subscription s = subscription;
+        if (s != null) s.cancel();
+    }
+}
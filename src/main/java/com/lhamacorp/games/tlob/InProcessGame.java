@@ -0,0 +1,124 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+
+/**
+ * Runs {@code game.jar} inside the launcher's already-warm JVM instead of a second process.
+ *
+ * The jar gets its own {@link URLClassLoader} whose parent is the platform loader, so none of the
+ * launcher's classes are visible to the game and a game that bundles classes with the same names
+ * still loads its own. Everything that can fail (no manifest, missing class, no {@code main}) fails
+ * in {@link #load}, before the launcher gives anything up, so callers can fall back to a process.
+ */
+final class InProcessGame {
+
+    private final URLClassLoader loader;
+    private final Method main;
+
+    private InProcessGame(URLClassLoader loader, Method main) {
+        this.loader = loader;
+        this.main = main;
+    }
+
+    /** Opens {@code jar} and resolves its {@code Main-Class}; the class is loaded but not initialized. */
+    static InProcessGame load(Path jar) throws IOException {
+        String mainClass;
+        try (var jf = new JarFile(jar.toFile())) {
+            var manifest = jf.getManifest();
+            mainClass = manifest == null ? null : manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+        }
+        if (mainClass == null || mainClass.isBlank()) throw new IOException("No Main-Class in " + jar.getFileName());
+
+        // Class-Path entries in the manifest are followed by URLClassLoader itself
+        var loader = new URLClassLoader("game", new URL[]{jar.toUri().toURL()}, ClassLoader.getPlatformClassLoader());
+        try {
+            Class<?> cls = Class.forName(mainClass.trim(), false, loader);
+            Method main = cls.getMethod("main", String[].class);
+            if (!Modifier.isStatic(main.getModifiers())) throw new IOException(mainClass + ".main is not static");
+            return new InProcessGame(loader, main);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            loader.close();
+            throw new IOException("Cannot load " + mainClass + ": " + e, e);
+        } catch (IOException e) {
+            loader.close();
+            throw e;
+        }
+    }
+
+    String mainClass() {
+        return main.getDeclaringClass().getName();
+    }
+
+    /**
+     * Invokes {@code main} on a new non-daemon thread (named {@code main}, with the game's loader as
+     * context loader) and returns it. The JVM then lives as long as the game does.
+     */
+    Thread start(String[] args) {
+        Thread t = new Thread(() -> {
+            try {
+                main.invoke(null, (Object) args);
+            } catch (InvocationTargetException e) {
+                System.out.println("Game main threw: " + e.getCause());
+                e.getCause().printStackTrace();
+            } catch (IllegalAccessException e) {
+                System.out.println("Game main is not accessible: " + e);
+            }
+        }, "main");
+        t.setContextClassLoader(loader);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Whether an in-process game would run in {@code dir}. It inherits the launcher's working
+     * directory ({@code user.dir}), which cannot be changed in a running JVM, so unless that is
+     * already {@code dir} its relative paths resolve elsewhere than for the game process.
+     */
+    static boolean runsIn(Path dir) {
+        return sameDirectory(Path.of(System.getProperty("user.dir")), dir);
+    }
+
+    static boolean sameDirectory(Path a, Path b) {
+        try {
+            return Files.isSameFile(a, b);
+        } catch (IOException e) {
+            // One of them does not exist
+            return false;
+        }
+    }
+
+    /**
+     * The {@code -Xmx} among {@code options} in bytes, or -1 if there is none. An in-process game
+     * is limited to the launcher's heap, so a profile asking for more needs a separate process.
+     */
+    static long maxHeap(List<String> options) {
+        long max = -1;
+        for (String o : options) {
+            if (!o.startsWith("-Xmx") || o.length() < 5) continue;
+            String v = o.substring(4).toLowerCase();
+            long unit = switch (v.charAt(v.length() - 1)) {
+                case 'k' -> 1L << 10;
+                case 'm' -> 1L << 20;
+                case 'g' -> 1L << 30;
+                case 't' -> 1L << 40;
+                default -> 1;
+            };
+            if (unit != 1) v = v.substring(0, v.length() - 1);
+            try {
+                max = Long.parseLong(v) * unit;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return max;
+    }
+}
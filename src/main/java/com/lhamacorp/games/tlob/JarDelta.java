@@ -0,0 +1,215 @@
+package com.lhamacorp.games.tlob;
+
+import com.lhamacorp.games.tlob.ZipLayout.CentralDirectory;
+import com.lhamacorp.games.tlob.ZipLayout.Entry;
+import com.lhamacorp.games.tlob.ZipLayout.Piece;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Jar-entry-level differential update.
+ *
+ * Reads the remote jar's central directory with ranged requests, compares each entry's CRC,
+ * sizes and compression method with the local jar (and, when given, the {@link BlobStore}),
+ * and fetches only the byte ranges of entries found in neither (adjacent ones coalesced into one
+ * request). The new jar is assembled locally in the remote entry order: fetched entries are copied
+ * verbatim, known ones reuse the local compressed data behind a header rebuilt from the remote
+ * central directory. The result is verified by reading every entry back with its CRC checked.
+ *
+ * A rebuilt header has no extra field and no data descriptor, so when the release publishes a
+ * digest the delta is only attempted if every reused entry was laid out that way already; the
+ * rebuilt jar is then byte-identical to the release asset and must match the digest.
+ */
+final class JarDelta {
+
+    /** Outcome of a delta update; {@code sha256} is the lowercase hex digest of the rebuilt jar. */
+    record Result(int entries, int changed, int fromStore, long bytesFetched, long totalSize, String sha256) {
+    }
+
+    // Changed ranges closer than this are fetched as one request
+    private static final long COALESCE_GAP = 16 * 1024;
+    // Above this share of changed bytes a plain full download is just as good
+    private static final double MAX_CHANGED_FRACTION = 0.5;
+
+    private final HttpClient http;
+    private final String userAgent;
+    private final BlobStore store;
+
+    JarDelta(HttpClient http, String userAgent) {
+        this(http, userAgent, null);
+    }
+
+    JarDelta(HttpClient http, String userAgent, BlobStore store) {
+        this.http = http;
+        this.userAgent = userAgent;
+        this.store = store;
+    }
+
+    /**
+     * Rebuilds the jar at {@code url} into {@code target} from {@code localJar} plus the changed entries,
+     * checked against {@code expectedSha256} when it is not null. Returns null when a delta is not
+     * possible or not worthwhile; the caller should then do a full download.
+     */
+    Result update(String url, Path localJar, Path target, String expectedSha256, SegmentedDownloader.Progress progress)
+        throws IOException, InterruptedException {
+        // Suffix range: the tail holds the EOCD and, for typical jars, the whole central directory
+        HttpResponse<byte[]> tailResp = send(URI.create(url), "bytes=-" + ZipLayout.TAIL_LEN, HttpResponse.BodyHandlers.ofByteArray());
+        long[] tailRange = SegmentedDownloader.contentRange(tailResp);
+        if (tailResp.statusCode() != 206 || tailRange == null || tailRange[2] <= 0) {
+            System.out.println("Delta update: server does not support ranges (HTTP " + tailResp.statusCode() + ")");
+            return null;
+        }
+        URI uri = tailResp.uri();
+        long total = tailRange[2];
+        long fetched = tailResp.body().length;
+
+        byte[] tail = tailResp.body();
+        int eocdPos = ZipLayout.findEocd(tail);
+        if (eocdPos < 0) throw new IOException("Remote jar has no end of central directory record");
+        ByteBuffer eocd = ZipLayout.le(tail);
+        long cdSize = ZipLayout.u32(eocd, eocdPos + 12);
+        long cdOffset = ZipLayout.u32(eocd, eocdPos + 16);
+        if (cdOffset == 0xFFFFFFFFL || ZipLayout.u16(eocd, eocdPos + 10) == 0xFFFF) return null; // ZIP64 is not handled
+
+        byte[] cd;
+        if (cdOffset >= tailRange[0]) {
+            int from = (int) (cdOffset - tailRange[0]);
+            cd = Arrays.copyOfRange(tail, from, from + (int) cdSize);
+        } else {
+            HttpResponse<byte[]> cdResp = send(uri, "bytes=" + cdOffset + "-" + (cdOffset + cdSize - 1), HttpResponse.BodyHandlers.ofByteArray());
+            if (cdResp.statusCode() != 206) throw new IOException("Central directory request failed: HTTP " + cdResp.statusCode());
+            cd = cdResp.body();
+            fetched += cd.length;
+        }
+        var remote = new CentralDirectory(ZipLayout.parseEntries(cd), cdOffset, cdSize, Arrays.copyOfRange(tail, eocdPos, tail.length));
+
+        Map<String, Entry> localByName = new HashMap<>();
+        for (Entry e : ZipLayout.readCentralDirectory(localJar).entries()) localByName.put(e.name(), e);
+
+        // Byte region of each remote entry: from its local header up to the next entry (or the directory)
+        List<Entry> byOffset = new ArrayList<>(remote.entries());
+        byOffset.sort(Comparator.comparingLong(Entry::offset));
+        if (byOffset.isEmpty() || byOffset.get(0).offset() != 0) return null;
+        Map<Entry, long[]> regions = new HashMap<>();
+        Map<Entry, Path> stored = new HashMap<>();
+        List<long[]> changedRegions = new ArrayList<>();
+        long changedBytes = 0;
+        boolean exact = true;
+        for (int i = 0; i < byOffset.size(); i++) {
+            Entry r = byOffset.get(i);
+            long end = i + 1 < byOffset.size() ? byOffset.get(i + 1).offset() : cdOffset;
+            long[] region = {r.offset(), end};
+            if (ZipLayout.sameContent(r, localByName.get(r.name()))) {
+                exact &= ZipLayout.rebuiltLength(r) == end - r.offset();
+                continue;
+            }
+            Path blob = store != null ? store.find(r) : null;
+            if (blob != null) {
+                exact &= ZipLayout.rebuiltLength(r) == end - r.offset();
+                stored.put(r, blob);
+                continue;
+            }
+            regions.put(r, region);
+            changedRegions.add(region);
+            changedBytes += end - r.offset();
+        }
+        if (expectedSha256 != null && !exact) {
+            System.out.println("Delta update: remote jar has extra fields or data descriptors, "
+                + "a rebuilt jar could not match its published digest");
+            return null;
+        }
+        if (changedBytes > total * MAX_CHANGED_FRACTION) {
+            System.out.println("Delta update: " + changedBytes + " of " + total + " bytes changed, full download is cheaper");
+            return null;
+        }
+
+        List<long[]> ranges = coalesce(changedRegions);
+        Path scratch = target.resolveSibling(target.getFileName() + ".ranges");
+        try {
+            progress.started(changedBytes, 0);
+            try (FileChannel sc = FileChannel.open(scratch, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (long[] range : ranges) fetched += fetchRange(uri, range, sc, progress);
+            }
+            try (FileChannel local = FileChannel.open(localJar, StandardOpenOption.READ);
+                 FileChannel ranged = FileChannel.open(scratch, StandardOpenOption.READ)) {
+                ZipLayout.write(target, remote, r -> {
+                    long[] region = regions.get(r);
+                    if (region != null) return Piece.raw(ranged, region[0], region[1] - region[0]);
+                    Path blob = stored.get(r);
+                    if (blob != null) return Piece.data(blob, r.compressedSize());
+                    return Piece.data(local, ZipLayout.dataStart(local, localByName.get(r.name())), r.compressedSize());
+                });
+            }
+        } finally {
+            Files.deleteIfExists(scratch);
+        }
+        String sha256 = ZipLayout.verify(target, remote.entries().size());
+        if (expectedSha256 != null && !expectedSha256.equals(sha256)) {
+            throw new IOException("Rebuilt jar does not match the published digest: expected sha256 "
+                + expectedSha256 + ", got " + sha256);
+        }
+        return new Result(remote.entries().size(), changedRegions.size(), stored.size(), fetched, total, sha256);
+    }
+
+    static List<long[]> coalesce(List<long[]> regions) {
+        List<long[]> sorted = new ArrayList<>(regions);
+        sorted.sort(Comparator.comparingLong(r -> r[0]));
+        List<long[]> out = new ArrayList<>();
+        for (long[] r : sorted) {
+            long[] last = out.isEmpty() ? null : out.get(out.size() - 1);
+            if (last != null && r[0] - last[1] <= COALESCE_GAP) last[1] = Math.max(last[1], r[1]);
+            else out.add(new long[]{r[0], r[1]});
+        }
+        return out;
+    }
+
+    // ------------------------ HTTP / IO ------------------------
+
+    private <T> HttpResponse<T> send(URI uri, String range, HttpResponse.BodyHandler<T> handler) throws IOException, InterruptedException {
+        HttpRequest req = HttpRequest.newBuilder(uri)
+            .header("User-Agent", userAgent)
+            .header("Range", range)
+            .timeout(Duration.ofMinutes(2)).GET().build();
+        return http.send(req, handler);
+    }
+
+    /** Streams one changed range into the scratch file at its remote offset; returns bytes fetched. */
+    private long fetchRange(URI uri, long[] range, FileChannel scratch, SegmentedDownloader.Progress progress) throws IOException, InterruptedException {
+        HttpResponse<InputStream> resp = send(uri, "bytes=" + range[0] + "-" + (range[1] - 1), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream in = resp.body()) {
+            long[] got = SegmentedDownloader.contentRange(resp);
+            if (resp.statusCode() != 206 || got == null || got[0] != range[0]) {
+                throw new IOException("Entry range request failed: HTTP " + resp.statusCode());
+            }
+            long pos = range[0];
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Delta update cancelled");
+                pos += ZipLayout.writeFully(scratch, ByteBuffer.wrap(buf, 0, n), pos);
+                progress.transferred(n);
+            }
+            if (pos != range[1]) throw new IOException("Short entry range: " + (pos - range[0]) + " bytes");
+            return pos - range[0];
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Chooses JVM options for the game process from the machine's hardware.
+ *
+ * Rules live in {@code launch-profiles.properties} (written with defaults on first use, then left
+ * to the user) and are tried in order; the first whose conditions all hold wins. Per-machine
+ * overrides live in {@code launch.properties} next to {@code installed.properties}:
+ * {@code profile} forces a rule by name, {@code options} replaces the chosen options and
+ * {@code extraOptions} is appended to them.
+ */
+final class LaunchProfile {
+
+    /** What the game JVM will run on; memory and cores already reflect container limits. */
+    record Hardware(int cores, long memoryBytes, boolean container) {
+        long memoryMB() {
+            return memoryBytes >> 20;
+        }
+
+        @Override
+        public String toString() {
+            return cores + " cores, " + ProgressMeter.formatBytes(memoryBytes) + (container ? ", container" : "");
+        }
+    }
+
+    /** The profile picked for this machine and the options it resolves to. */
+    record Choice(String name, List<String> options, Hardware hardware, boolean overridden) {
+        /** e.g. {@code desktop (8 cores, 16.0 GB) -Xms128m -XX:+UseG1GC}. */
+        @Override
+        public String toString() {
+            return name + (overridden ? "*" : "") + " (" + hardware + ") " + String.join(" ", options);
+        }
+    }
+
+    static final String DEFAULT_RULES = """
+        # Launch profiles for the game JVM.
+        # Rules are tried in order (rule.1, rule.2, ...); the first whose conditions all hold is used.
+        # Conditions: minCores, maxCores, minMemoryMB, maxMemoryMB, container (true/false).
+        # A rule without conditions always matches. Options are passed to the game JVM as-is.
+        # The maximum heap is left to the JVM (a quarter of memory) unless a rule sets one, e.g.
+        # -XX:MaxRAMPercentage=50; a fixed -Xmx risks running out of memory on bigger machines.
+        rule.1.name=low-memory
+        rule.1.maxMemoryMB=4096
+        rule.1.options=-XX:+UseSerialGC
+        rule.2.name=container
+        rule.2.container=true
+        rule.2.options=-XX:InitialRAMPercentage=10 -XX:MaxRAMPercentage=50 -XX:+UseSerialGC
+        rule.3.name=few-cores
+        rule.3.maxCores=2
+        rule.3.options=-Xms128m -XX:+UseSerialGC
+        rule.4.name=workstation
+        rule.4.minCores=8
+        rule.4.minMemoryMB=16384
+        rule.4.options=-Xms256m -XX:+UseZGC
+        rule.5.name=desktop
+        rule.5.options=-Xms128m -XX:+UseG1GC
+        """;
+
+    // cgroup v1 reports "no limit" as a huge page-aligned number rather than "max"
+    private static final long UNLIMITED_CGROUP = 1L << 60;
+
+    private final Path rulesFile;
+    private final Path overridesFile;
+
+    LaunchProfile(Path rulesFile, Path overridesFile) {
+        this.rulesFile = rulesFile;
+        this.overridesFile = overridesFile;
+    }
+
+    /** Picks the profile for {@code hardware}, writing the default rules first if there are none. */
+    Choice choose(Hardware hardware) throws IOException {
+        if (!Files.exists(rulesFile)) {
+            Files.createDirectories(rulesFile.getParent());
+            Files.writeString(rulesFile, DEFAULT_RULES, StandardCharsets.UTF_8);
+        }
+        return choose(load(rulesFile), load(overridesFile), hardware);
+    }
+
+    /** Persists {@code profile} as this machine's forced profile; null goes back to automatic. */
+    void saveProfileOverride(String profile) throws IOException {
+        Properties p = load(overridesFile);
+        if (profile == null) p.remove("profile");
+        else p.setProperty("profile", profile);
+        Files.createDirectories(overridesFile.getParent());
+        try (var out = Files.newOutputStream(overridesFile)) {
+            p.store(out, "TLOB launch overrides for this machine: profile, options, extraOptions");
+        }
+    }
+
+    /** Rule names in order, for offering them as overrides. */
+    List<String> profileNames() throws IOException {
+        Properties rules = load(rulesFile);
+        List<String> names = new ArrayList<>();
+        for (int i = 1; rules.getProperty("rule." + i + ".options") != null; i++) {
+            names.add(rules.getProperty("rule." + i + ".name", "rule." + i));
+        }
+        return names;
+    }
+
+    static Choice choose(Properties rules, Properties overrides, Hardware hardware) {
+        String forced = blankToNull(overrides.getProperty("profile"));
+        String name = "default";
+        List<String> options = List.of();
+        for (int i = 1; ; i++) {
+            String prefix = "rule." + i + ".";
+            String opts = rules.getProperty(prefix + "options");
+            if (opts == null) break;
+            String ruleName = rules.getProperty(prefix + "name", "rule." + i);
+            if (forced != null ? forced.equals(ruleName) : matches(rules, prefix, hardware)) {
+                name = ruleName;
+                options = split(opts);
+                break;
+            }
+        }
+        boolean overridden = forced != null && forced.equals(name);
+        String replaced = blankToNull(overrides.getProperty("options"));
+        if (replaced != null) {
+            options = split(replaced);
+            overridden = true;
+        }
+        String extra = blankToNull(overrides.getProperty("extraOptions"));
+        if (extra != null) {
+            options = new ArrayList<>(options);
+            options.addAll(split(extra));
+            overridden = true;
+        }
+        return new Choice(name, List.copyOf(options), hardware, overridden);
+    }
+
+    private static boolean matches(Properties rules, String prefix, Hardware hw) {
+        String container = rules.getProperty(prefix + "container");
+        return hw.cores() >= longOf(rules, prefix + "minCores", Long.MIN_VALUE)
+            && hw.cores() <= longOf(rules, prefix + "maxCores", Long.MAX_VALUE)
+            && hw.memoryMB() >= longOf(rules, prefix + "minMemoryMB", Long.MIN_VALUE)
+            && hw.memoryMB() <= longOf(rules, prefix + "maxMemoryMB", Long.MAX_VALUE)
+            && (container == null || Boolean.parseBoolean(container.trim()) == hw.container());
+    }
+
+    // --- Hardware detection ---
+
+    /**
+     * Cores and memory as the game JVM will see them: {@code availableProcessors} and the OS bean
+     * are already container-aware, and a cgroup memory limit is applied on top in case they are not.
+     */
+    static Hardware detect() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long memory = -1;
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            memory = os.getTotalMemorySize();
+        }
+        long limit = Math.min(
+            cgroupLimit(Path.of("/sys/fs/cgroup/memory.max")),
+            cgroupLimit(Path.of("/sys/fs/cgroup/memory/memory.limit_in_bytes")));
+        if (limit < memory) memory = limit;
+        // Last resort: the default max heap is a quarter of the memory the JVM believes it has
+        if (memory <= 0) memory = Math.min(limit, Runtime.getRuntime().maxMemory() * 4);
+        boolean container = limit != Long.MAX_VALUE || Files.exists(Path.of("/.dockerenv"))
+            || System.getenv("KUBERNETES_SERVICE_HOST") != null;
+        return new Hardware(cores, memory, container);
+    }
+
+    private static long cgroupLimit(Path file) {
+        try {
+            return parseCgroupLimit(Files.readString(file));
+        } catch (IOException | RuntimeException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /** A cgroup memory limit in bytes, or {@code Long.MAX_VALUE} for "max" or the v1 unlimited sentinel. */
+    static long parseCgroupLimit(String value) {
+        String v = value.trim();
+        if (v.isEmpty() || v.equals("max")) return Long.MAX_VALUE;
+        long bytes = Long.parseLong(v);
+        return bytes <= 0 || bytes >= UNLIMITED_CGROUP ? Long.MAX_VALUE : bytes;
+    }
+
+    // --- Helpers ---
+
+    static List<String> split(String options) {
+        String t = options.trim();
+        return t.isEmpty() ? List.of() : Arrays.asList(t.split("\\s+"));
+    }
+
+    private static long longOf(Properties p, String key, long fallback) {
+        String v = p.getProperty(key);
+        if (v == null) return fallback;
+        try {
+            return Long.parseLong(v.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Launch profile: ignoring invalid " + key + "=" + v);
+            return fallback;
+        }
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s.trim();
+    }
+
+    private static Properties load(Path file) throws IOException {
+        var p = new Properties();
+        if (Files.exists(file)) {
+            try (var in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                p.load(in);
+            }
+        }
+        return p;
+    }
+}
@@ -10,39 +10,25 @@ package com.lhamacorp.games.tlob;
 import javax.swing.*;
 import java.awt.*;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.nio.file.StandardOpenOption;
 import java.time.Duration;
-import java.util.Properties;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Future;
 
+/**
+ * The Swing front end. Checks, downloads, installs and launching are done by {@link LauncherCore};
+ * this class only turns its state and progress into labels, buttons and the progress bar.
+ */
 public class Launcher extends JFrame {
 
-    // --- Config (game) ---
-    private static final String REPO = "dbohry/the-legend-of-belga";
-    private static final String API_LATEST = "https://api.github.com/repos/" + REPO + "/releases/latest";
-    private static final String USER_AGENT = "TLOB-Launcher/1.0 (+https://github.com/" + REPO + ")";
-    private static final Path HOME_DIR = Path.of(System.getProperty("user.home"), ".tlob");
-    private static final Path INSTALLED_PROPS = HOME_DIR.resolve("installed.properties");
-    private static final Path GAME_JAR = HOME_DIR.resolve("game.jar");
+    // Opt-in: -Dtlob.prefetch=true downloads a newer game into the staging area while the launcher is idle
+    private static final boolean PREFETCH = Boolean.getBoolean("tlob.prefetch");
+    // Re-check for releases this often while the launcher stays open (-Dtlob.pollMinutes, 0 disables), +/-20% jitter
+    private static final Duration POLL_INTERVAL = Duration.ofMinutes(Long.getLong("tlob.pollMinutes", 60));
+    // Opt-in: -Dtlob.inProcess=true runs game.jar inside this JVM instead of starting a second one
+    private static final boolean IN_PROCESS = Boolean.getBoolean("tlob.inProcess");
+    // Progress bar refresh rate while downloading, independent of how fast bytes arrive
+    private static final int PROGRESS_FPS = 15;
 
-    // --- Self-update (launcher) ---
-    private static final String LAUNCHER_REPO = "dbohry/the-legend-of-belga-launcher";
-    private static final String API_LAUNCHER_LATEST =
-        "https://api.github.com/repos/" + LAUNCHER_REPO + "/releases/latest";
-    private static final Path LAUNCHER_JAR = HOME_DIR.resolve("launcher.jar");
-    private static final Path LAUNCHER_PROPS = HOME_DIR.resolve("launcher.properties");
-    
     // IMPORTANT: This version must match the version in build.gradle
     // Update this constant whenever you update the project version
     private static final String LATEST_KNOWN_VERSION = "0.0.8";
@@ -59,30 +45,25 @@ public class Launcher extends JFrame {
     private JPanel mainPanel; // Main content panel
 
     // --- State ---
-    private final ExecutorService exec = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "LauncherWorker");
-        t.setDaemon(true);
-        return t;
-    });
-    private final HttpClient http = HttpClient.newBuilder()
-        .connectTimeout(Duration.ofSeconds(15))
-        .followRedirects(HttpClient.Redirect.NORMAL)
-        .build();
-
-    private String localVersion = "0.0.0";
-    private String latestVersion = null;
-    private String latestJarUrl = null;
-
-    private String launcherLocalVersion = "0.0.0";
-    private String launcherLatestVersion = null;
-    private String launcherLatestJarUrl = null;
-
+    private final LauncherCore core = new LauncherCore();
+    // Checks and downloads run concurrently on virtual threads; closing the window cancels them all
+    private final TaskGroup tasks = new TaskGroup("LauncherWorker");
+    private volatile Future<?> prefetchTask;
+    // An update is downloading or installing; periodic polls stay out of its way
+    private volatile boolean updating;
+
+    /** Starts the Swing launcher; command-line flags are handled by {@link LauncherCli} first. */
     public static void main(String[] args) {
+        StartupTimer.JVM.mark(StartupTimer.MAIN);
         SwingUtilities.invokeLater(() -> new Launcher().setVisible(true));
     }
 
     public Launcher() {
         super("The Legend of Belga — Launcher");
+        // Start DNS/TCP/TLS handshakes now so they overlap with building the UI
+        core.prewarmConnections();
+        // The launcher exits from several places (quit, window close, after starting the game)
+        Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().name("launcher-flush").unstarted(core::flush));
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         setSize(700, 500);
         setMinimumSize(new Dimension(600, 400));
@@ -109,37 +90,75 @@ public class Launcher extends JFrame {
         add(mainPanel);
         setLocationRelativeTo(null);
 
-        try {
-            Files.createDirectories(HOME_DIR);
-        } catch (IOException ignored) {
-        }
-
-        loadLocalVersion();
-        loadLauncherLocalVersion();
-        
-        // Update version label after loading
-        if (versionLabel != null) {
-            System.out.println("Constructor: launcherLocalVersion = '" + launcherLocalVersion + "'");
-            versionLabel.setText("Launcher " + formatVersionDisplay(launcherLocalVersion));
-        }
-        
-        // Debug logging for version detection
-        System.out.println("Launcher local version: " + launcherLocalVersion);
-        System.out.println("Game local version: " + localVersion);
-        System.out.println("Launcher repo: " + LAUNCHER_REPO);
-        System.out.println("Launcher API URL: " + API_LAUNCHER_LATEST);
-
-        checkLatest(true);   // game
-        checkLatest(false);  // launcher
+        // Local state is discovered off the EDT, in parallel, while the frame paints;
+        // each side starts its release check as soon as its own local version is known
+        tasks.submit(() -> {
+            try {
+                Files.createDirectories(LauncherCore.HOME_DIR);
+            } catch (IOException e) {
+                // Nothing can be installed without it; say so instead of checking for updates
+                System.out.println("Cannot create " + LauncherCore.HOME_DIR + ": " + e);
+                ui(() -> {
+                    markReady();
+                    bar.setIndeterminate(false);
+                    status.setText("Cannot write to " + LauncherCore.HOME_DIR + " (" + e.getMessage() + ")");
+                });
+                return;
+            }
+            core.loadLocalVersion();
+            String version = core.game.localVersion;
+            System.out.println("Game local version: " + version);
+            ui(() -> {
+                status.setText("Installed game: " + version + " — checking for updates…");
+                checkLatest(true);
+            });
+            resolveLaunchProfile();
+        });
+        tasks.submit(() -> {
+            // Left behind by SelfReplace: the staged jar where it could not be deleted, and its own class path
+            try {
+                Files.deleteIfExists(LauncherCore.LAUNCHER_STAGED);
+                Files.deleteIfExists(LauncherCore.LAUNCHER_HELPER);
+            } catch (IOException ignored) {
+            }
+            core.loadLauncherLocalVersion();
+            System.out.println("Launcher local version: " + core.launcher.localVersion);
+            System.out.println("Launcher repo: " + LauncherCore.LAUNCHER_REPO);
+            System.out.println("Launcher API URL: " + LauncherCore.API_LAUNCHER_LATEST);
+            ui(() -> {
+                if (versionLabel != null) versionLabel.setText("Launcher " + formatVersionDisplay(core.launcher.localVersion));
+                checkLatest(false);
+            });
+        });
+        // Loading JMX takes a few dozen ms, so the metrics MBean is registered off the startup path
+        if (LauncherMetrics.JMX) tasks.submit(core.metrics::register);
+        // Polls are background checks: they give way to foreground ones when the API quota runs low
+        new UpdatePoller(POLL_INTERVAL, UpdatePoller.DEFAULT_JITTER, () -> updating, () -> ui(() -> {
+            checkLatest(true, true);
+            checkLatest(false, true);
+        })).start(tasks);
 
         addWindowListener(new java.awt.event.WindowAdapter() {
             @Override
             public void windowClosing(java.awt.event.WindowEvent e) {
-                exec.shutdown();
+                tasks.close();
             }
         });
     }
     
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        StartupTimer.JVM.mark(StartupTimer.FIRST_PAINT);
+    }
+
+    /** Called once the game's install and update state is on screen and PLAY/Update can be used. */
+    private void markReady() {
+        if (StartupTimer.JVM.mark(StartupTimer.READY)) {
+            System.out.println("Startup timing: " + StartupTimer.JVM.summary());
+        }
+    }
+
     private void createHeader() {
         JPanel headerPanel = new JPanel(new BorderLayout(15, 10));
         headerPanel.setBackground(new Color(30, 30, 35));
@@ -269,6 +288,17 @@ public class Launcher extends JFrame {
                     btnPlay.setBackground(new Color(0, 150, 0));
                 }
             }
+
+            // Right-click: pick the launch profile for this machine
+            @Override
+            public void mousePressed(java.awt.event.MouseEvent e) {
+                if (e.isPopupTrigger()) showLaunchProfileMenu(e);
+            }
+
+            @Override
+            public void mouseReleased(java.awt.event.MouseEvent e) {
+                if (e.isPopupTrigger()) showLaunchProfileMenu(e);
+            }
         });
         
         playPanel.add(btnPlay);
@@ -344,78 +374,48 @@ public class Launcher extends JFrame {
         });
     }
 
+
     // ------------------------ Game & Launcher flows (merged) ------------------------
 
     private void checkLatest(boolean game) {
+        checkLatest(game, false);
+    }
+
+    private void checkLatest(boolean game, boolean background) {
         if (game) {
-            btnPlay.setEnabled(Files.exists(GAME_JAR));
+            btnPlay.setEnabled(Files.exists(LauncherCore.GAME_JAR));
             bar.setIndeterminate(true);
         }
 
-        exec.submit(() -> {
+        tasks.submit(() -> {
+            boolean servedFromCache = false;
+            LauncherCore.Track track = core.track(game);
             try {
-                String api = game ? API_LATEST : API_LAUNCHER_LATEST;
-                System.out.println("Checking " + (game ? "game" : "launcher") + " updates from: " + api);
-                
-                String json = httpGetString(api);
-                System.out.println("API response received, length: " + (json != null ? json.length() : "null"));
-                
-                String ver = extract(json, "\"tag_name\"\\s*:\\s*\"([^\"]+)\"");
-                String url = extractFirstJarUrl(json);
-                
-                System.out.println("Extracted version: " + ver + ", URL: " + url);
-
-                if (game) {
-                    latestVersion = ver;
-                    latestJarUrl = url;
-                } else {
-                    launcherLatestVersion = ver;
-                    launcherLatestJarUrl = url;
+                // Show the last known release right away, then revalidate against the API
+                ReleaseJson.Release cached = core.cachedRelease(track);
+                if (cached != null) {
+                    System.out.println("Using cached " + track.name + " release info while revalidating");
+                    servedFromCache = applyRelease(game, cached, true);
                 }
 
-                ui(() -> {
-                    if (ver == null || url == null) {
-                        if (game) {
-                            status.setText("Could not find latest game .jar asset.");
-                            bar.setIndeterminate(false);
-                            bar.setValue(0);
-                            btnUpdate.setEnabled(false);
-                            btnPlay.setEnabled(Files.exists(GAME_JAR));
-                        } else btnUpdateLauncher.setEnabled(false);
-                        return;
-                    }
-                    if (game) {
-                        boolean newer = isNewer(ver, localVersion) || !Files.exists(GAME_JAR);
-                        btnUpdate.setEnabled(newer);
-                        btnPlay.setEnabled(Files.exists(GAME_JAR));
-                        bar.setIndeterminate(false);
-                        bar.setValue(newer ? 0 : 100);
-                        if (!newer) bar.setString("Game up to date");
-                    } else {
-                        boolean newer = isNewer(ver, launcherLocalVersion);
-                        System.out.println("Launcher version check - Remote: " + ver + ", Local: " + launcherLocalVersion + ", Newer: " + newer);
-                        btnUpdateLauncher.setEnabled(newer);
-                        if (!newer) {
-                            if (bar.isIndeterminate()) {
-                                bar.setIndeterminate(false);
-                                bar.setValue(100);
-                                bar.setString("Up to date");
-                            }
-                            System.out.println("Launcher is up to date - update button disabled");
-                        } else {
-                            System.out.println("Launcher update available - update button enabled");
-                        }
-                    }
-                });
+                if (game) core.ensureLocalSha256();
+                applyRelease(game, core.fetchLatest(track, background), false);
             } catch (Exception ex) {
-                System.out.println("Error checking " + (game ? "game" : "launcher") + " updates: " + ex.getMessage());
+                if (tasks.isClosed()) return; // cancelled on window close
+                System.out.println("Error checking " + track.name + " updates: " + ex.getMessage());
                 ex.printStackTrace();
-                
+
+                boolean haveCached = servedFromCache;
                 ui(() -> {
-                    if (game) {
+                    if (game) markReady();
+                    if (haveCached) {
+                        // Keep the cached release info usable; just tell the user it could not be refreshed
+                        status.setText((game ? "Game" : "Launcher") + " update check failed (" + ex.getMessage() + "). Showing last known release.");
+                        if (game) bar.setIndeterminate(false);
+                    } else if (game) {
                         status.setText("Offline or API error: " + ex.getMessage() + ". You can still play offline if installed.");
                         bar.setIndeterminate(false);
-                        btnPlay.setEnabled(Files.exists(GAME_JAR));
+                        btnPlay.setEnabled(Files.exists(LauncherCore.GAME_JAR));
                         btnUpdate.setEnabled(false);
                     } else {
                         status.setText("Launcher update check failed: " + ex.getMessage());
@@ -426,89 +426,116 @@ public class Launcher extends JFrame {
         });
     }
 
+    /**
+     * Records a parsed release in the core and shows it.
+     * A cached release that lacks a version or jar asset is ignored; returns whether it was usable.
+     */
+    private boolean applyRelease(boolean game, ReleaseJson.Release release, boolean cached) {
+        LauncherCore.Track track = core.track(game);
+        if (!core.apply(track, release, cached)) return false;
+        String ver = track.latestVersion;
+        String url = track.latestJarUrl;
+        if (game && PREFETCH && !cached && ver != null && url != null && core.updateAvailable(track)) startPrefetch();
+
+        ui(() -> {
+            if (ver == null || url == null) {
+                if (game) {
+                    status.setText("Could not find latest game .jar asset.");
+                    bar.setIndeterminate(false);
+                    bar.setValue(0);
+                    btnUpdate.setEnabled(false);
+                    btnPlay.setEnabled(Files.exists(LauncherCore.GAME_JAR));
+                    markReady();
+                } else btnUpdateLauncher.setEnabled(false);
+                return;
+            }
+            if (game) {
+                boolean newer = core.updateAvailable(track);
+                btnUpdate.setEnabled(newer);
+                btnPlay.setEnabled(Files.exists(LauncherCore.GAME_JAR));
+                bar.setIndeterminate(false);
+                bar.setValue(newer ? 0 : 100);
+                if (!newer) bar.setString("Game up to date");
+                status.setText("Installed game: " + track.localVersion
+                    + (cached ? " — last known latest " + ver + ", revalidating…" : " — latest " + ver));
+                markReady();
+            } else {
+                boolean newer = core.updateAvailable(track);
+                System.out.println("Launcher version check - Remote: " + ver + ", Local: " + track.localVersion + ", Newer: " + newer);
+                btnUpdateLauncher.setEnabled(newer);
+                if (!newer) {
+                    if (bar.isIndeterminate()) {
+                        bar.setIndeterminate(false);
+                        bar.setValue(100);
+                        bar.setString("Up to date");
+                    }
+                    System.out.println("Launcher is up to date - update button disabled");
+                } else {
+                    System.out.println("Launcher update available - update button enabled");
+                }
+            }
+        });
+        return true;
+    }
+
     private void startUpdate(boolean game) {
+        updating = true;
+        LauncherCore.Track track = core.track(game);
         if (game) {
             btnUpdate.setEnabled(false);
             btnPlay.setEnabled(false);
-            bar.setIndeterminate(true);
-            bar.setString(null);
-            status.setText("Downloading game " + latestVersion + "…");
         } else {
             btnUpdateLauncher.setEnabled(false);
-            bar.setIndeterminate(true);
-            bar.setString(null);
-            status.setText("Downloading launcher " + launcherLatestVersion + "…");
         }
+        bar.setIndeterminate(true);
+        bar.setString(null);
+        status.setText("Downloading " + track.name + " " + track.latestVersion + "…");
 
-        exec.submit(() -> {
-            Path tmp = null;
+        tasks.submit(() -> {
             try {
-                String url = game ? latestJarUrl : launcherLatestJarUrl;
-                if (url == null) throw new IOException("No " + (game ? "game" : "launcher") + " asset URL.");
-
-                tmp = downloadToTemp(url, game ? "tlob-" : "tlob-launcher-");
-
-                Files.createDirectories(HOME_DIR);
-
-                if (!game) {
-                    Path self = getSelfJarPath();
-                    if (self != null && Files.isRegularFile(self) && Files.isSameFile(self, LAUNCHER_JAR)) {
-                        Path staged = HOME_DIR.resolve("launcher.jar.new");
-                        Files.move(tmp, staged, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-                        
-                        // Save the new version before restarting
-                        saveLauncherVersion(launcherLatestVersion);
-
-                        ui(() -> {
-                            status.setText("Updating launcher… restarting.");
-                            bar.setIndeterminate(true);
-                        });
-                        writeAndRunSelfReplaceScript(staged, LAUNCHER_JAR, findJava());
-                        ui(() -> {
-                            exec.shutdown();
-                            setVisible(false);
-                            dispose();
-                            System.exit(0);
-                        });
-                        return;
-                    }
-                    Files.move(tmp, LAUNCHER_JAR, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-                    saveLauncherVersion(launcherLatestVersion);
+                if (game) {
+                    // Take over the staging area; a prefetched (or partly prefetched) jar is reused as is
+                    pausePrefetch();
+                    String version = core.installGame(new ProgressBarUpdater());
                     ui(() -> {
-                        status.setText("Launcher installed. Restarting updated launcher…");
+                        status.setText("Installed game " + version + ". Ready to play.");
                         bar.setValue(100);
                         bar.setString("Done");
-                    });
-                    new ProcessBuilder(findJava(), "-jar", LAUNCHER_JAR.toString()).directory(HOME_DIR.toFile()).inheritIO().start();
-                    ui(() -> {
-                        exec.shutdown();
-                        setVisible(false);
-                        dispose();
-                        System.exit(0);
+                        btnPlay.setEnabled(true);
                     });
                     return;
                 }
 
-                // game
-                Files.move(tmp, GAME_JAR, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-                saveLocalGameVersion(latestVersion);
+                boolean replacingSelf = core.installLauncher(new ProgressBarUpdater());
+                updateVersionLabel(core.launcher.latestVersion);
+                if (replacingSelf) {
+                    ui(() -> {
+                        status.setText("Updating launcher… restarting.");
+                        bar.setIndeterminate(true);
+                    });
+                } else {
+                    ui(() -> {
+                        status.setText("Launcher installed. Restarting updated launcher…");
+                        bar.setValue(100);
+                        bar.setString("Done");
+                    });
+                    core.startInstalledLauncher();
+                }
                 ui(() -> {
-                    status.setText("Installed game " + latestVersion + ". Ready to play.");
-                    bar.setValue(100);
-                    bar.setString("Done");
-                    btnPlay.setEnabled(true);
+                    tasks.close();
+                    setVisible(false);
+                    dispose();
+                    System.exit(0);
                 });
 
             } catch (Exception ex) {
-                if (tmp != null) try {
-                    Files.deleteIfExists(tmp);
-                } catch (IOException ignored) {
-                }
+                // The partial download stays in DOWNLOADS_DIR and is resumed on the next attempt
+                if (tasks.isClosed()) return; // cancelled on window close
                 ui(() -> {
                     if (game) {
                         status.setText("Game download failed: " + ex.getMessage());
                         btnUpdate.setEnabled(true);
-                        btnPlay.setEnabled(Files.exists(GAME_JAR));
+                        btnPlay.setEnabled(Files.exists(LauncherCore.GAME_JAR));
                     } else {
                         status.setText("Launcher update failed: " + ex.getMessage());
                         btnUpdateLauncher.setEnabled(true);
@@ -518,138 +545,97 @@ public class Launcher extends JFrame {
                         bar.setValue(0);
                     }
                 });
+            } finally {
+                updating = false;
             }
         });
     }
 
-    // ------------------------ Local versions & launch ------------------------
+    // ------------------------ Background prefetch ------------------------
 
-    private void loadLocalVersion() {
-        if (Files.exists(INSTALLED_PROPS)) {
-            try (var in = Files.newInputStream(INSTALLED_PROPS)) {
-                var p = new Properties();
-                p.load(in);
-                localVersion = p.getProperty("version", localVersion);
-            } catch (IOException ignored) {
+    /**
+     * Stages the latest game in the background (see {@link LauncherCore#prefetch()}) so Update only
+     * has to verify and swap the jar. A prefetch paused by PLAY, Update or closing the launcher
+     * resumes on the next start.
+     */
+    private void startPrefetch() {
+        String version = core.game.latestVersion;
+        Future<?> running = prefetchTask;
+        if (version == null || (running != null && !running.isDone())) return;
+        prefetchTask = tasks.submit(() -> {
+            try {
+                if (!core.prefetch()) return;
+                ui(() -> {
+                    if (btnUpdate.isEnabled() && version.equals(core.game.latestVersion)) {
+                        status.setText("Installed game: " + core.game.localVersion + " — " + version + " downloaded, click Update to install");
+                    }
+                });
+            } catch (Exception e) {
+                // Cancelled by PLAY, Update or window close, or a network error: the partial stays for next time
+                System.out.println("Prefetch paused: " + e);
             }
-        }
-        status.setText("Installed game: " + localVersion + " — checking for updates…");
+        });
     }
 
-    private void saveLocalGameVersion(String version) {
-        try (var out = Files.newOutputStream(INSTALLED_PROPS)) {
-            var p = new Properties();
-            p.setProperty("version", version);
-            p.setProperty("path", GAME_JAR.toString());
-            p.store(out, "TLOB installed version");
-        } catch (IOException ignored) {
-        }
+    /** Stops a running prefetch; what it downloaded so far stays staged. */
+    private void pausePrefetch() {
+        Future<?> running = prefetchTask;
+        if (running != null) running.cancel(true);
     }
 
-    private void loadLauncherLocalVersion() {
-        // First try to get version from properties file (stored during previous updates)
-        if (Files.exists(LAUNCHER_PROPS)) {
-            try (var in = Files.newInputStream(LAUNCHER_PROPS)) {
-                var p = new Properties();
-                p.load(in);
-                String storedVersion = p.getProperty("version");
-                if (storedVersion != null && !storedVersion.isBlank()) {
-                    // Clean the stored version - remove 'v' prefix if present
-                    launcherLocalVersion = storedVersion.startsWith("v") ? storedVersion.substring(1) : storedVersion.trim();
-                    return;
-                }
-            } catch (IOException ignored) {
-            }
-        }
-        
-        // Fallback: try to get version from package implementation
-        String v = getClass().getPackage() != null ? getClass().getPackage().getImplementationVersion() : null;
-        if (v != null && !v.isBlank()) {
-            launcherLocalVersion = v.startsWith("v") ? v.substring(1) : v.trim();
-        } else {
-            // If no version info available, check if we're running from a JAR file
-            Path selfJar = getSelfJarPath();
-            if (selfJar != null && Files.exists(selfJar)) {
-                // Try to extract version from JAR filename
-                String fileName = selfJar.getFileName().toString();
-                if (fileName.matches(".*v?\\d+\\.\\d+\\.\\d+.*")) {
-                    // Extract version from filename, remove 'v' prefix
-                    Matcher matcher = Pattern.compile("v?(\\d+\\.\\d+\\.\\d+)").matcher(fileName);
-                    if (matcher.find()) {
-                        launcherLocalVersion = matcher.group(1);
-                    }
-                } else {
-                    launcherLocalVersion = "1.0.0";
-                }
-            } else {
-                launcherLocalVersion = "1.0.0";
-            }
-        }
-        
-        // If we still don't have a proper version, try to set it based on the current launcher
-        if (launcherLocalVersion.equals("0.0.0") || launcherLocalVersion.equals("1.0.0")) {
-            // Try to get version from MANIFEST.MF or set a reasonable default
-            launcherLocalVersion = getCurrentLauncherVersion();
-        }
-        
-        // Always allow updates unless we have a very specific reason not to
-        if (isRunningFromIDE() && launcherLocalVersion.equals("0.0.0")) {
-            System.out.println("Running from IDE/class files with no version info - setting default version");
-            launcherLocalVersion = "0.0.1"; // Set to a low version to allow updates
-        } else if (isRunningFromIDE()) {
-            System.out.println("Running from IDE/class files but version detected: " + launcherLocalVersion);
-        }
-        
-        System.out.println("Final launcher local version: " + launcherLocalVersion);
-    }
-    
-    private boolean isRunningFromIDE() {
-        // Check if we're running from compiled class files instead of a JAR
-        Path selfJar = getSelfJarPath();
-        if (selfJar == null) {
-            // No JAR file found, likely running from IDE
-            return true;
-        }
-        
-        // Check if the path contains common IDE build directories
-        String path = selfJar.toString().toLowerCase();
-        boolean isDevPath = path.contains("target") || path.contains("build") || path.contains("out") || 
-                           path.contains("bin") || path.contains("classes") || path.endsWith(".class");
-        
-        // Only consider it IDE if we also can't get version from MANIFEST or other sources
-        if (isDevPath) {
-            System.out.println("Detected development path: " + path);
-        }
-        
-        return isDevPath;
+    // ------------------------ Launch profile ------------------------
+
+    /** Resolves the launch profile and shows it on the PLAY button's tooltip. */
+    private void resolveLaunchProfile() {
+        LaunchProfile.Choice choice = core.resolveLaunchProfile();
+        String options = choice.options().isEmpty() ? "JVM defaults" : String.join(" ", choice.options());
+        String tip = "<html>Profile: " + choice.name() + (choice.overridden() ? " (override)" : "")
+            + "<br>" + choice.hardware() + "<br>" + options + "<br><i>Right-click to change</i></html>";
+        ui(() -> btnPlay.setToolTipText(tip));
     }
-    
-    private String getCurrentLauncherVersion() {
+
+    private void showLaunchProfileMenu(java.awt.event.MouseEvent e) {
+        JPopupMenu popup = new JPopupMenu();
+        LaunchProfile.Choice current = core.launchProfile();
+        String forced = current.overridden() ? current.name() : null;
+
+        JMenuItem header = new JMenuItem("Launch profile: " + current.name());
+        header.setEnabled(false);
+        popup.add(header);
+        popup.addSeparator();
+
+        JMenuItem auto = new JMenuItem((forced == null ? "• " : "") + "Automatic");
+        auto.addActionListener(ev -> setLaunchProfile(null));
+        popup.add(auto);
         try {
-            // Try to read from MANIFEST.MF
-            var url = Launcher.class.getResource("/META-INF/MANIFEST.MF");
-            if (url != null) {
-                try (var in = url.openStream()) {
-                    var props = new Properties();
-                    props.load(in);
-                    String version = props.getProperty("Implementation-Version");
-                    if (version != null && !version.isBlank()) {
-                        // Clean the version - remove 'v' prefix if present
-                        return version.startsWith("v") ? version.substring(1) : version.trim();
-                    }
-                }
+            for (String name : core.launchProfile.profileNames()) {
+                JMenuItem item = new JMenuItem((name.equals(forced) ? "• " : "") + name);
+                item.addActionListener(ev -> setLaunchProfile(name));
+                popup.add(item);
             }
-        } catch (Exception ignored) {
+        } catch (IOException ex) {
+            System.out.println("Launch profile: could not list profiles: " + ex.getMessage());
         }
-        
-        // If all else fails, use a reasonable default
-        return "1.0.0";
+        popup.show(e.getComponent(), e.getX(), e.getY());
     }
-    
+
+    private void setLaunchProfile(String name) {
+        tasks.submit(() -> {
+            try {
+                core.launchProfile.saveProfileOverride(name);
+            } catch (IOException e) {
+                System.out.println("Launch profile: could not save " + LauncherCore.LAUNCH_OVERRIDES + ": " + e.getMessage());
+            }
+            resolveLaunchProfile();
+        });
+    }
+
+    // ------------------------ Launcher version ------------------------
+
     private void showLauncherVersionMenu(java.awt.event.MouseEvent e) {
         JPopupMenu popup = new JPopupMenu();
         
-        JMenuItem currentVersion = new JMenuItem("Current: " + launcherLocalVersion);
+        JMenuItem currentVersion = new JMenuItem("Current: " + core.launcher.localVersion);
         currentVersion.setEnabled(false);
         popup.add(currentVersion);
         
@@ -663,9 +649,9 @@ public class Launcher extends JFrame {
                 JOptionPane.QUESTION_MESSAGE);
             if (input != null && !input.trim().isEmpty()) {
                 // Clean the input - remove 'v' prefix if present
-                launcherLocalVersion = input.trim().startsWith("v") ? input.trim().substring(1) : input.trim();
-                saveLauncherVersion(launcherLocalVersion);
-                System.out.println("Manually set launcher version to: " + launcherLocalVersion);
+                core.launcher.localVersion = input.trim().startsWith("v") ? input.trim().substring(1) : input.trim();
+                saveLauncherVersion(core.launcher.localVersion);
+                System.out.println("Manually set launcher version to: " + core.launcher.localVersion);
                 // Re-check for updates
                 checkLatest(false);
             }
@@ -682,11 +668,11 @@ public class Launcher extends JFrame {
         JMenuItem resetVersion = new JMenuItem("Reset Version to Check Updates");
         resetVersion.addActionListener(ev -> {
             System.out.println("=== RESET VERSION START ===");
-            System.out.println("Before reset: launcherLocalVersion = '" + launcherLocalVersion + "'");
-            launcherLocalVersion = "0.0.0";
-            System.out.println("After reset: launcherLocalVersion = '" + launcherLocalVersion + "'");
-            saveLauncherVersion(launcherLocalVersion);
-            System.out.println("After saveLauncherVersion: launcherLocalVersion = '" + launcherLocalVersion + "'");
+            System.out.println("Before reset: core.launcher.localVersion = '" + core.launcher.localVersion + "'");
+            core.launcher.localVersion = "0.0.0";
+            System.out.println("After reset: core.launcher.localVersion = '" + core.launcher.localVersion + "'");
+            saveLauncherVersion(core.launcher.localVersion);
+            System.out.println("After saveLauncherVersion: core.launcher.localVersion = '" + core.launcher.localVersion + "'");
             
             // Add a small delay to ensure UI updates are processed
             Timer timer = new Timer(100, e2 -> {
@@ -702,7 +688,7 @@ public class Launcher extends JFrame {
         JMenuItem testNetwork = new JMenuItem("Test Network Connectivity");
         testNetwork.addActionListener(ev -> {
             System.out.println("=== NETWORK TEST START ===");
-            testNetworkConnectivity();
+            core.testNetworkConnectivity();
             System.out.println("=== NETWORK TEST END ===");
         });
         popup.add(testNetwork);
@@ -710,83 +696,12 @@ public class Launcher extends JFrame {
         popup.show(btnUpdateLauncher, e.getX(), e.getY());
     }
     
-    private void testNetworkConnectivity() {
-        System.out.println("Testing network connectivity...");
-        
-        // Test basic internet connectivity
-        try {
-            System.out.println("Testing basic internet connectivity...");
-            var testUrl = "https://www.google.com";
-            var testReq = HttpRequest.newBuilder(URI.create(testUrl))
-                .timeout(Duration.ofSeconds(10))
-                .GET()
-                .build();
-            var testResp = http.send(testReq, HttpResponse.BodyHandlers.discarding());
-            System.out.println("✓ Basic internet connectivity: OK (Status: " + testResp.statusCode() + ")");
-        } catch (Exception e) {
-            System.out.println("✗ Basic internet connectivity: FAILED - " + e.getMessage());
-        }
-        
-        // Test GitHub API connectivity
-        try {
-            System.out.println("Testing GitHub API connectivity...");
-            var githubTestUrl = "https://api.github.com";
-            var githubReq = HttpRequest.newBuilder(URI.create(githubTestUrl))
-                .timeout(Duration.ofSeconds(10))
-                .GET()
-                .build();
-            var githubResp = http.send(githubReq, HttpResponse.BodyHandlers.discarding());
-            System.out.println("✓ GitHub API connectivity: OK (Status: " + githubResp.statusCode() + ")");
-        } catch (Exception e) {
-            System.out.println("✗ GitHub API connectivity: FAILED - " + e.getMessage());
-        }
-        
-        // Test specific launcher API endpoint
-        try {
-            System.out.println("Testing launcher API endpoint...");
-            var launcherReq = HttpRequest.newBuilder(URI.create(API_LAUNCHER_LATEST))
-                .header("User-Agent", USER_AGENT)
-                .timeout(Duration.ofSeconds(15))
-                .GET()
-                .build();
-            var launcherResp = http.send(launcherReq, HttpResponse.BodyHandlers.ofString());
-            System.out.println("✓ Launcher API endpoint: OK (Status: " + launcherResp.statusCode() + ")");
-            System.out.println("Response length: " + launcherResp.body().length() + " characters");
-        } catch (Exception e) {
-            System.out.println("✗ Launcher API endpoint: FAILED - " + e.getMessage());
-        }
-        
-        // Test DNS resolution
-        try {
-            System.out.println("Testing DNS resolution...");
-            var testUri = URI.create("https://api.github.com");
-            System.out.println("✓ DNS resolution: OK - " + testUri.getHost() + " resolved");
-        } catch (Exception e) {
-            System.out.println("✗ DNS resolution: FAILED - " + e.getMessage());
-        }
-    }
 
     private void saveLauncherVersion(String version) {
-        System.out.println("saveLauncherVersion called with version: '" + version + "'");
-        
-        // Ensure we always save clean versions (without 'v' prefix)
-        String cleanVersion = version.startsWith("v") ? version.substring(1) : version;
-        
-        try (var out = Files.newOutputStream(LAUNCHER_PROPS)) {
-            var p = new Properties();
-            p.setProperty("version", cleanVersion);
-            p.setProperty("path", LAUNCHER_JAR.toString());
-            p.store(out, "TLOB Launcher installed version");
-            System.out.println("Saved clean version '" + cleanVersion + "' to properties file");
-        } catch (IOException ignored) {
-            System.out.println("Failed to save version to properties file");
-        }
-        
         // Update the UI with the clean version
-        System.out.println("Calling updateVersionLabel with clean version: '" + cleanVersion + "'");
-        updateVersionLabel(cleanVersion);
+        updateVersionLabel(core.saveLauncherVersion(version));
     }
-    
+
     private String formatVersionDisplay(String version) {
         if (version == null || version.isBlank()) return "0.0.0";
         
@@ -806,228 +721,142 @@ public class Launcher extends JFrame {
         }
     }
 
-    private void launchGame() {
-        try {
-            if (!Files.exists(GAME_JAR)) {
-                JOptionPane.showMessageDialog(this, "Game not installed yet.", "Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-            status.setText("Launching game…");
-            new ProcessBuilder(findJava(), "-jar", GAME_JAR.toString())
-                .directory(HOME_DIR.toFile()).inheritIO().start();
-            ui(() -> {
-                exec.shutdown();
-                setVisible(false);
-                dispose();
-                System.exit(0);
-            });
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, "Failed to start game: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
 
-    // ------------------------ Networking / IO helpers ------------------------
+    // ------------------------ Launch ------------------------
 
-    private String httpGetString(String url) throws IOException, InterruptedException {
-        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(url))
-            .header("User-Agent", USER_AGENT).timeout(Duration.ofSeconds(20)).GET();
-        String token = System.getenv("GITHUB_TOKEN");
-        if (token != null && !token.isBlank()) b.header("Authorization", "Bearer " + token.trim());
-        var resp = http.send(b.build(), HttpResponse.BodyHandlers.ofString());
-        if (resp.statusCode() != 200) throw new IOException("GitHub API " + resp.statusCode());
-        return resp.body();
+    private void launchGame() {
+        status.setText("Launching game…");
+        btnPlay.setEnabled(false);
+        pausePrefetch();
+        // Resolving the launch profile and preparing the CDS archive read and write files
+        tasks.submit(() -> {
+            try {
+                if (!Files.exists(LauncherCore.GAME_JAR)) {
+                    ui(() -> {
+                        status.setText("Game not installed yet.");
+                        JOptionPane.showMessageDialog(this, "Game not installed yet.", "Error", JOptionPane.ERROR_MESSAGE);
+                    });
+                    return;
+                }
+                if (IN_PROCESS && launchInProcess(core.launchProfile())) return;
+                core.launchGame();
+                ui(() -> {
+                    tasks.close();
+                    setVisible(false);
+                    dispose();
+                    System.exit(0);
+                });
+            } catch (Exception ex) {
+                if (tasks.isClosed()) return; // cancelled on window close
+                ui(() -> {
+                    btnPlay.setEnabled(true);
+                    JOptionPane.showMessageDialog(this, "Failed to start game: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                });
+            }
+        });
     }
 
-    /** Downloads the URL to a temp file while updating the progress bar; returns the temp path. */
-    private Path downloadToTemp(String url, String prefix) throws IOException, InterruptedException {
-        Path tmp = Files.createTempFile(prefix, ".jar.part");
-        long total = contentLength(url);
+    /**
+     * Starts the game in this JVM and lets go of the launcher: tasks and HTTP client are shut down
+     * and the frame is disposed, on the EDT, so launcher state can be collected. Called from a task. Returns false, leaving the
+     * launcher untouched, when the game has to run as a separate process instead. The profile's
+     * JVM options and the CDS archive only apply to that separate process. The game also keeps the
+     * launcher's working directory, so this only goes ahead when the launcher was started in
+     * {@link LauncherCore#HOME_DIR}, where the game process runs; otherwise game data would end up
+     * wherever the launcher was started from.
+     */
+    private boolean launchInProcess(LaunchProfile.Choice profile) {
+        if (!InProcessGame.runsIn(LauncherCore.HOME_DIR)) {
+            System.out.println("In-process launch skipped: working directory " + System.getProperty("user.dir")
+                + " is not " + LauncherCore.HOME_DIR);
+            return false;
+        }
+        long wanted = InProcessGame.maxHeap(profile.options());
+        long available = Runtime.getRuntime().maxMemory();
+        // maxMemory() reports a little less than -Xmx (one survivor space), hence the slack
+        if (wanted > available + available / 8) {
+            System.out.println("In-process launch skipped: profile " + profile.name() + " wants "
+                + ProgressMeter.formatBytes(wanted) + " of heap, launcher has " + ProgressMeter.formatBytes(available));
+            return false;
+        }
+        var event = new LauncherEvents.GameSpawnEvent();
+        event.begin();
+        event.version = core.game.localVersion;
+        event.profile = profile.name();
+        event.inProcess = true;
+        event.pid = ProcessHandle.current().pid();
+        long start = System.nanoTime();
+        InProcessGame game;
+        try {
+            game = InProcessGame.load(LauncherCore.GAME_JAR);
+        } catch (IOException e) {
+            System.out.println("In-process launch failed, starting a separate process: " + e.getMessage());
+            return false;
+        }
+        System.out.println("Launching game in-process: " + game.mainClass());
+        // Recorded while the core is still up; the game is loaded and only has to be started
+        core.metrics.launches.increment();
+        core.metrics.launchLatency.since(start);
+        // Saved here, so shutting the core down on the EDT has nothing left to write
+        core.flush();
         ui(() -> {
-            if (total > 0) {
-                bar.setIndeterminate(false);
-                bar.setValue(0);
-                bar.setString(null);
-            }
+            tasks.close();
+            core.shutdown();
+            setVisible(false);
+            dispose();
+            game.start(new String[0]);
+            event.commit();
         });
-
-        HttpRequest req = HttpRequest.newBuilder(URI.create(url))
-            .header("User-Agent", USER_AGENT).timeout(Duration.ofMinutes(5)).GET().build();
-
-        try (OutputStream out = new CountingOutputStream(Files.newOutputStream(tmp, StandardOpenOption.TRUNCATE_EXISTING), total)) {
-            http.send(req, HttpResponse.BodyHandlers.ofInputStream()).body().transferTo(out);
-        }
-        return tmp;
+        return true;
     }
 
-    private class CountingOutputStream extends OutputStream {
-        private final OutputStream out;
-        private final long total;
-        private long read = 0;
-
-        CountingOutputStream(OutputStream out, long total) {
-            this.out = out;
-            this.total = total;
-        }
+    /**
+     * Mirrors install progress into the status label and progress bar. Download threads only bump a
+     * counter; a Swing timer samples it at {@link #PROGRESS_FPS} frames per second and shows percentage,
+     * smoothed throughput and ETA, so the EDT load does not grow with download speed.
+     */
+    private class ProgressBarUpdater implements LauncherCore.Listener {
+        private final ProgressMeter meter = new ProgressMeter();
+        private final Timer timer = new Timer(1000 / PROGRESS_FPS, e -> paintSample(false));
 
         @Override
-        public void write(int b) throws IOException {
-            out.write(b);
-            update(1);
+        public void status(String message) {
+            ui(() -> status.setText(message));
         }
 
         @Override
-        public void write(byte[] b, int off, int len) throws IOException {
-            out.write(b, off, len);
-            update(len);
-        }
-
-        private void update(long bytes) {
-            if (total > 0) {
-                read += bytes;
-                int pct = (int) Math.max(0, Math.min(100, (read * 100) / Math.max(1, total)));
-                ui(() -> {
-                    bar.setValue(pct);
-                    bar.setString(pct + "%");
-                });
-            }
+        public void started(long totalBytes, long alreadyDownloaded) {
+            meter.start(totalBytes, alreadyDownloaded);
+            ui(() -> {
+                if (totalBytes > 0) {
+                    bar.setIndeterminate(false);
+                    bar.setValue(0);
+                    bar.setString(null);
+                }
+                timer.start();
+            });
         }
 
         @Override
-        public void close() throws IOException {
-            out.close();
+        public void transferred(long bytes) {
+            meter.add(bytes);
         }
-    }
-
-    private long contentLength(String url) {
-        try {
-            var req = HttpRequest.newBuilder(URI.create(url))
-                .method("HEAD", HttpRequest.BodyPublishers.noBody())
-                .header("User-Agent", USER_AGENT).build();
-            var resp = http.send(req, HttpResponse.BodyHandlers.discarding());
-            String cl = resp.headers().firstValue("Content-Length").orElse(null);
-            if (cl != null) return Long.parseLong(cl);
-        } catch (Exception ignored) {
-        }
-        return -1;
-    }
 
-    // ------------------------ Misc ------------------------
-
-    private static String findJava() {
-        String home = System.getProperty("java.home");
-        Path bin = Path.of(home, "bin", (isWindows() ? "java.exe" : "java"));
-        return Files.exists(bin) ? bin.toString() : "java";
-    }
-
-    private static boolean isWindows() {
-        String os = System.getProperty("os.name", "").toLowerCase();
-        return os.contains("win");
-    }
-
-    private static Path getSelfJarPath() {
-        try {
-            var url = Launcher.class.getProtectionDomain().getCodeSource().getLocation();
-            if (url == null) return null;
-            Path p = Path.of(url.toURI());
-            return (Files.isRegularFile(p) && p.toString().toLowerCase().endsWith(".jar")) ? p : null;
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private void writeAndRunSelfReplaceScript(Path staged, Path dest, String javaPath) throws IOException {
-        if (isWindows()) {
-            Path bat = Files.createTempFile("tlob-replace-", ".bat");
-            String script = """
-                @echo off
-                set SRC=%1
-                set DEST=%2
-                set JAVA=%3
-                :loop
-                del /f /q "%DEST%" >nul 2>&1
-                if exist "%DEST%" (
-                  timeout /t 1 >nul
-                  goto loop
-                )
-                move /y "%SRC%" "%DEST%"
-                start "" "%JAVA%" -jar "%DEST%"
-                del "%~f0"
-                """;
-            Files.writeString(bat, script);
-            new ProcessBuilder("cmd", "/c", "start", "", bat.toString(), staged.toString(), dest.toString(), javaPath)
-                .inheritIO().start();
-        } else {
-            Path sh = Files.createTempFile("tlob-replace-", ".sh");
-            String script = """
-                #!/bin/sh
-                SRC="$1"
-                DEST="$2"
-                JAVA="$3"
-                i=0
-                while [ $i -lt 30 ]; do
-                  if rm -f "$DEST" 2>/dev/null; then break; fi
-                  i=$((i+1))
-                  sleep 1
-                done
-                mv -f "$SRC" "$DEST"
-                nohup "$JAVA" -jar "$DEST" >/dev/null 2>&1 &
-                rm -- "$0"
-                """;
-            Files.writeString(sh, script);
-            sh.toFile().setExecutable(true);
-            new ProcessBuilder(sh.toString(), staged.toString(), dest.toString(), javaPath)
-                .inheritIO().start();
-        }
-    }
-
-    // --- Tiny utils (kept inline to reduce file count) ---
-
-    private static boolean isNewer(String remote, String local) {
-        // Handle null cases
-        if (remote == null || remote.isBlank()) return false;
-        if (local == null || local.isBlank()) return true;
-        
-        // Remove 'v' prefix if present and clean versions
-        String r = remote.startsWith("v") ? remote.substring(1) : remote;
-        String l = local.startsWith("v") ? local.substring(1) : local;
-        
-        // Handle special cases
-        if (l.equals("999.999.999")) return false; // IDE mode - no updates
-        if (r.equals("999.999.999")) return false; // Remote version is invalid
-        
-        // Clean and parse version numbers
-        String[] a = r.trim().split("\\.");
-        String[] b = l.trim().split("\\.");
-        int n = Math.max(a.length, b.length);
-        
-        for (int i = 0; i < n; i++) {
-            int ai = (i < a.length) ? parseInt(a[i]) : 0;
-            int bi = (i < b.length) ? parseInt(b[i]) : 0;
-            if (ai != bi) return ai > bi;
-        }
-        return false;
-    }
-
-    private static int parseInt(String s) {
-        try {
-            return Integer.parseInt(s.replaceAll("[^0-9].*$", ""));
-        } catch (Exception e) {
-            return 0;
+        /** Stops sampling and paints the final state. */
+        @Override
+        public void finished() {
+            ui(() -> {
+                timer.stop();
+                paintSample(true);
+            });
         }
-    }
-
-    private static String extract(String json, String regex) {
-        Matcher m = Pattern.compile(regex).matcher(json);
-        return m.find() ? m.group(1) : null;
-    }
 
-    private static String extractFirstJarUrl(String json) {
-        Matcher m = Pattern.compile("\"browser_download_url\"\\s*:\\s*\"([^\"]+)\"").matcher(json);
-        while (m.find()) {
-            String url = m.group(1);
-            if (url.toLowerCase().endsWith(".jar")) return url;
+        private void paintSample(boolean last) {
+            var snap = meter.sample(System.nanoTime());
+            if (snap.total() <= 0 && snap.done() == 0) return;
+            if (snap.total() > 0) bar.setValue(snap.percent());
+            bar.setString(last ? snap.percent() + "%" : ProgressMeter.format(snap));
         }
-        return null;
     }
 
     private void ui(Runnable r) {
@@ -0,0 +1,206 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Entry point of the launcher jar. Without flags it starts the Swing {@link Launcher}; with flags it
+ * runs headless on {@link LauncherCore} and never loads AWT, for scripts and fleet provisioning:
+ *
+ * <pre>
+ *   --check    print installed and latest versions; exit 3 when a game update is available
+ *   --update   install the latest game if it is newer than the installed one
+ *   --launch   start the game (after --update, when both are given)
+ *   --json     one JSON object per line on stdout instead of text
+ * </pre>
+ *
+ * Diagnostics printed by the core go to stderr so stdout stays parseable. Launcher self-updates
+ * are left to the Swing launcher, since they end by relaunching it.
+ */
+public final class LauncherCli {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILED = 1;
+    static final int EXIT_USAGE = 2;
+    static final int EXIT_UPDATE_AVAILABLE = 3;
+
+    static final String USAGE = """
+        Usage: java -jar launcher.jar [--check] [--update] [--launch] [--json]
+          --check    print installed and latest versions; exit 3 when a game update is available
+          --update   install the latest game if it is newer than the installed one
+          --launch   start the game (after --update, when both are given)
+          --json     one JSON object per line on stdout instead of text
+        Without options the graphical launcher starts.""";
+
+    // Text-mode progress lines are printed at most this often
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    record Options(boolean check, boolean update, boolean launch, boolean json) {
+        static Options parse(String[] args) {
+            boolean check = false, update = false, launch = false, json = false;
+            for (String a : args) {
+                switch (a) {
+                    case "--check" -> check = true;
+                    case "--update" -> update = true;
+                    case "--launch" -> launch = true;
+                    case "--json" -> json = true;
+                    default -> throw new IllegalArgumentException("Unknown option: " + a);
+                }
+            }
+            if (!check && !update && !launch) throw new IllegalArgumentException("Nothing to do");
+            return new Options(check, update, launch, json);
+        }
+    }
+
+    private final Options options;
+    private final LauncherCore core;
+    private final PrintStream out;
+
+    LauncherCli(Options options, LauncherCore core, PrintStream out) {
+        this.options = options;
+        this.core = core;
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        StartupTimer.JVM.mark(StartupTimer.MAIN);
+        LauncherEvents.startRecording("launcher");
+        if (args.length == 0) {
+            Launcher.main(args);
+            return;
+        }
+        PrintStream out = System.out;
+        System.setOut(System.err);
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args, LauncherCore::new, out));
+    }
+
+    /** Parses {@code args} and runs them on the core from {@code core}, which is only created for valid options. */
+    static int run(String[] args, Supplier<LauncherCore> core, PrintStream out) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        LauncherCore c = core.get();
+        try {
+            return new LauncherCli(options, c, out).run();
+        } finally {
+            c.flush();
+        }
+    }
+
+    int run() {
+        try {
+            if (options.update()) core.prewarmConnections();
+            core.loadLocalVersion();
+            int code = EXIT_OK;
+            if (options.check() || options.update()) {
+                check(core.game);
+                if (options.check()) {
+                    core.loadLauncherLocalVersion();
+                    check(core.launcher);
+                }
+                if (!options.update() && core.updateAvailable(core.game)) code = EXIT_UPDATE_AVAILABLE;
+            }
+            if (options.update() && core.updateAvailable(core.game)) {
+                String version = core.installGame(new Progress());
+                emit("Installed game " + version, "installed", "target", "game", "version", version, "sha256", core.game.localSha256);
+            }
+            if (options.launch()) {
+                Process game = core.launchGame();
+                emit("Launched game (pid " + game.pid() + ")", "launched", "target", "game", "pid", game.pid());
+            }
+            return code;
+        } catch (IOException | RuntimeException e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.toString();
+            emit("error: " + message, "error", "message", message);
+            return EXIT_FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emit("error: interrupted", "error", "message", "interrupted");
+            return EXIT_FAILED;
+        }
+    }
+
+    /** Revalidates {@code t} against the API, falling back to the last cached release when offline. */
+    private void check(LauncherCore.Track t) throws IOException, InterruptedException {
+        if (t == core.game) core.ensureLocalSha256();
+        boolean cached = false;
+        try {
+            core.apply(t, core.fetchLatest(t), false);
+        } catch (IOException e) {
+            ReleaseJson.Release last = core.cachedRelease(t);
+            if (last == null || !core.apply(t, last, true)) throw e;
+            System.out.println("Using cached " + t.name + " release info: " + e.getMessage());
+            cached = true;
+        }
+        boolean available = core.updateAvailable(t);
+        emit(t.name + ": installed " + t.localVersion + ", latest " + t.latestVersion
+                + (available ? " (update available)" : " (up to date)") + (cached ? " [cached]" : ""),
+            "check", "target", t.name, "installed", t.localVersion, "latest", t.latestVersion,
+            "updateAvailable", available, "cached", cached);
+    }
+
+    /** Writes one result line: {@code text} in text mode, or a JSON object of {@code event} plus key/value pairs. */
+    private void emit(String text, String event, Object... fields) {
+        synchronized (out) {
+            out.println(options.json() ? json(event, fields) : text);
+            out.flush();
+        }
+    }
+
+    static String json(String event, Object... fields) {
+        StringBuilder sb = new StringBuilder("{\"event\":").append(ReleaseJson.quote(event));
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            Object v = fields[i + 1];
+            sb.append(',').append(ReleaseJson.quote(String.valueOf(fields[i]))).append(':');
+            if (v instanceof Number || v instanceof Boolean) sb.append(v);
+            else sb.append(ReleaseJson.quote(v == null ? null : v.toString()));
+        }
+        return sb.append('}').toString();
+    }
+
+    /** Reports install steps, and download progress at most once per second. */
+    private class Progress implements LauncherCore.Listener {
+        private final ProgressMeter meter = new ProgressMeter();
+        private final AtomicLong lastReport = new AtomicLong();
+
+        @Override
+        public void status(String message) {
+            emit(message, "status", "message", message);
+        }
+
+        @Override
+        public void started(long totalBytes, long alreadyDownloaded) {
+            meter.start(totalBytes, alreadyDownloaded);
+            lastReport.set(System.nanoTime());
+        }
+
+        @Override
+        public void transferred(long bytes) {
+            meter.add(bytes);
+            long now = System.nanoTime();
+            long last = lastReport.get();
+            if (now - last >= PROGRESS_INTERVAL_NANOS && lastReport.compareAndSet(last, now)) report(now);
+        }
+
+        @Override
+        public void finished() {
+            report(System.nanoTime());
+        }
+
+        private void report(long now) {
+            var snap = meter.sample(now);
+            if (snap.total() <= 0 && snap.done() == 0) return;
+            emit(ProgressMeter.format(snap), "progress", "done", snap.done(), "total", snap.total(),
+                "bytesPerSecond", Math.round(snap.bytesPerSecond()), "etaSeconds", snap.etaSeconds());
+        }
+    }
+}
@@ -0,0 +1,1060 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The launcher without a UI: release checks, downloads, installs and starting the game.
+ *
+ * Driven by the Swing {@link Launcher} and by the headless {@link LauncherCli}. Steps and download
+ * progress are reported to a {@link Listener}; nothing here touches AWT, so the command line runs
+ * without ever loading a toolkit.
+ */
+final class LauncherCore {
+
+    /** Progress of installs and downloads. Called from worker threads. */
+    interface Listener extends SegmentedDownloader.Progress {
+        /** A step worth showing, e.g. restoring a version from the local store. */
+        default void status(String message) {
+        }
+
+        @Override
+        default void started(long totalBytes, long alreadyDownloaded) {
+        }
+
+        @Override
+        default void transferred(long bytes) {
+        }
+
+        /** The current download is over, successfully or not. */
+        default void finished() {
+        }
+    }
+
+    static final Listener SILENT = new Listener() {
+    };
+
+    /** Installed and latest known release of one artifact: the game, or the launcher itself. */
+    static final class Track {
+        final String name;
+        volatile String localVersion = "0.0.0";
+        // SHA-256 of the installed jar (game only), recorded in installed.properties
+        volatile String localSha256;
+        volatile String latestVersion;
+        volatile String latestJarUrl;
+        volatile long latestJarSize = -1;
+        volatile String latestJarSha256;
+
+        Track(String name) {
+            this.name = name;
+        }
+    }
+
+    // --- Config (game) ---
+    static final String REPO = "dbohry/the-legend-of-belga";
+    static final String API_LATEST = "https://api.github.com/repos/" + REPO + "/releases/latest";
+    static final String USER_AGENT = "TLOB-Launcher/1.0 (+https://github.com/" + REPO + ")";
+    // Everything the launcher keeps on disk; -Dtlob.home moves it (the test suite uses a build directory)
+    static final Path HOME_DIR = Path.of(System.getProperty("tlob.home", Path.of(System.getProperty("user.home"), ".tlob").toString()));
+    static final Path INSTALLED_PROPS = HOME_DIR.resolve("installed.properties");
+    static final Path GAME_JAR = HOME_DIR.resolve("game.jar");
+    static final Path CACHE_DIR = HOME_DIR.resolve("cache");
+    static final Path DOWNLOADS_DIR = HOME_DIR.resolve("downloads");
+    static final Path STORE_DIR = HOME_DIR.resolve("store");
+    // Versions per jar kept in the content-addressed store; older ones and their unshared entries are pruned
+    static final int STORE_KEEP_VERSIONS = 3;
+    // Class data sharing archives for the game JVM, one per game version and Java runtime
+    static final Path CDS_DIR = HOME_DIR.resolve("cds");
+    // Hardware-based JVM option rules for the game (user-editable) and this machine's overrides
+    static final Path LAUNCH_RULES = HOME_DIR.resolve("launch-profiles.properties");
+    static final Path LAUNCH_OVERRIDES = HOME_DIR.resolve("launch.properties");
+    // API quota last reported by each host, shared by all launchers of this user
+    static final Path RATE_LIMIT_STATE = HOME_DIR.resolve("ratelimit.properties");
+    // Recent release-metadata latencies, for hedging slow requests
+    static final Path API_LATENCIES = HOME_DIR.resolve("latency.properties");
+
+    // --- Self-update (launcher) ---
+    static final String LAUNCHER_REPO = "dbohry/the-legend-of-belga-launcher";
+    static final String API_LAUNCHER_LATEST =
+        "https://api.github.com/repos/" + LAUNCHER_REPO + "/releases/latest";
+    static final Path LAUNCHER_JAR = HOME_DIR.resolve("launcher.jar");
+    static final Path LAUNCHER_PROPS = HOME_DIR.resolve("launcher.properties");
+    // A running launcher.jar is replaced with this staged jar by the SelfReplace helper,
+    // which runs from a copy of the current launcher jar
+    static final Path LAUNCHER_STAGED = HOME_DIR.resolve("launcher.jar.new");
+    static final Path LAUNCHER_HELPER = HOME_DIR.resolve("launcher.jar.helper");
+
+    // --- Networking ---
+    // Where release info comes from: "github", http(s) mirror base URLs and file: directories, raced when several
+    private static final String SOURCES = System.getProperty("tlob.sources", "github");
+    // Overall time for one release check, retries and racing sources included (-Dtlob.checkDeadlineSeconds)
+    private static final Duration CHECK_DEADLINE = Duration.ofSeconds(Long.getLong("tlob.checkDeadlineSeconds", 30));
+    // Hosts the first requests will hit: the API, and the release download + its CDN redirect target.
+    // The API is warmed via /rate_limit, which does not count against the quota.
+    private static final String PREWARM_API_URL = "https://api.github.com/rate_limit";
+    private static final String[] PREWARM_DOWNLOAD_URLS = {
+        "https://github.com",
+        "https://objects.githubusercontent.com"
+    };
+
+    static {
+        // Keep pooled connections alive long enough to be reused by the follow-up download
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", "120");
+        }
+    }
+
+    // Game updates try a jar-entry delta against the installed game.jar first; -Dtlob.delta=false disables it
+    private static final boolean DELTA_UPDATES = !"false".equalsIgnoreCase(System.getProperty("tlob.delta"));
+    // Bandwidth cap for background downloads such as prefetch (-Dtlob.backgroundKBps, 0 = unlimited)
+    private static final TokenBucket BACKGROUND_LIMIT = TokenBucket.perSecond(Long.getLong("tlob.backgroundKBps", 0) * 1024);
+    // Game launches record/reuse a CDS archive (AOT cache on JDK 25+); -Dtlob.cds=false disables it
+    private static final boolean CDS = !"false".equalsIgnoreCase(System.getProperty("tlob.cds"));
+
+    // --- State ---
+    final Track game = new Track("game");
+    final Track launcher = new Track("launcher");
+
+    private final HttpClient http = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .connectTimeout(Duration.ofSeconds(15))
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .build();
+    // Downloads get their own HTTP/1.1 client, so parallel ranges use parallel connections
+    private final HttpClient downloadHttp = SegmentedDownloader.newClient();
+    private final ReleaseCache releaseCache = new ReleaseCache(CACHE_DIR);
+    private final ApiQuota quota = new ApiQuota(RATE_LIMIT_STATE);
+    private final RetryPolicy.LatencyTracker apiLatencies = new RetryPolicy.LatencyTracker(API_LATENCIES);
+    // Metadata requests are small and idempotent: retried quickly, and hedged after the observed p95
+    private final RetryPolicy apiRetry = new RetryPolicy("API", 4, Duration.ofMillis(250), Duration.ofSeconds(4),
+        Duration.ofSeconds(10), apiLatencies);
+    // Downloads resume where a failed attempt stopped, so a retry only costs the lost connection
+    private final RetryPolicy downloadRetry = new RetryPolicy("Download", 4, Duration.ofSeconds(1), Duration.ofSeconds(15),
+        null, null);
+    private final List<ReleaseSource> sources;
+    private final SegmentedDownloader downloader = new SegmentedDownloader(downloadHttp, USER_AGENT);
+    // Background prefetch stays on one connection so it does not compete with the user's traffic
+    private final SegmentedDownloader prefetcher = new SegmentedDownloader(downloadHttp, USER_AGENT, 1, BACKGROUND_LIMIT);
+    private final BlobStore blobStore = new BlobStore(STORE_DIR);
+    private final JarDelta jarDelta = new JarDelta(http, USER_AGENT, blobStore);
+    private final CdsArchive cdsArchive = new CdsArchive(CDS_DIR);
+    final LaunchProfile launchProfile = new LaunchProfile(LAUNCH_RULES, LAUNCH_OVERRIDES);
+    private volatile LaunchProfile.Choice launchChoice;
+    // Held by whichever task is writing the staged game download (prefetch or update)
+    private final ReentrantLock staging = new ReentrantLock();
+    // Counters and latencies for JMX; see LauncherMetrics
+    final LauncherMetrics metrics = new LauncherMetrics();
+
+    LauncherCore() {
+        this(SOURCES);
+    }
+
+    /** A core reading release info from {@code sourceSpec} instead of {@code -Dtlob.sources}. */
+    LauncherCore(String sourceSpec) {
+        sources = ReleaseSource.parse(sourceSpec, Map.of(game.name, API_LATEST, launcher.name, API_LAUNCHER_LATEST),
+            this::fetchRelease);
+    }
+
+    Track track(boolean isGame) {
+        return isGame ? game : launcher;
+    }
+
+    /** True when {@code t}'s latest release is newer than what is installed (or the game is missing). */
+    boolean updateAvailable(Track t) {
+        if (t.latestVersion == null || t.latestJarUrl == null) return false;
+        return isNewer(t.latestVersion, t.localVersion) || (t == game && !Files.exists(GAME_JAR));
+    }
+
+    /** Stops all network activity; the core cannot be used afterwards. */
+    void shutdown() {
+        flush();
+        http.shutdownNow();
+        downloadHttp.shutdownNow();
+    }
+
+    /** Saves state kept in memory between writes (request latencies); safe to call at any time, e.g. on exit. */
+    void flush() {
+        apiLatencies.flush();
+    }
+
+    // ------------------------ Release checks ------------------------
+
+    /** The last release seen for {@code t} from any configured source, from the on-disk cache, or null. */
+    ReleaseJson.Release cachedRelease(Track t) throws IOException {
+        ReleaseCache.Entry newest = null;
+        String index = null;
+        for (ReleaseSource source : sources) {
+            String url = source.indexUrl(t.name);
+            ReleaseCache.Entry cached = releaseCache.load(url);
+            if (cached != null && (newest == null || cached.fetchedAt() > newest.fetchedAt())) {
+                newest = cached;
+                index = url;
+            }
+        }
+        return newest == null ? null : ReleaseSource.resolve(ReleaseJson.parse(newest.body()), index);
+    }
+
+    /** A foreground check of {@code t}; see {@link #fetchLatest(Track, boolean)}. */
+    ReleaseJson.Release fetchLatest(Track t) throws IOException, InterruptedException {
+        return fetchLatest(t, false);
+    }
+
+    /**
+     * Revalidates {@code t}'s latest release against the configured sources (an HTTP 304 is served
+     * from the cache). With several sources, the first valid answer wins. Sources whose API quota
+     * is exhausted, or for a {@code background} check running low, are left out; when that leaves
+     * none, the cached release is returned without any request.
+     */
+    ReleaseJson.Release fetchLatest(Track t, boolean background) throws IOException, InterruptedException {
+        var event = new LauncherEvents.UpdateCheckEvent();
+        event.begin();
+        event.track = t.name;
+        event.background = background;
+        long start = System.nanoTime();
+        metrics.checks.increment();
+        try {
+            ReleaseJson.Release release = checkSources(t, background, event);
+            event.version = release.tag();
+            event.bytes = release.jarSize();
+            if ("cache".equals(event.source)) metrics.checksFromCache.increment();
+            return release;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            metrics.checkFailures.increment();
+            throw e;
+        } finally {
+            metrics.checkLatency.since(start);
+            event.commit();
+        }
+    }
+
+    private ReleaseJson.Release checkSources(Track t, boolean background, LauncherEvents.UpdateCheckEvent event)
+        throws IOException, InterruptedException {
+        List<ReleaseSource> usable = new ArrayList<>();
+        long delay = 0;
+        String skipped = null;
+        for (ReleaseSource source : sources) {
+            String host = URI.create(source.indexUrl(t.name)).getHost();
+            ApiQuota.Decision d = host == null ? ApiQuota.Decision.ALLOW : quota.check(host, background, System.currentTimeMillis());
+            if (d.action() == ApiQuota.Action.SKIP) {
+                System.out.println("Skipping " + t.name + " check at " + source.name() + ": " + d.reason());
+                skipped = d.reason();
+                continue;
+            }
+            if (d.action() == ApiQuota.Action.DELAY) {
+                System.out.println("Delaying " + t.name + " check by " + d.delayMillis() + " ms: " + d.reason());
+                delay = Math.max(delay, d.delayMillis());
+            }
+            usable.add(source);
+        }
+        if (usable.isEmpty()) {
+            ReleaseJson.Release cached = cachedRelease(t);
+            if (cached == null) throw new IOException("Update check skipped, " + skipped);
+            System.out.println("Serving cached " + t.name + " release info instead");
+            event.source = "cache";
+            return cached;
+        }
+        if (delay > 0) Thread.sleep(delay);
+
+        System.out.println("Checking " + t.name + " updates from: "
+            + String.join(", ", usable.stream().map(s -> s.indexUrl(t.name)).toList()));
+        ReleaseSource.Answer answer = ReleaseSource.race(usable, t.name, CHECK_DEADLINE);
+        if (usable.size() > 1) {
+            System.out.println("Release source " + answer.source().name() + " won for " + t.name
+                + " in " + answer.millis() + " ms");
+        }
+        event.source = answer.source().name();
+        event.url = answer.source().indexUrl(t.name);
+        return answer.release();
+    }
+
+    /**
+     * Records a parsed release as {@code t}'s latest.
+     * A cached release that lacks a version or jar asset is ignored; returns whether it was usable.
+     */
+    boolean apply(Track t, ReleaseJson.Release release, boolean cached) {
+        String ver = release.tag();
+        String url = release.jarUrl();
+
+        System.out.println("Extracted version: " + ver + ", URL: " + url + (cached ? " (cached)" : ""));
+        if (cached && (ver == null || url == null)) return false;
+
+        t.latestVersion = ver;
+        t.latestJarUrl = url;
+        t.latestJarSize = release.jarSize();
+        t.latestJarSha256 = release.jarSha256();
+        String sha = t.latestJarSha256;
+        if (t == game && ver != null && sha != null && sha.equals(t.localSha256) && isNewer(ver, t.localVersion) && Files.isRegularFile(GAME_JAR)) {
+            // Same bytes under a new tag: record the version, nothing to download
+            System.out.println("Game " + ver + " is identical to the installed jar (sha256 " + sha + "), skipping update");
+            t.localVersion = ver;
+            saveLocalGameVersion(ver, sha);
+        }
+        return true;
+    }
+
+    /**
+     * Fetches a release conditionally against its cached entry (if any). A 304 is served from
+     * the cache and does not count against the GitHub rate limit. A 200 is parsed straight off
+     * the response stream, which is closed as soon as the needed fields are read, and the
+     * extracted fields are cached for the next start. Transient failures are retried, and a
+     * slow request is hedged while the host's quota is not running low, all within the check deadline.
+     */
+    private ReleaseJson.Release fetchRelease(String url) throws IOException, InterruptedException {
+        ReleaseCache.Entry cached = releaseCache.load(url);
+        String host = URI.create(url).getHost();
+        return apiRetry.call("GET " + url, CHECK_DEADLINE,
+            () -> quota.check(host, true, System.currentTimeMillis()).action() == ApiQuota.Action.ALLOW,
+            timeout -> fetchRelease(url, cached, timeout));
+    }
+
+    private ReleaseJson.Release fetchRelease(String url, ReleaseCache.Entry cached, Duration timeout)
+        throws IOException, InterruptedException {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(url))
+            .header("User-Agent", USER_AGENT).timeout(timeout).GET();
+        String token = System.getenv("GITHUB_TOKEN");
+        // The token is only for GitHub, never for mirrors
+        if (token != null && !token.isBlank() && url.startsWith("https://api.github.com/")) b.header("Authorization", "Bearer " + token.trim());
+        if (cached != null) {
+            if (cached.etag() != null) b.header("If-None-Match", cached.etag());
+            if (cached.lastModified() != null) b.header("If-Modified-Since", cached.lastModified());
+        }
+        var event = new LauncherEvents.HttpRequestEvent();
+        event.begin();
+        event.method = "GET";
+        event.url = url;
+        long start = System.nanoTime();
+        var resp = http.send(b.build(), HttpResponse.BodyHandlers.ofInputStream());
+        logTtfb("API", url, start, resp);
+        event.status = resp.statusCode();
+        event.bytes = resp.headers().firstValueAsLong("Content-Length").orElse(-1);
+        String host = resp.uri().getHost();
+        quota.record(host, resp.statusCode(), resp.headers(), System.currentTimeMillis());
+        try (InputStream body = resp.body()) {
+            ReleaseJson.Release release = readRelease(url, cached, resp, body);
+            event.version = release.tag();
+            return release;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /** Interprets one metadata response: a 304 or rate limit is served from {@code cached}, a 200 is parsed and cached. */
+    private ReleaseJson.Release readRelease(String url, ReleaseCache.Entry cached, HttpResponse<InputStream> resp,
+                                            InputStream body) throws IOException {
+        String host = resp.uri().getHost();
+        if (resp.statusCode() == 304 && cached != null) {
+            System.out.println("Release info not modified, using cache: " + url);
+            return ReleaseJson.parse(cached.body());
+        }
+        if ((resp.statusCode() == 403 || resp.statusCode() == 429) && isRateLimited(host)) {
+            ApiQuota.State q = quota.state(host);
+            String until = Instant.ofEpochMilli(Math.max(q.resetAt(), q.blockedUntil())).toString();
+            if (cached != null) {
+                System.out.println("Rate limited by " + host + " until " + until + ", using cached release info: " + url);
+                return ReleaseJson.parse(cached.body());
+            }
+            throw new RetryPolicy.PermanentException("Rate limited by " + host + " until " + until);
+        }
+        if (resp.statusCode() != 200) throw RetryPolicy.statusFailure(resp.statusCode(), "HTTP " + resp.statusCode() + " from " + host);
+        ReleaseJson.Release release = ReleaseJson.parse(body);
+        releaseCache.store(url, release.toJson(),
+            resp.headers().firstValue("ETag").orElse(null),
+            resp.headers().firstValue("Last-Modified").orElse(null));
+        return release;
+    }
+
+    /** True when the last response from {@code host} put it out of quota or asked us to back off. */
+    private boolean isRateLimited(String host) {
+        return quota.check(host, false, System.currentTimeMillis()).action() != ApiQuota.Action.ALLOW;
+    }
+
+    /**
+     * Fires async HEAD requests so connections to the API and asset hosts are open before they are needed.
+     * The API's answer carries the current rate limit, which is recorded for free.
+     */
+    void prewarmConnections() {
+        prewarm(http, PREWARM_API_URL);
+        for (String url : PREWARM_DOWNLOAD_URLS) prewarm(downloadHttp, url);
+    }
+
+    private void prewarm(HttpClient client, String url) {
+        long start = System.nanoTime();
+        var req = HttpRequest.newBuilder(URI.create(url))
+            .method("HEAD", HttpRequest.BodyPublishers.noBody())
+            .header("User-Agent", USER_AGENT).timeout(Duration.ofSeconds(10)).build();
+        var event = new LauncherEvents.HttpRequestEvent();
+        event.begin();
+        event.method = "HEAD";
+        event.url = url;
+        client.sendAsync(req, HttpResponse.BodyHandlers.discarding()).whenComplete((resp, ex) -> {
+            long ms = (System.nanoTime() - start) / 1_000_000;
+            if (resp != null) event.status = resp.statusCode();
+            event.commit();
+            if (ex != null) {
+                System.out.println("Pre-warm " + url + " failed after " + ms + " ms: " + ex.getMessage());
+                return;
+            }
+            System.out.println("Pre-warmed " + url + " in " + ms + " ms (" + resp.version() + ")");
+            quota.record(resp.uri().getHost(), resp.statusCode(), resp.headers(), System.currentTimeMillis());
+        });
+    }
+
+    /** Logs time-to-first-byte (request sent until response headers arrived) for a request. */
+    private static void logTtfb(String what, String url, long startNanos, HttpResponse<?> resp) {
+        long ms = (System.nanoTime() - startNanos) / 1_000_000;
+        System.out.println("TTFB " + what + ": " + ms + " ms, status " + resp.statusCode() + ", " + resp.version() + " — " + url);
+    }
+
+    // ------------------------ Install ------------------------
+
+    /**
+     * Installs the latest known game release and returns its version. Tries, in order: a copy in
+     * the blob store (e.g. a rollback), a jar-entry delta against the installed jar, and a full
+     * (resumable, segmented) download. Waits for a running prefetch to release the staging area;
+     * callers that want it stopped instead cancel it first.
+     */
+    String installGame(Listener listener) throws IOException, InterruptedException {
+        String version = game.latestVersion, url = game.latestJarUrl, sha256 = game.latestJarSha256;
+        long size = game.latestJarSize;
+        if (version == null || url == null) throw new IOException("No game release known");
+        // Take over the staging area; a prefetched (or partly prefetched) jar is reused as is
+        staging.lockInterruptibly();
+        try {
+            if (Files.isRegularFile(GAME_JAR) && !"0.0.0".equals(game.localVersion)) storeVersion(GAME_JAR, "game-", game.localVersion);
+            Prepared jar = tryStoredVersion(version, sha256, listener);
+            if (jar == null && !isStaged(url, size)) jar = tryDeltaUpdate(url, sha256, listener);
+            if (jar == null) jar = download(url, "game.jar", version, size, sha256, listener);
+
+            Files.createDirectories(HOME_DIR);
+            moveIntoPlace(jar.file(), GAME_JAR, version);
+            jar.cleanup();
+            // Every path above checked the jar against the published digest when there is one. Record
+            // the release's digest rather than the local bytes' (store and delta jars get rebuilt
+            // headers), so an identical republish is recognized by apply()
+            String installedSha256 = sha256 != null ? sha256 : jar.sha256();
+            game.localSha256 = installedSha256;
+            game.localVersion = version;
+            saveLocalGameVersion(version, installedSha256);
+            storeVersion(GAME_JAR, "game-", version);
+            return version;
+        } finally {
+            staging.unlock();
+        }
+    }
+
+    /**
+     * Installs the latest known launcher release. Returns true when the running launcher.jar is
+     * being replaced by the {@link SelfReplace} helper, which relaunches it once this process
+     * exits; false when the new jar is already in place and can be started with
+     * {@link #startInstalledLauncher()}. Either way the caller should exit next.
+     */
+    boolean installLauncher(Listener listener) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        metrics.selfUpdates.increment();
+        try {
+            return replaceLauncher(listener);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            metrics.selfUpdateFailures.increment();
+            throw e;
+        } finally {
+            metrics.selfUpdateLatency.since(start);
+        }
+    }
+
+    private boolean replaceLauncher(Listener listener) throws IOException, InterruptedException {
+        String version = launcher.latestVersion, url = launcher.latestJarUrl;
+        if (version == null || url == null) throw new IOException("No launcher release known");
+        Prepared jar = download(url, "launcher.jar", version, launcher.latestJarSize, launcher.latestJarSha256, listener);
+
+        Files.createDirectories(HOME_DIR);
+        Path self = getSelfJarPath();
+        if (self != null && Files.isRegularFile(self) && Files.isSameFile(self, LAUNCHER_JAR)) {
+            moveIntoPlace(jar.file(), LAUNCHER_STAGED, version);
+            jar.cleanup();
+            storeVersion(LAUNCHER_STAGED, "launcher-", version);
+            listener.status("Updating launcher… restarting.");
+            var event = new LauncherEvents.SelfReplaceEvent();
+            event.begin();
+            event.version = version;
+            event.path = LAUNCHER_JAR.toString();
+            event.bytes = Files.size(LAUNCHER_STAGED);
+            try {
+                Files.copy(self, LAUNCHER_HELPER, StandardCopyOption.REPLACE_EXISTING);
+                SelfReplace.spawn(findJava(), LAUNCHER_HELPER.toString(), LAUNCHER_STAGED, LAUNCHER_JAR);
+            } finally {
+                event.commit();
+            }
+            // Only once the helper is known to be running, so a failed hand-over keeps the old version
+            saveLauncherVersion(version);
+            return true;
+        }
+        moveIntoPlace(jar.file(), LAUNCHER_JAR, version);
+        jar.cleanup();
+        saveLauncherVersion(version);
+        storeVersion(LAUNCHER_JAR, "launcher-", version);
+        return false;
+    }
+
+    void startInstalledLauncher() throws IOException {
+        new ProcessBuilder(findJava(), "-jar", LAUNCHER_JAR.toString()).directory(HOME_DIR.toFile()).inheritIO().start();
+    }
+
+    /**
+     * Downloads the URL to {@code DOWNLOADS_DIR/<name>.part}, reporting progress to {@code listener}.
+     * A partial download left by an earlier failure or launcher restart is resumed, and the
+     * asset is fetched in parallel byte ranges when the server supports it. The size comes
+     * from the release JSON when known, otherwise from the response headers, so no separate
+     * HEAD round trip through the redirect chain is needed. A dropped connection or server
+     * error is retried with backoff, resuming from the bytes already on disk. The SHA-256
+     * computed during the download is checked against the published digest when there is one.
+     */
+    private Prepared download(String url, String name, String version, long expectedSize, String expectedSha256,
+                              Listener listener) throws IOException, InterruptedException {
+        Files.createDirectories(DOWNLOADS_DIR);
+        PartialDownload part = new PartialDownload(DOWNLOADS_DIR.resolve(name + ".part"));
+        long start = System.nanoTime();
+        var event = new LauncherEvents.DownloadEvent();
+        event.begin();
+        event.url = url;
+        event.version = version;
+        SegmentedDownloader.Result result;
+        metrics.downloads.increment();
+        try {
+            result = downloadRetry.call("download " + name, null, () -> false,
+                timeout -> downloader.download(url, part, expectedSize, listener));
+            event.bytes = result.bytes();
+            event.resumedFrom = result.resumedFrom();
+            event.connections = result.connections();
+            metrics.downloadBytes.add(result.bytes() - result.resumedFrom());
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            metrics.downloadFailures.increment();
+            throw e;
+        } finally {
+            listener.finished();
+            metrics.downloadLatency.since(start);
+            event.commit();
+        }
+        long ms = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("TTFB Download: " + result.ttfbMillis() + " ms — " + url);
+        System.out.println("Downloaded " + (result.bytes() - result.resumedFrom()) + " bytes in " + ms + " ms over "
+            + result.connections() + (result.segmented() ? " ranged connection(s)" : " connection(s) (no range support)")
+            + (result.resumedFrom() > 0 ? ", resumed at " + result.resumedFrom() : ""));
+        if (expectedSha256 != null && !expectedSha256.equals(result.sha256())) {
+            // Never resume from bytes that produced a bad file
+            part.delete();
+            throw new IOException("Checksum mismatch for " + name + ": expected sha256 " + expectedSha256 + ", got " + result.sha256());
+        }
+        System.out.println("SHA-256 " + result.sha256() + (expectedSha256 != null ? " matches published digest" : " (no published digest)"));
+        return new Prepared(part.file(), result.sha256(), part);
+    }
+
+    /** Atomically replaces {@code target} with {@code source}, recorded as a flight recorder event. */
+    private static void moveIntoPlace(Path source, Path target, String version) throws IOException {
+        var event = new LauncherEvents.FileMoveEvent();
+        event.begin();
+        event.source = source.toString();
+        event.target = target.toString();
+        event.version = version;
+        try {
+            event.bytes = Files.size(source);
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * A jar ready to be moved into place, with its SHA-256. {@code part} is set when it came from
+     * a download, whose sidecar is removed by {@link #cleanup()} once the jar has been moved.
+     */
+    private record Prepared(Path file, String sha256, PartialDownload part) {
+        void cleanup() {
+            if (part != null) part.delete();
+        }
+    }
+
+    /** Hashes the installed game.jar once when installed.properties predates recorded hashes. */
+    void ensureLocalSha256() {
+        if (game.localSha256 != null || !Files.isRegularFile(GAME_JAR)) return;
+        try (var in = new DigestInputStream(Files.newInputStream(GAME_JAR), MessageDigest.getInstance("SHA-256"))) {
+            in.transferTo(OutputStream.nullOutputStream());
+            game.localSha256 = HexFormat.of().formatHex(in.getMessageDigest().digest());
+            saveLocalGameVersion(game.localVersion, game.localSha256);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            System.out.println("Could not hash installed game.jar: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the new game jar from the installed one plus only the changed entries. With a
+     * published digest the rebuilt jar has to match it byte for byte, so the hash it records is
+     * the release's. Returns the rebuilt jar, or null when the caller should fall back to a full download.
+     */
+    private Prepared tryDeltaUpdate(String url, String expectedSha256, Listener listener) throws InterruptedException {
+        // Deltas need HTTP range requests; local mirrors are fast enough to copy whole
+        if (!DELTA_UPDATES || !url.startsWith("http") || !Files.isRegularFile(GAME_JAR)) return null;
+        Path out = DOWNLOADS_DIR.resolve("game.jar.delta");
+        try {
+            Files.createDirectories(DOWNLOADS_DIR);
+            long start = System.nanoTime();
+            JarDelta.Result result;
+            try {
+                result = jarDelta.update(url, GAME_JAR, out, expectedSha256, listener);
+            } finally {
+                listener.finished();
+            }
+            if (result == null) return null;
+            System.out.println("Delta update: " + result.changed() + " of " + result.entries() + " entries fetched, "
+                + result.fromStore() + " from store, fetched "
+                + result.bytesFetched() + " of " + result.totalSize() + " bytes in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return new Prepared(out, result.sha256(), null);
+        } catch (IOException e) {
+            System.out.println("Delta update failed, falling back to full download: " + e.getMessage());
+            try {
+                Files.deleteIfExists(out);
+            } catch (IOException ignored) {
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Rebuilds a game version that is already in the blob store (e.g. a rollback) without any download.
+     * Returns the rebuilt jar, or null when the version is not stored or cannot be materialized.
+     */
+    private Prepared tryStoredVersion(String version, String expectedSha256, Listener listener) {
+        String name = "game-" + version;
+        if (version == null || !blobStore.has(name)) return null;
+        if (expectedSha256 != null && !expectedSha256.equals(blobStore.digest(name))) {
+            // E.g. the tag was republished with other content since this copy was stored
+            System.out.println("Stored " + name + " does not match the published digest, downloading instead");
+            return null;
+        }
+        Path out = DOWNLOADS_DIR.resolve("game.jar.store");
+        try {
+            Files.createDirectories(DOWNLOADS_DIR);
+            listener.status("Restoring game " + version + " from local store…");
+            long start = System.nanoTime();
+            String sha256 = blobStore.materialize(name, out);
+            System.out.println("Restored " + name + " from store in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            // Every entry's CRC checked out against a directory taken from a jar with the published
+            // digest; the rebuilt headers may differ from the asset's, so record the release's digest
+            return new Prepared(out, expectedSha256 != null ? expectedSha256 : sha256, null);
+        } catch (IOException e) {
+            System.out.println("Store restore failed, downloading instead: " + e.getMessage());
+            try {
+                Files.deleteIfExists(out);
+            } catch (IOException ignored) {
+            }
+            return null;
+        }
+    }
+
+    /** Adds an installed jar to the blob store and prunes old versions; failures only cost future reuse. */
+    private void storeVersion(Path jar, String prefix, String version) {
+        if (version == null || blobStore.has(prefix + version)) return;
+        try {
+            int added = blobStore.ingest(jar, prefix + version);
+            blobStore.prune(prefix, STORE_KEEP_VERSIONS);
+            System.out.println("Stored " + prefix + version + " (" + added + " new entries)");
+        } catch (IOException e) {
+            System.out.println("Failed to add " + prefix + version + " to store: " + e.getMessage());
+        }
+    }
+
+    // ------------------------ Background prefetch ------------------------
+
+    /**
+     * Downloads the latest game into the staging area ({@code DOWNLOADS_DIR/game.jar.part}) on a single
+     * connection, so a later install only has to verify and swap the jar. Progress is checkpointed like
+     * any download, so a prefetch that is interrupted resumes next time. Returns true when the latest
+     * game is staged; false right away when an install owns the staging area, or when the download
+     * failed verification and was discarded.
+     */
+    boolean prefetch() throws IOException, InterruptedException {
+        String url = game.latestJarUrl, version = game.latestVersion, sha256 = game.latestJarSha256;
+        long size = game.latestJarSize;
+        if (url == null) return false;
+        if (!staging.tryLock()) return false; // an update already owns the staging area
+        try {
+            if (isStaged(url, size)) {
+                System.out.println("Game " + version + " is already staged");
+                return true;
+            }
+            Files.createDirectories(DOWNLOADS_DIR);
+            PartialDownload part = new PartialDownload(DOWNLOADS_DIR.resolve("game.jar.part"));
+            System.out.println("Prefetching game " + version + " in the background"
+                + (part.resumableFrom(url, size) > 0 ? ", resuming at " + part.received() : "")
+                + (BACKGROUND_LIMIT != null ? ", capped at " + BACKGROUND_LIMIT.bytesPerSecond() / 1024 + " KB/s" : ""));
+            long start = System.nanoTime();
+            var result = prefetcher.download(url, part, size, SILENT);
+            if (sha256 != null && !sha256.equals(result.sha256())) {
+                part.delete();
+                System.out.println("Prefetched game " + version + " failed verification, discarded");
+                return false;
+            }
+            System.out.println("Prefetched game " + version + " (" + result.bytes() + " bytes) in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return true;
+        } finally {
+            staging.unlock();
+        }
+    }
+
+    /** True when the staging area holds the complete asset at {@code url}. */
+    static boolean isStaged(String url, long size) {
+        if (size <= 0) return false;
+        return new PartialDownload(DOWNLOADS_DIR.resolve("game.jar.part")).resumableFrom(url, size) == size;
+    }
+
+    // ------------------------ Local versions ------------------------
+
+    void loadLocalVersion() {
+        if (Files.exists(INSTALLED_PROPS)) {
+            try (var in = Files.newInputStream(INSTALLED_PROPS)) {
+                var p = new Properties();
+                p.load(in);
+                game.localVersion = p.getProperty("version", game.localVersion);
+                game.localSha256 = p.getProperty("sha256");
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    void saveLocalGameVersion(String version, String sha256) {
+        var event = new LauncherEvents.PropertiesWriteEvent();
+        event.begin();
+        event.path = INSTALLED_PROPS.toString();
+        event.version = version;
+        try (var out = Files.newOutputStream(INSTALLED_PROPS)) {
+            var p = new Properties();
+            p.setProperty("version", version);
+            p.setProperty("path", GAME_JAR.toString());
+            if (sha256 != null) p.setProperty("sha256", sha256);
+            p.store(out, "TLOB installed version");
+        } catch (IOException ignored) {
+        } finally {
+            event.commit();
+        }
+    }
+
+    void loadLauncherLocalVersion() {
+        // First try to get version from properties file (stored during previous updates)
+        if (Files.exists(LAUNCHER_PROPS)) {
+            try (var in = Files.newInputStream(LAUNCHER_PROPS)) {
+                var p = new Properties();
+                p.load(in);
+                String storedVersion = p.getProperty("version");
+                if (storedVersion != null && !storedVersion.isBlank()) {
+                    // Clean the stored version - remove 'v' prefix if present
+                    launcher.localVersion = storedVersion.startsWith("v") ? storedVersion.substring(1) : storedVersion.trim();
+                    return;
+                }
+            } catch (IOException ignored) {
+            }
+        }
+
+        // Fallback: try to get version from package implementation
+        String v = getClass().getPackage() != null ? getClass().getPackage().getImplementationVersion() : null;
+        if (v != null && !v.isBlank()) {
+            launcher.localVersion = v.startsWith("v") ? v.substring(1) : v.trim();
+        } else {
+            // If no version info available, check if we're running from a JAR file
+            Path selfJar = getSelfJarPath();
+            if (selfJar != null && Files.exists(selfJar)) {
+                // Try to extract version from JAR filename
+                String fileName = selfJar.getFileName().toString();
+                if (fileName.matches(".*v?\\d+\\.\\d+\\.\\d+.*")) {
+                    // Extract version from filename, remove 'v' prefix
+                    Matcher matcher = Pattern.compile("v?(\\d+\\.\\d+\\.\\d+)").matcher(fileName);
+                    if (matcher.find()) {
+                        launcher.localVersion = matcher.group(1);
+                    }
+                } else {
+                    launcher.localVersion = "1.0.0";
+                }
+            } else {
+                launcher.localVersion = "1.0.0";
+            }
+        }
+
+        // If we still don't have a proper version, try to set it based on the current launcher
+        if (launcher.localVersion.equals("0.0.0") || launcher.localVersion.equals("1.0.0")) {
+            // Try to get version from MANIFEST.MF or set a reasonable default
+            launcher.localVersion = getCurrentLauncherVersion();
+        }
+
+        // Always allow updates unless we have a very specific reason not to
+        if (isRunningFromIDE() && launcher.localVersion.equals("0.0.0")) {
+            System.out.println("Running from IDE/class files with no version info - setting default version");
+            launcher.localVersion = "0.0.1"; // Set to a low version to allow updates
+        } else if (isRunningFromIDE()) {
+            System.out.println("Running from IDE/class files but version detected: " + launcher.localVersion);
+        }
+
+        System.out.println("Final launcher local version: " + launcher.localVersion);
+    }
+
+    private boolean isRunningFromIDE() {
+        // Check if we're running from compiled class files instead of a JAR
+        Path selfJar = getSelfJarPath();
+        if (selfJar == null) {
+            // No JAR file found, likely running from IDE
+            return true;
+        }
+
+        // Check if the path contains common IDE build directories
+        String path = selfJar.toString().toLowerCase();
+        boolean isDevPath = path.contains("target") || path.contains("build") || path.contains("out") ||
+                           path.contains("bin") || path.contains("classes") || path.endsWith(".class");
+
+        // Only consider it IDE if we also can't get version from MANIFEST or other sources
+        if (isDevPath) {
+            System.out.println("Detected development path: " + path);
+        }
+
+        return isDevPath;
+    }
+
+    private String getCurrentLauncherVersion() {
+        try {
+            // Try to read from MANIFEST.MF
+            var url = LauncherCore.class.getResource("/META-INF/MANIFEST.MF");
+            if (url != null) {
+                try (var in = url.openStream()) {
+                    var props = new Properties();
+                    props.load(in);
+                    String version = props.getProperty("Implementation-Version");
+                    if (version != null && !version.isBlank()) {
+                        // Clean the version - remove 'v' prefix if present
+                        return version.startsWith("v") ? version.substring(1) : version.trim();
+                    }
+                }
+            }
+        } catch (Exception ignored) {
+        }
+
+        // If all else fails, use a reasonable default
+        return "1.0.0";
+    }
+
+    /** Records {@code version} (without a 'v' prefix) as the installed launcher and returns it. */
+    String saveLauncherVersion(String version) {
+        System.out.println("saveLauncherVersion called with version: '" + version + "'");
+
+        // Ensure we always save clean versions (without 'v' prefix)
+        String cleanVersion = version.startsWith("v") ? version.substring(1) : version;
+
+        var event = new LauncherEvents.PropertiesWriteEvent();
+        event.begin();
+        event.path = LAUNCHER_PROPS.toString();
+        event.version = cleanVersion;
+        try (var out = Files.newOutputStream(LAUNCHER_PROPS)) {
+            var p = new Properties();
+            p.setProperty("version", cleanVersion);
+            p.setProperty("path", LAUNCHER_JAR.toString());
+            p.store(out, "TLOB Launcher installed version");
+            System.out.println("Saved clean version '" + cleanVersion + "' to properties file");
+        } catch (IOException ignored) {
+            System.out.println("Failed to save version to properties file");
+        } finally {
+            event.commit();
+        }
+        return cleanVersion;
+    }
+
+    // ------------------------ Launch ------------------------
+
+    /**
+     * Picks the game's JVM options for this machine.
+     * Falls back to the JVM defaults (no options) if the rules cannot be read.
+     */
+    LaunchProfile.Choice resolveLaunchProfile() {
+        LaunchProfile.Hardware hw = LaunchProfile.detect();
+        LaunchProfile.Choice choice;
+        try {
+            choice = launchProfile.choose(hw);
+        } catch (IOException e) {
+            System.out.println("Launch profile: could not read " + LAUNCH_RULES + ": " + e.getMessage());
+            choice = new LaunchProfile.Choice("default", List.of(), hw, false);
+        }
+        System.out.println("Launch profile: " + choice);
+        launchChoice = choice;
+        return choice;
+    }
+
+    /** The last resolved launch profile, resolving it now if needed. */
+    LaunchProfile.Choice launchProfile() {
+        LaunchProfile.Choice choice = launchChoice;
+        return choice != null ? choice : resolveLaunchProfile();
+    }
+
+    /** Starts game.jar in a separate JVM with the launch profile's options and the CDS archive. */
+    Process launchGame() throws IOException {
+        if (!Files.exists(GAME_JAR)) throw new IOException("Game not installed yet.");
+        String java = findJava();
+        LaunchProfile.Choice profile = launchProfile();
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(profile.options());
+        if (CDS) command.addAll(cdsArchive.jvmOptions(java, GAME_JAR, game.localSha256, profile.options()));
+        command.add("-jar");
+        command.add(GAME_JAR.toString());
+        var event = new LauncherEvents.GameSpawnEvent();
+        event.begin();
+        event.version = game.localVersion;
+        event.profile = profile.name();
+        long start = System.nanoTime();
+        metrics.launches.increment();
+        try {
+            Process process = new ProcessBuilder(command).directory(HOME_DIR.toFile()).inheritIO().start();
+            event.pid = process.pid();
+            return process;
+        } catch (IOException | RuntimeException e) {
+            metrics.launchFailures.increment();
+            throw e;
+        } finally {
+            metrics.launchLatency.since(start);
+            event.commit();
+        }
+    }
+
+    // ------------------------ Diagnostics ------------------------
+
+    void testNetworkConnectivity() {
+        System.out.println("Testing network connectivity...");
+
+        // Test basic internet connectivity
+        try {
+            System.out.println("Testing basic internet connectivity...");
+            var testUrl = "https://www.google.com";
+            var testReq = HttpRequest.newBuilder(URI.create(testUrl))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+            var testResp = http.send(testReq, HttpResponse.BodyHandlers.discarding());
+            System.out.println("✓ Basic internet connectivity: OK (Status: " + testResp.statusCode() + ")");
+        } catch (Exception e) {
+            System.out.println("✗ Basic internet connectivity: FAILED - " + e.getMessage());
+        }
+
+        // Test GitHub API connectivity
+        try {
+            System.out.println("Testing GitHub API connectivity...");
+            var githubTestUrl = "https://api.github.com";
+            var githubReq = HttpRequest.newBuilder(URI.create(githubTestUrl))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+            var githubResp = http.send(githubReq, HttpResponse.BodyHandlers.discarding());
+            System.out.println("✓ GitHub API connectivity: OK (Status: " + githubResp.statusCode() + ")");
+        } catch (Exception e) {
+            System.out.println("✗ GitHub API connectivity: FAILED - " + e.getMessage());
+        }
+
+        // Test specific launcher API endpoint
+        try {
+            System.out.println("Testing launcher API endpoint...");
+            var launcherReq = HttpRequest.newBuilder(URI.create(API_LAUNCHER_LATEST))
+                .header("User-Agent", USER_AGENT)
+                .timeout(Duration.ofSeconds(15))
+                .GET()
+                .build();
+            var launcherResp = http.send(launcherReq, HttpResponse.BodyHandlers.ofString());
+            System.out.println("✓ Launcher API endpoint: OK (Status: " + launcherResp.statusCode() + ")");
+            System.out.println("Response length: " + launcherResp.body().length() + " characters");
+        } catch (Exception e) {
+            System.out.println("✗ Launcher API endpoint: FAILED - " + e.getMessage());
+        }
+
+        // Test DNS resolution
+        try {
+            System.out.println("Testing DNS resolution...");
+            var testUri = URI.create("https://api.github.com");
+            System.out.println("✓ DNS resolution: OK - " + testUri.getHost() + " resolved");
+        } catch (Exception e) {
+            System.out.println("✗ DNS resolution: FAILED - " + e.getMessage());
+        }
+    }
+
+    // ------------------------ Misc ------------------------
+
+    static String findJava() {
+        String home = System.getProperty("java.home");
+        Path bin = Path.of(home, "bin", (isWindows() ? "java.exe" : "java"));
+        return Files.exists(bin) ? bin.toString() : "java";
+    }
+
+    private static boolean isWindows() {
+        String os = System.getProperty("os.name", "").toLowerCase();
+        return os.contains("win");
+    }
+
+    private static Path getSelfJarPath() {
+        try {
+            var url = LauncherCore.class.getProtectionDomain().getCodeSource().getLocation();
+            if (url == null) return null;
+            Path p = Path.of(url.toURI());
+            return (Files.isRegularFile(p) && p.toString().toLowerCase().endsWith(".jar")) ? p : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // --- Tiny utils (kept inline to reduce file count) ---
+
+    static boolean isNewer(String remote, String local) {
+        // Handle null cases
+        if (remote == null || remote.isBlank()) return false;
+        if (local == null || local.isBlank()) return true;
+
+        // Remove 'v' prefix if present and clean versions
+        String r = remote.startsWith("v") ? remote.substring(1) : remote;
+        String l = local.startsWith("v") ? local.substring(1) : local;
+
+        // Handle special cases
+        if (l.equals("999.999.999")) return false; // IDE mode - no updates
+        if (r.equals("999.999.999")) return false; // Remote version is invalid
+
+        // Clean and parse version numbers
+        String[] a = r.trim().split("\\.");
+        String[] b = l.trim().split("\\.");
+        int n = Math.max(a.length, b.length);
+
+        for (int i = 0; i < n; i++) {
+            int ai = (i < a.length) ? parseInt(a[i]) : 0;
+            int bi = (i < b.length) ? parseInt(b[i]) : 0;
+            if (ai != bi) return ai > bi;
+        }
+        return false;
+    }
+
+    static int parseInt(String s) {
+        try {
+            return Integer.parseInt(s.replaceAll("[^0-9].*$", ""));
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+}
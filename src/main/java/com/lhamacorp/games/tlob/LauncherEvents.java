@@ -0,0 +1,155 @@
+package com.lhamacorp.games.tlob;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * JDK Flight Recorder events for the launcher's phases, listed under "TLOB Launcher" in JDK
+ * Mission Control. Every event has the same URL / bytes / status code / version fields
+ * (left empty where they do not apply), so phases line up in one table.
+ *
+ * Events cost next to nothing unless a recording is running. {@code -Dtlob.jfr=true} starts one
+ * at launch and writes it to {@code ~/.tlob/jfr/<role>-<time>.jfr} on exit;
+ * {@code -Dtlob.jfr=<file>} picks the file instead. An ordinary
+ * {@code -XX:StartFlightRecording} works as well.
+ */
+final class LauncherEvents {
+
+    static final Path JFR_DIR = LauncherCore.HOME_DIR.resolve("jfr");
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private LauncherEvents() {
+    }
+
+    @Category("TLOB Launcher")
+    @StackTrace(false)
+    abstract static class Phase extends Event {
+        @Label("URL")
+        String url;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes = -1;
+
+        @Label("Status Code")
+        int status;
+
+        @Label("Version")
+        String version;
+    }
+
+    @Name("com.lhamacorp.tlob.UpdateCheck")
+    @Label("Update Check")
+    @Description("Finding the latest release of the game or the launcher")
+    static final class UpdateCheckEvent extends Phase {
+        @Label("Track")
+        String track;
+
+        @Label("Source")
+        String source;
+
+        @Label("Background")
+        boolean background;
+    }
+
+    @Name("com.lhamacorp.tlob.HttpRequest")
+    @Label("HTTP Request")
+    @Description("One HEAD or GET request: release metadata, connection pre-warming, or a download range")
+    static final class HttpRequestEvent extends Phase {
+        @Label("Method")
+        String method;
+    }
+
+    @Name("com.lhamacorp.tlob.Download")
+    @Label("Download")
+    @Description("A complete jar download, all ranges and retries included")
+    static final class DownloadEvent extends Phase {
+        @Label("Connections")
+        int connections;
+
+        @Label("Resumed From")
+        @DataAmount
+        long resumedFrom;
+    }
+
+    @Name("com.lhamacorp.tlob.FileMove")
+    @Label("File Move")
+    @Description("Moving a downloaded or staged jar into place")
+    static final class FileMoveEvent extends Phase {
+        @Label("Source")
+        String source;
+
+        @Label("Target")
+        String target;
+    }
+
+    @Name("com.lhamacorp.tlob.PropertiesWrite")
+    @Label("Properties Write")
+    @Description("Persisting installed-version properties")
+    static final class PropertiesWriteEvent extends Phase {
+        @Label("Path")
+        String path;
+    }
+
+    @Name("com.lhamacorp.tlob.SelfReplace")
+    @Label("Self Replace")
+    @Description("Handing over to the SelfReplace helper, or the helper swapping the launcher jar")
+    static final class SelfReplaceEvent extends Phase {
+        @Label("Path")
+        String path;
+    }
+
+    @Name("com.lhamacorp.tlob.GameSpawn")
+    @Label("Game Spawn")
+    @Description("Starting the game, in a new JVM or in-process")
+    static final class GameSpawnEvent extends Phase {
+        @Label("Launch Profile")
+        String profile;
+
+        @Label("In Process")
+        boolean inProcess;
+
+        @Label("PID")
+        long pid;
+    }
+
+    /**
+     * Starts a recording of this process when {@code -Dtlob.jfr} asks for one; {@code role} names
+     * the default file. The recording is written when the JVM exits. Failures are only logged.
+     */
+    static Recording startRecording(String role) {
+        String spec = System.getProperty("tlob.jfr");
+        if (spec == null || spec.isBlank() || spec.equalsIgnoreCase("false")) return null;
+        Path file = spec.equalsIgnoreCase("true")
+            ? JFR_DIR.resolve(role + "-" + LocalDateTime.now().format(FILE_TIME) + ".jfr")
+            : Path.of(spec);
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("tlob-" + role);
+            recording.setToDisk(true);
+            recording.setDumpOnExit(true);
+            recording.setDestination(file);
+            recording.start();
+            System.out.println("Flight recording started, written to " + file + " on exit");
+            return recording;
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            System.out.println("Could not start flight recording: " + e);
+            return null;
+        }
+    }
+}
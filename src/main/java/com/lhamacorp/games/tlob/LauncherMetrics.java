@@ -0,0 +1,228 @@
+package com.lhamacorp.games.tlob;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the launcher's long-running work, readable live over JMX
+ * as {@code com.lhamacorp.tlob:type=LauncherMetrics} (jconsole, monitoring agents).
+ *
+ * Recording is cheap and contention-free: counters are {@link LongAdder}s and histograms count
+ * into power-of-two millisecond buckets, so percentiles are accurate to within a factor of two.
+ * Every metric is declared up front, which keeps the MBean's attribute list fixed: counters
+ * appear as one attribute each, histograms as {@code <name>.count}, {@code .meanMillis},
+ * {@code .p50Millis}, {@code .p95Millis}, {@code .p99Millis} and {@code .maxMillis}.
+ */
+final class LauncherMetrics implements DynamicMBean {
+
+    static final String OBJECT_NAME = "com.lhamacorp.tlob:type=LauncherMetrics";
+    // -Dtlob.jmx=false keeps the Swing launcher from registering the MBean
+    static final boolean JMX = !"false".equalsIgnoreCase(System.getProperty("tlob.jmx"));
+
+    /** A monotonically increasing count. */
+    static final class Counter {
+        private final LongAdder adder = new LongAdder();
+
+        void increment() {
+            adder.increment();
+        }
+
+        void add(long n) {
+            adder.add(n);
+        }
+
+        long get() {
+            return adder.sum();
+        }
+    }
+
+    /** Latencies in power-of-two millisecond buckets: bucket {@code i} holds {@code (2^(i-1), 2^i]} ms. */
+    static final class Histogram {
+        static final int BUCKETS = 32;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder total = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long millis) {
+            long ms = Math.max(0, millis);
+            counts.incrementAndGet(bucket(ms));
+            total.increment();
+            sum.add(ms);
+            max.accumulate(ms);
+        }
+
+        /** Records the time elapsed since {@code startNanos} (a {@link System#nanoTime()} value). */
+        void since(long startNanos) {
+            record((System.nanoTime() - startNanos) / 1_000_000);
+        }
+
+        long count() {
+            return total.sum();
+        }
+
+        double mean() {
+            long n = total.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        /** Upper bound of the bucket holding the {@code q} quantile, capped at the maximum seen; 0 when empty. */
+        long percentile(double q) {
+            long n = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) n += snapshot[i] = counts.get(i);
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) return Math.min(1L << i, max());
+            }
+            return max();
+        }
+
+        static int bucket(long millis) {
+            return millis <= 1 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis - 1));
+        }
+    }
+
+    // Declared before the metrics below so their initializers can fill them
+    private final Map<String, Counter> counters = new LinkedHashMap<>();
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+
+    // --- Metrics ---
+    final Counter checks = counter("checks");
+    final Counter checkFailures = counter("checks.failed");
+    // Checks answered from the cache because the API quota was exhausted or low
+    final Counter checksFromCache = counter("checks.fromCache");
+    final Histogram checkLatency = histogram("checks.latency");
+
+    final Counter downloads = counter("downloads");
+    final Counter downloadFailures = counter("downloads.failed");
+    final Counter downloadBytes = counter("downloads.bytes");
+    final Histogram downloadLatency = histogram("downloads.latency");
+
+    final Counter launches = counter("launches");
+    final Counter launchFailures = counter("launches.failed");
+    final Histogram launchLatency = histogram("launches.latency");
+
+    final Counter selfUpdates = counter("selfUpdates");
+    final Counter selfUpdateFailures = counter("selfUpdates.failed");
+    final Histogram selfUpdateLatency = histogram("selfUpdates.latency");
+
+    private Counter counter(String name) {
+        Counter c = new Counter();
+        counters.put(name, c);
+        return c;
+    }
+
+    private Histogram histogram(String name) {
+        Histogram h = new Histogram();
+        histograms.put(name, h);
+        return h;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, replacing an earlier registration.
+     * Returns false (after logging why) when JMX is unavailable.
+     */
+    boolean register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(this, name);
+            return true;
+        } catch (JMException | RuntimeException e) {
+            System.out.println("Could not register launcher metrics over JMX: " + e);
+            return false;
+        }
+    }
+
+    /** Every attribute and its current value, in declaration order. */
+    Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        counters.forEach((name, c) -> values.put(name, c.get()));
+        histograms.forEach((name, h) -> {
+            values.put(name + ".count", h.count());
+            values.put(name + ".meanMillis", h.mean());
+            values.put(name + ".p50Millis", h.percentile(0.50));
+            values.put(name + ".p95Millis", h.percentile(0.95));
+            values.put(name + ".p99Millis", h.percentile(0.99));
+            values.put(name + ".maxMillis", h.max());
+        });
+        return values;
+    }
+
+    // ------------------------ DynamicMBean ------------------------
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Object value = snapshot().get(attribute);
+        if (value == null) throw new AttributeNotFoundException(attribute);
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Object> values = snapshot();
+        AttributeList list = new AttributeList();
+        for (String a : attributes) {
+            Object value = values.get(a);
+            if (value != null) list.add(new Attribute(a, value));
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Launcher metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException("No operations: " + actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        snapshot().forEach((name, value) -> attributes.add(new MBeanAttributeInfo(name, value.getClass().getName(),
+            describe(name), true, false, false)));
+        return new MBeanInfo(getClass().getName(), "TLOB launcher counters and latency histograms",
+            attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+    }
+
+    private static String describe(String attribute) {
+        if (attribute.endsWith("Millis")) return "Latency in milliseconds (bucketed, within 2x)";
+        if (attribute.endsWith(".count")) return "Number of timed operations";
+        if (attribute.endsWith(".bytes")) return "Bytes transferred";
+        return "Count since launcher start";
+    }
+}
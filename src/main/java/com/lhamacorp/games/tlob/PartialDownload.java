@@ -0,0 +1,125 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * A download in progress, kept at a fixed path with a small sidecar properties file
+ * (URL, ETag, expected size, bytes received) so it can be resumed after a network drop
+ * or a launcher restart.
+ *
+ * {@code received} is always a contiguous prefix of the file that is known to be complete.
+ */
+final class PartialDownload {
+
+    private final Path file;
+    private final Path sidecar;
+    private String url;
+    private String etag;
+    private long expectedSize = -1;
+    private long received;
+
+    PartialDownload(Path file) {
+        this.file = file;
+        this.sidecar = file.resolveSibling(file.getFileName() + ".properties");
+        load();
+    }
+
+    Path file() {
+        return file;
+    }
+
+    synchronized String etag() {
+        return etag;
+    }
+
+    synchronized long received() {
+        return received;
+    }
+
+    synchronized long expectedSize() {
+        return expectedSize;
+    }
+
+    /**
+     * Returns how many bytes can be resumed for this URL, or 0 when the partial download
+     * belongs to a different asset, cannot be validated with If-Range, or is missing on disk.
+     */
+    synchronized long resumableFrom(String url, long expectedSize) {
+        if (!url.equals(this.url) || etag == null || received <= 0) return 0;
+        if (expectedSize > 0 && this.expectedSize > 0 && expectedSize != this.expectedSize) return 0;
+        try {
+            if (!Files.exists(file) || Files.size(file) < received) return 0;
+        } catch (IOException e) {
+            return 0;
+        }
+        return received;
+    }
+
+    /** Records what is being downloaded, starting from {@code received} bytes already on disk. */
+    synchronized void begin(String url, String etag, long expectedSize, long received) {
+        this.url = url;
+        this.etag = etag;
+        this.expectedSize = expectedSize;
+        this.received = received;
+        save();
+    }
+
+    /** Advances the completed prefix; ignored if it does not move forward. */
+    synchronized void checkpoint(long received) {
+        if (received <= this.received) return;
+        this.received = received;
+        save();
+    }
+
+    /** Removes the sidecar (and the file, if it was not moved into place). */
+    synchronized void delete() {
+        try {
+            Files.deleteIfExists(sidecar);
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+        url = null;
+        etag = null;
+        received = 0;
+    }
+
+    private void load() {
+        if (!Files.exists(sidecar)) return;
+        try (var in = Files.newInputStream(sidecar)) {
+            var p = new Properties();
+            p.load(in);
+            url = p.getProperty("url");
+            etag = p.getProperty("etag");
+            expectedSize = parseLong(p.getProperty("expectedSize"), -1);
+            received = parseLong(p.getProperty("received"), 0);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void save() {
+        try {
+            var p = new Properties();
+            if (url != null) p.setProperty("url", url);
+            if (etag != null) p.setProperty("etag", etag);
+            p.setProperty("expectedSize", Long.toString(expectedSize));
+            p.setProperty("received", Long.toString(received));
+            var buf = new ByteArrayOutputStream();
+            p.store(buf, "TLOB partial download");
+            AtomicFiles.write(sidecar, buf.toByteArray());
+        } catch (IOException e) {
+            System.out.println("Failed to record download progress: " + e.getMessage());
+        }
+    }
+
+    private static long parseLong(String s, long fallback) {
+        try {
+            return s == null ? fallback : Long.parseLong(s.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.lhamacorp.games.tlob;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free byte counter for downloads, read by the UI at a fixed frame rate.
+ *
+ * Download threads only call {@link #add}; the UI calls {@link #sample} on its own schedule, so the
+ * number of UI updates stays constant however fast bytes arrive. Each sample folds the rate since
+ * the previous one into an exponentially weighted moving average, which drives the ETA.
+ */
+final class ProgressMeter {
+
+    /** A point-in-time view; {@code total} is -1 and {@code etaSeconds} -1 when unknown. */
+    record Snapshot(long done, long total, double bytesPerSecond, long etaSeconds) {
+
+        int percent() {
+            if (total <= 0) return 0;
+            return (int) Math.max(0, Math.min(100, done * 100 / total));
+        }
+    }
+
+    // Time constant of the rate average: long enough to smooth out per-chunk bursts
+    static final double SMOOTHING_SECONDS = 3.0;
+
+    private final LongAdder done = new LongAdder();
+    private volatile long total = -1;
+    private long lastDone;
+    private long lastNanos;
+    private double rate;
+    private boolean primed;
+
+    /** Starts a new transfer of {@code total} bytes, {@code already} of which are on disk. */
+    synchronized void start(long total, long already) {
+        this.total = total;
+        done.reset();
+        done.add(already);
+        lastDone = already;
+        lastNanos = 0;
+        rate = 0;
+        primed = false;
+    }
+
+    /** Called from download threads for every write; never blocks. */
+    void add(long bytes) {
+        done.add(bytes);
+    }
+
+    long done() {
+        return done.sum();
+    }
+
+    /** Folds the bytes since the last sample into the smoothed rate; called from a single (UI) thread. */
+    synchronized Snapshot sample(long nowNanos) {
+        long d = done.sum();
+        if (lastNanos == 0) {
+            lastNanos = nowNanos;
+            lastDone = d;
+        } else if (nowNanos > lastNanos) {
+            double dt = (nowNanos - lastNanos) / 1e9;
+            double instant = (d - lastDone) / dt;
+            if (!primed) {
+                rate = instant;
+                primed = true;
+            } else {
+                double alpha = 1 - Math.exp(-dt / SMOOTHING_SECONDS);
+                rate += alpha * (instant - rate);
+            }
+            lastNanos = nowNanos;
+            lastDone = d;
+        }
+        long t = total;
+        long eta = t > 0 && rate > 1 ? (long) Math.ceil(Math.max(0, t - d) / rate) : -1;
+        return new Snapshot(d, t, rate, eta);
+    }
+
+    /** Text for the progress bar, e.g. {@code 42% · 3.1 MB/s · 0:12 left}. */
+    static String format(Snapshot s) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(s.total() > 0 ? s.percent() + "%" : formatBytes(s.done()));
+        if (s.bytesPerSecond() > 0) sb.append(" · ").append(formatBytes((long) s.bytesPerSecond())).append("/s");
+        if (s.etaSeconds() >= 0 && s.done() < s.total()) sb.append(" · ").append(formatDuration(s.etaSeconds())).append(" left");
+        return sb.toString();
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.0f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    static String formatDuration(long seconds) {
+        if (seconds >= 3600) return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+}
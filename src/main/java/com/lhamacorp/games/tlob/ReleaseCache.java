@@ -0,0 +1,88 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * On-disk cache for GitHub release metadata.
+ *
+ * Each cached URL keeps its response body plus the {@code ETag} / {@code Last-Modified}
+ * validators, so the next request can be sent conditionally and a 304 answered from disk.
+ */
+final class ReleaseCache {
+
+    /** A cached response: body plus the validators GitHub sent with it. */
+    record Entry(String body, String etag, String lastModified, long fetchedAt) {
+    }
+
+    private final Path dir;
+
+    ReleaseCache(Path dir) {
+        this.dir = dir;
+    }
+
+    /** Returns the cached entry for the URL, or null when nothing usable is on disk. */
+    Entry load(String url) {
+        Path meta = metaFile(url);
+        Path body = bodyFile(url);
+        if (!Files.exists(meta) || !Files.exists(body)) return null;
+        try (var in = Files.newInputStream(meta)) {
+            var p = new Properties();
+            p.load(in);
+            // Guard against key collisions after sanitizing the URL
+            if (!url.equals(p.getProperty("url"))) return null;
+            return new Entry(
+                Files.readString(body, StandardCharsets.UTF_8),
+                p.getProperty("etag"),
+                p.getProperty("lastModified"),
+                parseLong(p.getProperty("fetchedAt")));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Stores a fresh 200 response; body and metadata are each replaced atomically. False if writing failed. */
+    boolean store(String url, String body, String etag, String lastModified) {
+        try {
+            AtomicFiles.write(bodyFile(url), body.getBytes(StandardCharsets.UTF_8));
+
+            var p = new Properties();
+            p.setProperty("url", url);
+            if (etag != null) p.setProperty("etag", etag);
+            if (lastModified != null) p.setProperty("lastModified", lastModified);
+            p.setProperty("fetchedAt", Long.toString(System.currentTimeMillis()));
+            var buf = new ByteArrayOutputStream();
+            p.store(buf, "TLOB release metadata cache");
+            AtomicFiles.write(metaFile(url), buf.toByteArray());
+            return true;
+        } catch (IOException e) {
+            System.out.println("Failed to cache response for " + url + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private Path metaFile(String url) {
+        return dir.resolve(key(url) + ".properties");
+    }
+
+    private Path bodyFile(String url) {
+        return dir.resolve(key(url) + ".json");
+    }
+
+    static String key(String url) {
+        String k = url.replaceFirst("^https?://", "").replaceAll("[^A-Za-z0-9.-]+", "_");
+        return k.length() > 120 ? k.substring(k.length() - 120) : k;
+    }
+
+    private static long parseLong(String s) {
+        try {
+            return s == null ? 0 : Long.parseLong(s.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
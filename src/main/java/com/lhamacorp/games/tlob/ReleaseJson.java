@@ -0,0 +1,308 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming extractor for the few fields the launcher needs from a GitHub release JSON.
+ *
+ * Reads straight from the response stream and stops as soon as {@code tag_name} and the first
+ * {@code .jar} asset are known, so the (often large) release notes are never read or buffered.
+ */
+final class ReleaseJson {
+
+    /** A downloadable release asset. {@code size} is -1 and {@code digest} null when not published. */
+    record Asset(String name, String url, long size, String digest) {
+
+        /** The SHA-256 from a {@code sha256:<hex>} digest in lowercase hex, or null for any other algorithm. */
+        String sha256() {
+            if (digest == null || !digest.regionMatches(true, 0, "sha256:", 0, 7)) return null;
+            String hex = digest.substring(7).trim().toLowerCase();
+            return hex.matches("[0-9a-f]{64}") ? hex : null;
+        }
+    }
+
+    /** The parts of a release the launcher uses; {@code jar} is the first {@code .jar} asset or null. */
+    record Release(String tag, Asset jar) {
+
+        String jarUrl() {
+            return jar != null ? jar.url() : null;
+        }
+
+        long jarSize() {
+            return jar != null ? jar.size() : -1;
+        }
+
+        String jarDigest() {
+            return jar != null ? jar.digest() : null;
+        }
+
+        String jarSha256() {
+            return jar != null ? jar.sha256() : null;
+        }
+
+        /** Compact JSON with just the extracted fields, readable again by {@link #parse}. */
+        String toJson() {
+            StringBuilder sb = new StringBuilder("{");
+            if (tag != null) sb.append("\"tag_name\":").append(quote(tag));
+            if (jar != null) {
+                if (tag != null) sb.append(',');
+                sb.append("\"assets\":[{");
+                sb.append("\"name\":").append(quote(jar.name()));
+                sb.append(",\"browser_download_url\":").append(quote(jar.url()));
+                sb.append(",\"size\":").append(jar.size());
+                sb.append(",\"digest\":").append(quote(jar.digest()));
+                sb.append("}]");
+            }
+            return sb.append('}').toString();
+        }
+    }
+
+    private final Reader in;
+    private int peeked = -2;
+
+    private ReleaseJson(Reader in) {
+        this.in = in;
+    }
+
+    /** Parses a release from the stream; the caller owns (and should close) the stream. */
+    static Release parse(InputStream stream) throws IOException {
+        return new ReleaseJson(new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 8192))
+            .readRelease();
+    }
+
+    static Release parse(String json) throws IOException {
+        return new ReleaseJson(new StringReader(json)).readRelease();
+    }
+
+    // ------------------------ Grammar (only what a release object needs) ------------------------
+
+    private Release readRelease() throws IOException {
+        String tag = null;
+        Asset jar = null;
+        if (peek() == -1) return new Release(null, null);
+        expect('{');
+        if (consumeIf('}')) return new Release(null, null);
+        do {
+            String key = readString();
+            expect(':');
+            switch (key) {
+                case "tag_name" -> tag = readStringOrNull();
+                case "assets" -> jar = readAssets();
+                default -> skipValue();
+            }
+            // Early exit: everything after this point (release notes etc.) is irrelevant
+            if (tag != null && jar != null) return new Release(tag, jar);
+        } while (consumeIf(','));
+        expect('}');
+        return new Release(tag, jar);
+    }
+
+    /** Reads the assets array and returns the first {@code .jar} asset. */
+    private Asset readAssets() throws IOException {
+        if (peek() != '[') {
+            skipValue();
+            return null;
+        }
+        expect('[');
+        Asset jar = null;
+        if (consumeIf(']')) return null;
+        do {
+            if (jar != null) {
+                skipValue();
+                continue;
+            }
+            Asset a = readAsset();
+            if (a != null && a.url() != null && a.url().toLowerCase().endsWith(".jar")) jar = a;
+        } while (consumeIf(','));
+        expect(']');
+        return jar;
+    }
+
+    private Asset readAsset() throws IOException {
+        if (peek() != '{') {
+            skipValue();
+            return null;
+        }
+        expect('{');
+        String name = null, url = null, digest = null;
+        long size = -1;
+        if (!consumeIf('}')) {
+            do {
+                String key = readString();
+                expect(':');
+                switch (key) {
+                    case "name" -> name = readStringOrNull();
+                    case "browser_download_url" -> url = readStringOrNull();
+                    case "digest" -> digest = readStringOrNull();
+                    case "size" -> size = readLong();
+                    default -> skipValue();
+                }
+            } while (consumeIf(','));
+            expect('}');
+        }
+        return new Asset(name, url, size, digest);
+    }
+
+    private String readStringOrNull() throws IOException {
+        if (peek() == '"') return readString();
+        skipValue();
+        return null;
+    }
+
+    private long readLong() throws IOException {
+        String token = readScalar();
+        try {
+            return Long.parseLong(token);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Skips any value, including nested objects and arrays, without materializing it. */
+    private void skipValue() throws IOException {
+        int c = peek();
+        if (c == '"') {
+            skipString();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                c = peek();
+                if (c == '"') {
+                    skipString();
+                    continue;
+                }
+                c = next();
+                if (c == -1) throw new EOFException("Unterminated JSON value");
+                if (c == '{' || c == '[') depth++;
+                else if (c == '}' || c == ']') depth--;
+            } while (depth > 0);
+        } else {
+            readScalar();
+        }
+    }
+
+    private String readScalar() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c = peek();
+        while (c != -1 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+            sb.append((char) read());
+            c = peekRaw();
+        }
+        if (sb.isEmpty()) throw new IOException("Unexpected character in JSON: " + describe(c));
+        return sb.toString();
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = read();
+            if (c == -1) throw new EOFException("Unterminated JSON string");
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append((char) c);
+                continue;
+            }
+            int e = read();
+            switch (e) {
+                case '"', '\\', '/' -> sb.append((char) e);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    int cp = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int h = Character.digit(read(), 16);
+                        if (h < 0) throw new IOException("Bad \\u escape in JSON string");
+                        cp = (cp << 4) | h;
+                    }
+                    sb.append((char) cp);
+                }
+                default -> throw new IOException("Bad escape in JSON string: " + describe(e));
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        expect('"');
+        while (true) {
+            int c = read();
+            if (c == -1) throw new EOFException("Unterminated JSON string");
+            if (c == '"') return;
+            if (c == '\\') read();
+        }
+    }
+
+    // ------------------------ Low-level reading ------------------------
+
+    private void expect(char expected) throws IOException {
+        int c = next();
+        if (c != expected) throw new IOException("Expected '" + expected + "' in JSON but found " + describe(c));
+    }
+
+    private boolean consumeIf(char expected) throws IOException {
+        if (peek() != expected) return false;
+        read();
+        return true;
+    }
+
+    /** Next non-whitespace character, consumed. */
+    private int next() throws IOException {
+        peek();
+        return read();
+    }
+
+    /** Next non-whitespace character, not consumed. */
+    private int peek() throws IOException {
+        int c = peekRaw();
+        while (c != -1 && Character.isWhitespace(c)) {
+            read();
+            c = peekRaw();
+        }
+        return c;
+    }
+
+    private int peekRaw() throws IOException {
+        if (peeked == -2) peeked = in.read();
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int c = peekRaw();
+        peeked = -2;
+        return c;
+    }
+
+    private static String describe(int c) {
+        return c == -1 ? "end of input" : "'" + (char) c + "'";
+    }
+
+    static String quote(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,250 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Somewhere the launcher learns about the latest game and launcher releases.
+ *
+ * Sources are configured with {@code -Dtlob.sources}, a comma-separated list of {@code github},
+ * {@code http(s)://} mirror base URLs and {@code file://} directories (default: {@code github}).
+ * A mirror or directory publishes a static index per track, {@code game.json} and
+ * {@code launcher.json}, in the shape of a GitHub release ({@code tag_name} plus an
+ * {@code assets} array); jar URLs may be relative to the index. When several sources are
+ * configured they are {@link #race raced}: the first valid answer opens a short window for the
+ * others, and the newest version among the answers in by then wins, so a fast but stale local
+ * mirror does not hide a newer release elsewhere.
+ */
+interface ReleaseSource {
+
+    /** Fetches and parses the release JSON at an HTTP URL; the core supplies one with conditional requests and caching. */
+    @FunctionalInterface
+    interface Fetcher {
+        ReleaseJson.Release fetch(String url) throws IOException, InterruptedException;
+    }
+
+    /** The winning answer of a race: which source, what it returned, and how long it took. */
+    record Answer(ReleaseSource source, ReleaseJson.Release release, long millis) {
+    }
+
+    // How long a race waits for other sources after the first valid answer
+    Duration RACE_SETTLE = Duration.ofSeconds(1);
+
+    /** Short name for logs. */
+    String name();
+
+    /** URL of {@code track}'s release metadata at this source, also the release cache key. */
+    String indexUrl(String track);
+
+    /** The latest release of {@code track} ({@code game} or {@code launcher}). */
+    ReleaseJson.Release latest(String track) throws IOException, InterruptedException;
+
+    // ------------------------ Implementations ------------------------
+
+    /** The GitHub releases API, one repository per track. */
+    final class GitHub implements ReleaseSource {
+        private final Map<String, String> apis;
+        private final Fetcher fetcher;
+
+        GitHub(Map<String, String> apis, Fetcher fetcher) {
+            this.apis = apis;
+            this.fetcher = fetcher;
+        }
+
+        @Override
+        public String name() {
+            return "github";
+        }
+
+        @Override
+        public String indexUrl(String track) {
+            String api = apis.get(track);
+            if (api == null) throw new IllegalArgumentException("Unknown track: " + track);
+            return api;
+        }
+
+        @Override
+        public ReleaseJson.Release latest(String track) throws IOException, InterruptedException {
+            return fetcher.fetch(indexUrl(track));
+        }
+    }
+
+    /** A plain HTTP server serving {@code <base>/<track>.json} and the jars. */
+    final class Mirror implements ReleaseSource {
+        private final URI base;
+        private final Fetcher fetcher;
+
+        Mirror(URI base, Fetcher fetcher) {
+            this.base = withTrailingSlash(base);
+            this.fetcher = fetcher;
+        }
+
+        @Override
+        public String name() {
+            return base.getHost();
+        }
+
+        @Override
+        public String indexUrl(String track) {
+            return base.resolve(track + ".json").toString();
+        }
+
+        @Override
+        public ReleaseJson.Release latest(String track) throws IOException, InterruptedException {
+            String index = indexUrl(track);
+            return resolve(fetcher.fetch(index), index);
+        }
+    }
+
+    /** A local or network-mounted directory holding {@code <track>.json} and the jars. */
+    final class Directory implements ReleaseSource {
+        private final Path dir;
+
+        Directory(Path dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        public String name() {
+            return dir.toString();
+        }
+
+        @Override
+        public String indexUrl(String track) {
+            return dir.resolve(track + ".json").toUri().toString();
+        }
+
+        @Override
+        public ReleaseJson.Release latest(String track) throws IOException {
+            Path index = dir.resolve(track + ".json");
+            try (InputStream in = Files.newInputStream(index)) {
+                return resolve(ReleaseJson.parse(in), index.toUri().toString());
+            } catch (NoSuchFileException e) {
+                throw new IOException("No release index at " + index);
+            }
+        }
+    }
+
+    // ------------------------ Configuration ------------------------
+
+    /**
+     * Parses a {@code -Dtlob.sources} value. Unknown entries are logged and skipped; an empty
+     * result falls back to GitHub alone, so a typo never leaves the launcher without a source.
+     */
+    static List<ReleaseSource> parse(String spec, Map<String, String> githubApis, Fetcher fetcher) {
+        List<ReleaseSource> sources = new ArrayList<>();
+        if (spec != null) {
+            for (String s : spec.split(",")) {
+                s = s.trim();
+                if (s.isEmpty()) continue;
+                try {
+                    if (s.equalsIgnoreCase("github")) sources.add(new GitHub(githubApis, fetcher));
+                    else if (s.startsWith("http://") || s.startsWith("https://")) sources.add(new Mirror(URI.create(s), fetcher));
+                    else if (s.startsWith("file:")) sources.add(new Directory(Path.of(URI.create(s))));
+                    else System.out.println("Ignoring unknown release source: " + s);
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Ignoring invalid release source " + s + ": " + e.getMessage());
+                }
+            }
+        }
+        if (sources.isEmpty()) sources.add(new GitHub(githubApis, fetcher));
+        return List.copyOf(sources);
+    }
+
+    // ------------------------ Racing ------------------------
+
+    /** {@link #race(List, String, Duration, Duration)} with the default {@link #RACE_SETTLE} window. */
+    static Answer race(List<ReleaseSource> sources, String track, Duration timeout) throws IOException, InterruptedException {
+        return race(sources, track, timeout, RACE_SETTLE);
+    }
+
+    /**
+     * Asks all sources for {@code track} at once. Once the first answer that has a version and a
+     * jar asset is in, the others get up to {@code settle} more (never past {@code timeout}), and
+     * the newest version among the valid answers wins, the earlier one on a tie; requests still
+     * running are then cancelled. Answers without a version or jar count as failures. Throws when
+     * no source answered validly within {@code timeout}, with every source's failure attached as
+     * suppressed.
+     */
+    static Answer race(List<ReleaseSource> sources, String track, Duration timeout, Duration settle)
+        throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        if (sources.size() == 1) {
+            // Nothing to race: no extra thread, and the source's own exception surfaces as is
+            ReleaseSource only = sources.get(0);
+            ReleaseJson.Release release = only.latest(track);
+            return new Answer(only, release, (System.nanoTime() - start) / 1_000_000);
+        }
+        ExecutorService exec = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("release-race-", 0).factory());
+        try {
+            CompletionService<ReleaseJson.Release> cs = new ExecutorCompletionService<>(exec);
+            Map<Future<ReleaseJson.Release>, ReleaseSource> pending = new HashMap<>();
+            for (ReleaseSource s : sources) {
+                pending.put(cs.submit(() -> {
+                    ReleaseJson.Release r = s.latest(track);
+                    if (r.tag() == null || r.jarUrl() == null) throw new IOException("no version or jar asset");
+                    return r;
+                }), s);
+            }
+            IOException failed = new IOException("No release source answered for " + track);
+            long deadline = start + timeout.toNanos();
+            Answer best = null;
+            for (int i = 0; i < sources.size(); i++) {
+                Future<ReleaseJson.Release> done = cs.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    if (best == null) failed.addSuppressed(new IOException("timed out after " + timeout.toMillis() + " ms"));
+                    break;
+                }
+                ReleaseSource s = pending.get(done);
+                try {
+                    ReleaseJson.Release r = done.get();
+                    long now = System.nanoTime();
+                    if (best == null) deadline = Math.min(deadline, now + settle.toNanos());
+                    if (best == null || LauncherCore.isNewer(r.tag(), best.release().tag())) {
+                        best = new Answer(s, r, (now - start) / 1_000_000);
+                    }
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    System.out.println("Release source " + s.name() + " failed for " + track + ": " + cause.getMessage());
+                    failed.addSuppressed(cause);
+                }
+            }
+            if (best != null) return best;
+            throw failed;
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+    // ------------------------ Helpers ------------------------
+
+    /** Resolves a relative jar URL against the index it was listed in; absolute URLs are kept. */
+    static ReleaseJson.Release resolve(ReleaseJson.Release r, String indexUrl) {
+        ReleaseJson.Asset jar = r.jar();
+        if (jar == null || jar.url() == null) return r;
+        URI url = URI.create(indexUrl).resolve(jar.url());
+        if (url.toString().equals(jar.url())) return r;
+        return new ReleaseJson.Release(r.tag(), new ReleaseJson.Asset(jar.name(), url.toString(), jar.size(), jar.digest()));
+    }
+
+    private static URI withTrailingSlash(URI uri) {
+        String s = uri.toString();
+        return s.endsWith("/") ? uri : URI.create(s + "/");
+    }
+}
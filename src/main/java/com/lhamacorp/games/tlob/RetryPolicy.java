@@ -0,0 +1,321 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Retries transient network failures with jittered exponential backoff, optionally hedging.
+ *
+ * Each retry waits a random time in {@code [0, min(maxDelay, baseDelay * 2^n)]} ("full jitter"),
+ * so launchers that failed together do not retry together. A hedged call sends a duplicate of
+ * the request when the first has not answered within the p95 of recently observed latencies,
+ * and takes whichever answers first. Everything is bounded by an overall budget: attempt
+ * timeouts shrink to fit it, and no retry starts once it is spent.
+ *
+ * Hedging is only for small idempotent requests (release metadata); downloads are retried
+ * without it and resume where the failed attempt stopped.
+ */
+final class RetryPolicy {
+
+    /** One try of the call, to finish within {@code timeout}. */
+    @FunctionalInterface
+    interface Attempt<T> {
+        T run(Duration timeout) throws IOException, InterruptedException;
+    }
+
+    /** A failure that retrying will not fix, e.g. an HTTP 404 or a rate limit. */
+    static final class PermanentException extends IOException {
+        PermanentException(String message) {
+            super(message);
+        }
+    }
+
+    // Hedge after this long until enough latencies have been observed
+    static final long DEFAULT_HEDGE_MILLIS = 1_500;
+    static final long MIN_HEDGE_MILLIS = 100;
+
+    private final String name;
+    private final int maxAttempts;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+    private final Duration attemptTimeout;
+    private final LatencyTracker latencies;
+
+    /** @param latencies observed latencies for hedging; null disables hedging */
+    RetryPolicy(String name, int maxAttempts, Duration baseDelay, Duration maxDelay, Duration attemptTimeout,
+                LatencyTracker latencies) {
+        this.name = name;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.attemptTimeout = attemptTimeout;
+        this.latencies = latencies;
+    }
+
+    /** An IOException for an unexpected HTTP status: permanent for client errors, retryable otherwise. */
+    static IOException statusFailure(int status, String message) {
+        boolean permanent = status >= 400 && status < 500 && status != 408;
+        return permanent ? new PermanentException(message) : new IOException(message);
+    }
+
+    /** True for failures worth another try: network errors and server-side statuses, not local disk errors. */
+    static boolean isTransient(IOException e) {
+        return !(e instanceof PermanentException) && !(e instanceof FileSystemException);
+    }
+
+    /**
+     * Runs {@code attempt} until it succeeds, fails permanently, runs out of attempts, or
+     * {@code budget} (null for none) is spent; the last failure is thrown with earlier ones
+     * suppressed. Hedges when this policy tracks latencies and {@code mayHedge} agrees right
+     * before the duplicate would be sent (e.g. while the API quota allows it).
+     */
+    <T> T call(String what, Duration budget, BooleanSupplier mayHedge, Attempt<T> attempt)
+        throws IOException, InterruptedException {
+        long deadline = budget != null ? System.nanoTime() + budget.toNanos() : 0;
+        IOException failure = null;
+        for (int n = 0; n < maxAttempts; n++) {
+            Duration timeout = attemptTimeout;
+            if (budget != null) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) break;
+                if (timeout == null || timeout.toNanos() > left) timeout = Duration.ofNanos(left);
+            }
+            try {
+                return latencies != null ? hedged(what, timeout, mayHedge, attempt) : attempt.run(timeout);
+            } catch (IOException e) {
+                if (failure != null) e.addSuppressed(failure);
+                failure = e;
+                if (!isTransient(e) || n + 1 >= maxAttempts) throw e;
+            }
+            long sleep = backoffMillis(n, ThreadLocalRandom.current().nextDouble());
+            if (budget != null && System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sleep) >= deadline) break;
+            System.out.println(name + ": " + what + " failed (" + failure.getMessage() + "), retry " + (n + 1)
+                + " in " + sleep + " ms");
+            Thread.sleep(sleep);
+        }
+        // Only reached by running out of budget; without one, the last attempt's failure is thrown above
+        IOException expired = new IOException(what + ": gave up after " + budget.toMillis() + " ms");
+        if (failure != null) expired.addSuppressed(failure);
+        throw expired;
+    }
+
+    /** The wait before retry {@code n + 1} for a uniform random {@code u} in [0, 1). */
+    long backoffMillis(int n, double u) {
+        long cap = maxDelay.toMillis();
+        long exp = baseDelay.toMillis() << Math.min(n, 20);
+        return Math.round(u * Math.min(cap, exp < 0 ? cap : exp));
+    }
+
+    /** When to send the duplicate: the observed p95, or a default until enough samples exist. */
+    long hedgeAfterMillis() {
+        long p95 = latencies.percentile(0.95);
+        return p95 < 0 ? DEFAULT_HEDGE_MILLIS : Math.max(MIN_HEDGE_MILLIS, p95);
+    }
+
+    private <T> T hedged(String what, Duration timeout, BooleanSupplier mayHedge, Attempt<T> attempt)
+        throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long hedgeAfter = hedgeAfterMillis();
+        var firstRecorded = new AtomicBoolean();
+        Future<T> first = null;
+        ExecutorService exec = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-hedge-", 0).factory());
+        try {
+            CompletionService<T> cs = new ExecutorCompletionService<>(exec);
+            first = cs.submit(() -> timed(attempt, timeout, firstRecorded));
+            int inFlight = 1;
+            Future<T> done = null;
+            if (timeout == null || hedgeAfter < timeout.toMillis()) {
+                done = cs.poll(hedgeAfter, TimeUnit.MILLISECONDS);
+                if (done == null && mayHedge.getAsBoolean()) {
+                    Duration left = timeout != null ? timeout.minusNanos(System.nanoTime() - start) : null;
+                    // With the first request's time already up, a duplicate could not finish either
+                    if (left == null || left.isPositive()) {
+                        System.out.println(name + ": " + what + " slower than " + hedgeAfter + " ms, sending a hedged request");
+                        cs.submit(() -> timed(attempt, left, new AtomicBoolean()));
+                        inFlight++;
+                    }
+                }
+            }
+            IOException failure = null;
+            while (inFlight-- > 0) {
+                if (done == null) done = cs.take();
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    IOException cause = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                    if (failure != null) cause.addSuppressed(failure);
+                    failure = cause;
+                    // A permanent answer will not change with the duplicate
+                    if (!isTransient(cause)) break;
+                }
+                done = null;
+            }
+            throw failure;
+        } finally {
+            // A first request that lost to its hedge took at least this long; leaving it out would
+            // keep only the faster answers and drag the p95, and with it the hedge delay, down
+            if (first != null && !first.isDone()) {
+                record(firstRecorded, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            exec.shutdownNow();
+        }
+    }
+
+    /** Runs one request and records how long it took, or its timeout if it ran out of time. */
+    private <T> T timed(Attempt<T> attempt, Duration timeout, AtomicBoolean recorded)
+        throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            T result = attempt.run(timeout);
+            record(recorded, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        } catch (HttpTimeoutException e) {
+            if (timeout != null) record(recorded, timeout.toMillis());
+            throw e;
+        }
+    }
+
+    // Each request is recorded once, by whichever of timed() and hedged() gets to it first
+    private void record(AtomicBoolean recorded, long millis) {
+        if (recorded.compareAndSet(false, true)) latencies.record(millis);
+    }
+
+    // ------------------------ Latency samples ------------------------
+
+    /**
+     * The most recent latencies of one kind of request, persisted so hedging starts from what
+     * earlier launcher runs observed instead of a guess. Requests that timed out count at their
+     * timeout, and ones that lost to a hedge at the time they had taken by then. Samples are
+     * written every {@link #SAVE_EVERY} records and on {@link #flush()}, outside the lock, so
+     * recording never waits on the disk.
+     */
+    static final class LatencyTracker {
+        static final int CAPACITY = 64;
+        // Below this many samples the percentile is not meaningful
+        static final int MIN_SAMPLES = 8;
+        static final int SAVE_EVERY = 8;
+
+        private record Snapshot(long version, String samples) {
+        }
+
+        private final Path file;
+        private final long[] samples = new long[CAPACITY];
+        private int count;
+        private int next;
+        // Samples recorded so far, and how many of them are on disk; versions the snapshots
+        private long recorded;
+        private long saved;
+        // Serializes writes, so an older snapshot never replaces a newer one
+        private final Object saveLock = new Object();
+        private long written;
+        // Samples on disk are read on first use, keeping the constructor free of I/O
+        private boolean loaded;
+
+        /** @param file where samples are kept between runs; null to keep them in memory only */
+        LatencyTracker(Path file) {
+            this.file = file;
+        }
+
+        void record(long millis) {
+            Snapshot snapshot = null;
+            synchronized (this) {
+                loadIfNeeded();
+                samples[next] = millis;
+                next = (next + 1) % CAPACITY;
+                count = Math.min(count + 1, CAPACITY);
+                if (++recorded - saved >= SAVE_EVERY) snapshot = snapshot();
+            }
+            if (snapshot != null) save(snapshot);
+        }
+
+        /** Writes samples not yet on disk; called when the launcher shuts down. */
+        void flush() {
+            Snapshot snapshot;
+            synchronized (this) {
+                if (recorded == saved) return;
+                snapshot = snapshot();
+            }
+            save(snapshot);
+        }
+
+        /** The {@code q} quantile (nearest rank) of the recorded samples, or -1 with too few samples. */
+        synchronized long percentile(double q) {
+            loadIfNeeded();
+            if (count < MIN_SAMPLES) return -1;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(q * count);
+            return sorted[Math.max(0, Math.min(count - 1, rank - 1))];
+        }
+
+        synchronized int count() {
+            loadIfNeeded();
+            return count;
+        }
+
+        // Called holding the lock
+        private void loadIfNeeded() {
+            if (loaded) return;
+            loaded = true;
+            if (file == null || !Files.exists(file)) return;
+            try (var in = Files.newInputStream(file)) {
+                var p = new Properties();
+                p.load(in);
+                for (String s : p.getProperty("samples", "").split(",")) {
+                    if (s.isBlank()) continue;
+                    samples[next] = Long.parseLong(s.trim());
+                    next = (next + 1) % CAPACITY;
+                    count = Math.min(count + 1, CAPACITY);
+                }
+            } catch (IOException | NumberFormatException e) {
+                System.out.println("Ignoring unreadable latency samples: " + e.getMessage());
+            }
+        }
+
+        // Called holding the lock; marks the snapshot's samples as saved
+        private Snapshot snapshot() {
+            StringBuilder sb = new StringBuilder();
+            // Oldest first, so reloading keeps the order
+            for (int i = 0; i < count; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(samples[(next - count + i + CAPACITY) % CAPACITY]);
+            }
+            saved = recorded;
+            return new Snapshot(recorded, sb.toString());
+        }
+
+        private void save(Snapshot snapshot) {
+            if (file == null) return;
+            synchronized (saveLock) {
+                if (snapshot.version() <= written) return;
+                try {
+                    var p = new Properties();
+                    p.setProperty("samples", snapshot.samples());
+                    var buf = new ByteArrayOutputStream();
+                    p.store(buf, "TLOB request latencies (ms)");
+                    AtomicFiles.write(file, buf.toByteArray());
+                    written = snapshot.version();
+                } catch (IOException e) {
+                    System.out.println("Failed to record latency samples: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,484 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads a file over several HTTP connections at once using byte ranges.
+ *
+ * The first range request doubles as a probe: a 206 with a {@code Content-Range} total switches
+ * to segmented mode, while a 200 (server ignored the range, or does not advertise
+ * {@code Accept-Ranges}) is consumed as a single stream. Each response body is written by a
+ * {@link ChannelSink} straight from the HTTP client's buffers to its own offset in a preallocated
+ * {@link FileChannel}. Chunk sizes follow the throughput measured on each
+ * connection, and connections are added only while they still raise aggregate throughput.
+ * That needs a client that really opens several connections; see {@link #newClient()}.
+ *
+ * Progress is checkpointed into the {@link PartialDownload} sidecar as the completed prefix grows,
+ * and a later call resumes from it with {@code Range} + {@code If-Range}, so a changed asset
+ * restarts cleanly from zero instead of being spliced.
+ *
+ * The SHA-256 of the file is computed while it downloads (see {@link PrefixHasher}) and returned
+ * in the {@link Result}, so callers can check it against a published digest without re-reading the file.
+ */
+final class SegmentedDownloader {
+
+    /**
+     * Receives the total size once known (with the bytes already on disk when resuming),
+     * then byte counts as they are written, from any thread.
+     */
+    interface Progress {
+        void started(long totalBytes, long alreadyDownloaded);
+
+        void transferred(long bytes);
+    }
+
+    /**
+     * Outcome of a download. {@code resumedFrom} is 0 for a fresh download;
+     * {@code sha256} is the lowercase hex digest of the complete file.
+     */
+    record Result(long bytes, int connections, boolean segmented, long ttfbMillis, long resumedFrom, String sha256) {
+    }
+
+    static final long PROBE_CHUNK = 1L << 20;
+    static final long MIN_CHUNK = 256L << 10;
+    static final long MAX_CHUNK = 16L << 20;
+    static final int INITIAL_CONNECTIONS = 2;
+    static final int MAX_CONNECTIONS = 8;
+    // Aim for chunks that take this long on their connection: long enough to amortize the request,
+    // short enough that the last chunks do not leave other connections idle
+    private static final double CHUNK_SECONDS = 2.0;
+    private static final long SAMPLE_MILLIS = 500;
+    // Add a connection only if the last one raised aggregate throughput by at least this factor
+    private static final double MIN_GAIN = 1.10;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)");
+
+    private final HttpClient http;
+    private final String userAgent;
+    private final int maxConnections;
+    private final TokenBucket limiter;
+
+    /**
+     * A client for range downloads. It speaks HTTP/1.1 because the JDK client multiplexes every
+     * HTTP/2 request to a host onto one connection, which would turn the parallel ranges into
+     * streams sharing a single TCP window; over HTTP/1.1 each in-flight range gets a connection.
+     */
+    static HttpClient newClient() {
+        return HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(15))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    }
+
+    SegmentedDownloader(HttpClient http, String userAgent) {
+        this(http, userAgent, MAX_CONNECTIONS);
+    }
+
+    SegmentedDownloader(HttpClient http, String userAgent, int maxConnections) {
+        this(http, userAgent, maxConnections, null);
+    }
+
+    /** @param limiter caps the combined bandwidth of all connections; null for unlimited */
+    SegmentedDownloader(HttpClient http, String userAgent, int maxConnections, TokenBucket limiter) {
+        this.http = http;
+        this.userAgent = userAgent;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.limiter = limiter;
+    }
+
+    /** Downloads {@code url} into the partial download's file, resuming it when possible. */
+    Result download(String url, PartialDownload part, long expectedSize, Progress progress) throws IOException, InterruptedException {
+        if (url.startsWith("file:")) return copyLocal(url, part, progress);
+        long resumeFrom = part.resumableFrom(url, expectedSize);
+        String ifRange = resumeFrom > 0 ? part.etag() : null;
+        var hasher = new PrefixHasher();
+
+        try (FileChannel ch = FileChannel.open(part.file(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+            if (resumeFrom > 0 && resumeFrom == part.expectedSize()) {
+                // Finished earlier but never moved into place (e.g. the launcher was closed right after)
+                progress.started(resumeFrom, resumeFrom);
+                hasher.catchUp(ch, resumeFrom);
+                return new Result(resumeFrom, 0, false, 0, resumeFrom, hasher.hex());
+            }
+            long start = System.nanoTime();
+            long probeLen = expectedSize > 0 ? Math.min(PROBE_CHUNK, expectedSize - resumeFrom) : PROBE_CHUNK;
+            AtomicLong headersAt = new AtomicLong();
+            HttpResponse<Long> first = send(URI.create(url), resumeFrom, resumeFrom + Math.max(1, probeLen) - 1, ifRange, info -> {
+                headersAt.set(System.nanoTime());
+                String etag = info.headers().firstValue("ETag").orElse(null);
+                if (info.statusCode() == 200) {
+                    // No range support, or If-Range did not match: consume the full body as a single stream
+                    long total = info.headers().firstValueAsLong("Content-Length").orElse(expectedSize);
+                    return new ChannelSink(ch, 0, hasher, progress, part, () -> {
+                        if (resumeFrom > 0) System.out.println("Partial download is stale or not resumable, restarting: " + url);
+                        ch.truncate(0);
+                        part.begin(url, etag, total, 0);
+                        progress.started(total, 0);
+                        preallocate(ch, total);
+                    }, limiter);
+                }
+                long[] range = parseContentRange(info.headers().firstValue("Content-Range").orElse(null));
+                long total = range != null && range[2] > 0 ? range[2] : expectedSize;
+                if (info.statusCode() != 206 || range == null || range[0] != resumeFrom || total <= 0) {
+                    return ChannelSink.rejecting();
+                }
+                return new ChannelSink(ch, resumeFrom, hasher, progress, part, () -> {
+                    if (resumeFrom > 0) System.out.println("Resuming download at " + resumeFrom + " of " + total + " bytes: " + url);
+                    else ch.truncate(0);
+                    part.begin(url, etag != null ? etag : ifRange, total, resumeFrom);
+                    progress.started(total, resumeFrom);
+                    preallocate(ch, total);
+                    // The resumed prefix is hashed from disk once; everything after it as it arrives
+                    hasher.catchUp(ch, resumeFrom);
+                }, limiter);
+            });
+            long ttfb = (headersAt.get() - start) / 1_000_000;
+            long probeMillis = (System.nanoTime() - start) / 1_000_000;
+
+            if (first.statusCode() == 200) {
+                long total = first.headers().firstValueAsLong("Content-Length").orElse(expectedSize);
+                long n = first.body();
+                if (total > 0 && n != total) throw new IOException("Download incomplete: " + n + " of " + total + " bytes");
+                part.checkpoint(n);
+                return new Result(n, 1, false, ttfb, 0, hasher.hex());
+            }
+            if (first.statusCode() != 206) throw RetryPolicy.statusFailure(first.statusCode(), "Download failed: HTTP " + first.statusCode());
+
+            long[] range = contentRange(first);
+            long total = range != null && range[2] > 0 ? range[2] : expectedSize;
+            if (range == null || range[0] != resumeFrom || total <= 0) {
+                throw new IOException("Download failed: unusable Content-Range " + first.headers().firstValue("Content-Range").orElse(""));
+            }
+            long firstLen = first.body();
+            long firstEnd = resumeFrom + firstLen;
+            if (firstEnd != range[1] + 1) throw new IOException("Short range response: " + firstLen + " bytes");
+            part.checkpoint(firstEnd);
+            if (firstEnd >= total) return new Result(total, 1, true, ttfb, resumeFrom, hasher.hex());
+
+            // Later ranges go straight to the redirect target instead of walking the redirect chain again
+            var scheduler = new Scheduler(firstEnd, total);
+            int used = fetchRemaining(first.uri(), ch, scheduler, part, hasher, firstLen, probeMillis, progress);
+            hasher.catchUp(ch, total);
+            return new Result(total, used, true, ttfb, resumeFrom, hasher.hex());
+        }
+    }
+
+    /**
+     * Copies an asset from a {@code file:} release source (a local or mounted mirror directory) in
+     * one pass, hashing it on the way. The file's modification time stands in for the ETag, so a
+     * completed copy counts as staged until the source file changes.
+     */
+    private Result copyLocal(String url, PartialDownload part, Progress progress) throws IOException, InterruptedException {
+        Path source = Path.of(URI.create(url));
+        long total = Files.size(source);
+        String etag = "mtime-" + Files.getLastModifiedTime(source).toMillis();
+        if (part.resumableFrom(url, total) == total && etag.equals(part.etag())) {
+            try (FileChannel ch = FileChannel.open(part.file(), StandardOpenOption.READ)) {
+                var hasher = new PrefixHasher();
+                progress.started(total, total);
+                hasher.catchUp(ch, total);
+                return new Result(total, 0, false, 0, total, hasher.hex());
+            }
+        }
+        part.begin(url, etag, total, 0);
+        progress.started(total, 0);
+        var hasher = new PrefixHasher();
+        long start = System.nanoTime();
+        long ttfb = -1, copied = 0;
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(part.file(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+            int n;
+            while ((n = in.read(buf.clear())) >= 0) {
+                if (Thread.interrupted()) throw new InterruptedException();
+                if (ttfb < 0) ttfb = (System.nanoTime() - start) / 1_000_000;
+                buf.flip();
+                hasher.update(copied, buf.duplicate());
+                while (buf.hasRemaining()) out.write(buf);
+                if (limiter != null) limiter.acquire(n);
+                copied += n;
+                progress.transferred(n);
+            }
+        }
+        if (copied != total) throw new IOException("Copy incomplete: " + copied + " of " + total + " bytes");
+        part.checkpoint(copied);
+        return new Result(copied, 1, false, Math.max(ttfb, 0), 0, hasher.hex());
+    }
+
+    // ------------------------ Segment scheduling ------------------------
+
+    /**
+     * Hands out consecutive ranges of the file (chunk size is chosen per request by the caller)
+     * and tracks how far the contiguous completed prefix reaches as ranges finish out of order.
+     */
+    static final class Scheduler {
+        private final long total;
+        private long next;
+        private long prefix;
+        private final TreeMap<Long, Long> completed = new TreeMap<>();
+
+        Scheduler(long next, long total) {
+            this.next = next;
+            this.prefix = next;
+            this.total = total;
+        }
+
+        /** Returns {start, endInclusive} of the next range, or null when everything is handed out. */
+        synchronized long[] next(long desiredLength) {
+            if (next >= total) return null;
+            long start = next;
+            long end = Math.min(total, start + Math.max(1, desiredLength)) - 1;
+            next = end + 1;
+            return new long[]{start, end};
+        }
+
+        synchronized long remaining() {
+            return total - next;
+        }
+
+        /** Marks a range complete; returns the end (exclusive) of the contiguous completed prefix. */
+        synchronized long complete(long start, long endInclusive) {
+            completed.put(start, endInclusive + 1);
+            Long end;
+            while ((end = completed.remove(prefix)) != null) prefix = end;
+            return prefix;
+        }
+    }
+
+    /**
+     * SHA-256 over the contiguous prefix of the file. Bytes written at the prefix are hashed straight
+     * from the write buffer; ranges that finished ahead of it are read back once the prefix reaches
+     * them, while they are still in the page cache. Each byte is hashed exactly once.
+     */
+    static final class PrefixHasher {
+        private final MessageDigest md;
+        private long hashed;
+
+        PrefixHasher() {
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        /** Hashes bytes just written at {@code position} if they continue the prefix; otherwise ignores them. */
+        synchronized void update(long position, ByteBuffer buf) {
+            if (position != hashed) return;
+            hashed += buf.remaining();
+            md.update(buf);
+        }
+
+        /** Hashes whatever of {@code [0, prefixEnd)} was written but not seen by {@link #update}. */
+        synchronized void catchUp(FileChannel ch, long prefixEnd) throws IOException {
+            if (prefixEnd <= hashed) return;
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+            while (hashed < prefixEnd) {
+                buf.clear().limit((int) Math.min(buf.capacity(), prefixEnd - hashed));
+                int n = ch.read(buf, hashed);
+                if (n < 0) throw new IOException("Unexpected end of file while hashing download");
+                md.update(buf.flip());
+                hashed += n;
+            }
+        }
+
+        synchronized long hashed() {
+            return hashed;
+        }
+
+        /** Finishes the digest; call once, after the whole file has been hashed. */
+        synchronized String hex() {
+            return HexFormat.of().formatHex(md.digest());
+        }
+    }
+
+    static long chunkFor(double bytesPerSecond) {
+        if (bytesPerSecond <= 0) return 2 * MIN_CHUNK;
+        return Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, (long) (bytesPerSecond * CHUNK_SECONDS)));
+    }
+
+    private int fetchRemaining(URI uri, FileChannel ch, Scheduler scheduler, PartialDownload part, PrefixHasher hasher,
+                               long probeBytes, long probeMillis, Progress progress) throws IOException, InterruptedException {
+        AtomicLong written = new AtomicLong();
+        Progress counting = new Progress() {
+            @Override
+            public void started(long totalBytes, long alreadyDownloaded) {
+            }
+
+            @Override
+            public void transferred(long bytes) {
+                written.addAndGet(bytes);
+                progress.transferred(bytes);
+            }
+        };
+        // Seed the first connections with the probe's throughput
+        double probeRate = probeMillis > 0 ? probeBytes * 1000.0 / probeMillis : 0;
+
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        CompletionService<Void> completion = new ExecutorCompletionService<>(pool);
+        List<Future<Void>> workers = new ArrayList<>();
+        try {
+            int initial = Math.min(INITIAL_CONNECTIONS, maxConnections);
+            for (int i = 0; i < initial; i++) {
+                workers.add(completion.submit(worker(uri, ch, scheduler, part, hasher, probeRate, counting)));
+            }
+            int finished = 0;
+            double lastRate = 0;
+            long lastBytes = 0;
+            long lastSample = System.nanoTime();
+            while (finished < workers.size()) {
+                Future<Void> done = completion.poll(SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+                if (done != null) {
+                    finished++;
+                    try {
+                        done.get();
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof IOException io) throw io;
+                        if (cause instanceof InterruptedException ie) throw ie;
+                        throw new IOException("Segment download failed: " + cause, cause);
+                    }
+                    continue;
+                }
+
+                long now = System.nanoTime();
+                long bytes = written.get();
+                double rate = (bytes - lastBytes) * 1e9 / Math.max(1, now - lastSample);
+                lastBytes = bytes;
+                lastSample = now;
+                int active = workers.size() - finished;
+                // Grow while each added connection still pays off and there is work left for it
+                if (workers.size() < maxConnections && rate > lastRate * MIN_GAIN
+                    && scheduler.remaining() > (long) active * chunkFor(rate / Math.max(1, active))) {
+                    workers.add(completion.submit(worker(uri, ch, scheduler, part, hasher, rate / Math.max(1, active), counting)));
+                    System.out.println("Download: " + workers.size() + " connections at "
+                        + (long) (rate / 1024) + " KiB/s");
+                }
+                lastRate = rate;
+            }
+            return workers.size();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Callable<Void> worker(URI uri, FileChannel ch, Scheduler scheduler, PartialDownload part,
+                                  PrefixHasher hasher, double seedRate, Progress progress) {
+        return () -> {
+            double rate = seedRate;
+            long[] r;
+            while ((r = scheduler.next(chunkFor(rate))) != null) {
+                long t0 = System.nanoTime();
+                long[] range = r;
+                HttpResponse<Long> resp = send(uri, range[0], range[1], null, info -> {
+                    long[] got = parseContentRange(info.headers().firstValue("Content-Range").orElse(null));
+                    if (info.statusCode() != 206 || got == null || got[0] != range[0]) return ChannelSink.rejecting();
+                    return new ChannelSink(ch, range[0], hasher, progress, null, null, limiter);
+                });
+                if (resp.statusCode() != 206) throw new IOException("Range request failed: HTTP " + resp.statusCode());
+                long[] got = contentRange(resp);
+                if (got == null || got[0] != r[0]) throw new IOException("Range request returned wrong range");
+                long n = resp.body();
+                if (n != r[1] - r[0] + 1) throw new IOException("Short range response: " + n + " bytes");
+                long prefix = scheduler.complete(r[0], r[1]);
+                hasher.catchUp(ch, prefix);
+                part.checkpoint(prefix);
+                rate = n * 1e9 / Math.max(1, System.nanoTime() - t0);
+            }
+            return null;
+        };
+    }
+
+    // ------------------------ HTTP / IO ------------------------
+
+    /**
+     * Sends a range request and streams the body through whatever subscriber {@code handler} picks
+     * for the response. Interrupting the calling thread cancels the transfer.
+     */
+    private HttpResponse<Long> send(URI uri, long start, long endInclusive, String ifRange,
+                                    HttpResponse.BodyHandler<Long> handler) throws IOException, InterruptedException {
+        HttpRequest.Builder b = HttpRequest.newBuilder(uri)
+            .header("User-Agent", userAgent)
+            .header("Range", "bytes=" + start + "-" + endInclusive)
+            .timeout(Duration.ofMinutes(5)).GET();
+        if (ifRange != null) b.header("If-Range", ifRange);
+        AtomicReference<ChannelSink> sink = new AtomicReference<>();
+        var event = new LauncherEvents.HttpRequestEvent();
+        event.begin();
+        event.method = "GET";
+        event.url = uri.toString();
+        CompletableFuture<HttpResponse<Long>> response = http.sendAsync(b.build(), info -> {
+            event.status = info.statusCode();
+            HttpResponse.BodySubscriber<Long> subscriber = handler.apply(info);
+            if (subscriber instanceof ChannelSink cs) sink.set(cs);
+            return subscriber;
+        });
+        try {
+            HttpResponse<Long> resp = response.get();
+            event.bytes = resp.body();
+            return resp;
+        } catch (InterruptedException e) {
+            // The body is written on the client's threads, so stop it explicitly
+            ChannelSink s = sink.get();
+            if (s != null) s.cancel();
+            response.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            throw new IOException("Download failed: " + cause, cause);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /** Extends the file to its final size up front so positional writes never grow it piecemeal. */
+    static void preallocate(FileChannel ch, long size) throws IOException {
+        if (size > 0 && ch.size() < size) ch.write(ByteBuffer.wrap(new byte[1]), size - 1);
+    }
+
+    /** Parses {@code Content-Range: bytes a-b/total} into {a, b, total}; total is -1 when unknown. */
+    static long[] contentRange(HttpResponse<?> resp) {
+        return parseContentRange(resp.headers().firstValue("Content-Range").orElse(null));
+    }
+
+    static long[] parseContentRange(String header) {
+        if (header == null) return null;
+        Matcher m = CONTENT_RANGE.matcher(header.trim());
+        if (!m.matches()) return null;
+        long total = m.group(3).equals("*") ? -1 : Long.parseLong(m.group(3));
+        return new long[]{Long.parseLong(m.group(1)), Long.parseLong(m.group(2)), total};
+    }
+}
@@ -0,0 +1,147 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Helper mode that swaps in an updated launcher jar once the running launcher has exited.
+ *
+ * The launcher copies its own jar aside and starts the helper from that copy ({@code java -cp
+ * launcher.jar.helper ...SelfReplace <pid> <staged> <dest> <java>}), so the helper is code that
+ * is known to run here rather than the freshly downloaded release, and neither jar being swapped
+ * is on its class path (and locked on Windows). Once loaded, the helper creates a ready marker
+ * the launcher waits for before exiting, then waits on the parent's
+ * {@link ProcessHandle#onExit()}, so it continues the moment the process is gone, then copies
+ * the staged jar next to the destination and moves it over atomically. Finally it relaunches the
+ * new launcher and exits; the relaunched launcher deletes the helper copy.
+ */
+final class SelfReplace {
+
+    // Upper bound for the parent to exit; the swap is attempted anyway afterwards
+    static final Duration PARENT_EXIT_TIMEOUT = Duration.ofSeconds(30);
+    // Windows may keep a just-closed jar locked for a moment (antivirus, indexer), so the move is retried
+    private static final int MOVE_ATTEMPTS = 20;
+    private static final long MOVE_RETRY_MILLIS = 100;
+    // Upper bound for the helper to report it is ready; a slow disk or cold JVM can take seconds
+    static final Duration HELPER_STARTUP_TIMEOUT = Duration.ofSeconds(15);
+    private static final long READY_POLL_MILLIS = 10;
+
+    private SelfReplace() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 4) {
+            System.out.println("Usage: SelfReplace <parent-pid> <staged-jar> <dest-jar> <java>");
+            System.exit(2);
+        }
+        long pid = Long.parseLong(args[0]);
+        Path staged = Path.of(args[1]);
+        Path dest = Path.of(args[2]);
+        String java = args[3];
+        LauncherEvents.startRecording("selfreplace");
+        long start = System.nanoTime();
+        var event = new LauncherEvents.SelfReplaceEvent();
+        event.begin();
+        event.path = dest.toString();
+        try {
+            // Loaded and about to wait: the parent may exit now
+            Files.writeString(readyFile(dest), Long.toString(ProcessHandle.current().pid()));
+            if (!awaitExit(pid, PARENT_EXIT_TIMEOUT)) {
+                System.out.println("Self-replace: launcher " + pid + " still running after "
+                    + PARENT_EXIT_TIMEOUT.toSeconds() + " s, replacing anyway");
+            }
+            event.bytes = Files.size(staged);
+            replace(staged, dest);
+            event.commit();
+            System.out.println("Self-replace: installed " + dest.getFileName() + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms, relaunching");
+            new ProcessBuilder(java, "-jar", dest.toString()).directory(dest.getParent().toFile()).inheritIO().start();
+            // Should it still be locked, the relaunched launcher cleans it up
+            try {
+                Files.deleteIfExists(staged);
+            } catch (IOException ignored) {
+            }
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Self-replace failed: " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Starts the helper from {@code classPath} to replace {@code dest} with {@code staged} after
+     * the current process exits, and returns as soon as the helper reports it is ready (by
+     * creating {@link #readyFile}). Throws if the helper exits or is not ready within
+     * {@link #HELPER_STARTUP_TIMEOUT}, in which case nothing will be replaced. The caller should
+     * exit promptly after this returns.
+     */
+    static Process spawn(String java, String classPath, Path staged, Path dest) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(java, "-cp", classPath));
+        // A launcher being recorded has its helper record itself too, into its own file
+        String jfr = System.getProperty("tlob.jfr");
+        if (jfr != null && !jfr.isBlank() && !jfr.equalsIgnoreCase("false")) command.add("-Dtlob.jfr=true");
+        command.addAll(List.of(SelfReplace.class.getName(),
+            Long.toString(ProcessHandle.current().pid()), staged.toString(), dest.toString(), java));
+        Path ready = readyFile(dest);
+        Files.deleteIfExists(ready);
+        Process helper = new ProcessBuilder(command).inheritIO().start();
+        long deadline = System.nanoTime() + HELPER_STARTUP_TIMEOUT.toNanos();
+        while (!Files.exists(ready)) {
+            // Returns early, with the exit code, if the helper dies
+            if (helper.waitFor(READY_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Self-replace helper exited right away with code " + helper.exitValue());
+            }
+            if (System.nanoTime() - deadline > 0) {
+                helper.destroyForcibly();
+                throw new IOException("Self-replace helper not ready after " + HELPER_STARTUP_TIMEOUT.toSeconds() + " s");
+            }
+        }
+        Files.deleteIfExists(ready);
+        return helper;
+    }
+
+    /** Created by the helper once it is running, next to the jar it replaces. */
+    static Path readyFile(Path dest) {
+        return dest.resolveSibling(dest.getFileName() + ".ready");
+    }
+
+    /** Waits for process {@code pid} to exit; true if it did (or was already gone) within {@code timeout}. */
+    static boolean awaitExit(long pid, Duration timeout) throws InterruptedException {
+        var handle = ProcessHandle.of(pid);
+        if (handle.isEmpty()) return true;
+        try {
+            handle.get().onExit().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            return !handle.get().isAlive();
+        }
+    }
+
+    /** Copies {@code staged} next to {@code dest} and atomically moves it over {@code dest}. */
+    static void replace(Path staged, Path dest) throws IOException, InterruptedException {
+        Path tmp = dest.resolveSibling(dest.getFileName() + ".swap");
+        Files.copy(staged, tmp, StandardCopyOption.REPLACE_EXISTING);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Files.move(tmp, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return;
+            } catch (FileSystemException e) {
+                if (attempt >= MOVE_ATTEMPTS) {
+                    Files.deleteIfExists(tmp);
+                    throw e;
+                }
+            }
+            Thread.sleep(MOVE_RETRY_MILLIS);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.lhamacorp.games.tlob;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cold-start milestones (entering {@code main}, first paint, ready to play), measured from
+ * the moment the OS started the JVM process, so JVM boot and class loading are included.
+ *
+ * Each milestone is recorded once; later marks of the same name are ignored.
+ */
+final class StartupTimer {
+
+    static final String MAIN = "main";
+    static final String FIRST_PAINT = "first paint";
+    static final String READY = "ready to play";
+
+    /** The launcher's own timer, anchored at the JVM process start time. */
+    static final StartupTimer JVM = new StartupTimer(ProcessHandle.current().info().startInstant()
+        .map(Instant::toEpochMilli).orElse(System.currentTimeMillis()));
+
+    private final long originMillis;
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+
+    StartupTimer(long originMillis) {
+        this.originMillis = originMillis;
+    }
+
+    /** Records {@code phase} now; returns false if it was already recorded. */
+    boolean mark(String phase) {
+        return mark(phase, System.currentTimeMillis());
+    }
+
+    synchronized boolean mark(String phase, long nowMillis) {
+        if (marks.containsKey(phase)) return false;
+        marks.put(phase, nowMillis - originMillis);
+        return true;
+    }
+
+    /** Milliseconds from JVM start to {@code phase}, or -1 if it has not happened yet. */
+    synchronized long elapsed(String phase) {
+        return marks.getOrDefault(phase, -1L);
+    }
+
+    /** e.g. {@code JVM start → main 180 ms → first paint 420 ms → ready to play 1230 ms}. */
+    synchronized String summary() {
+        StringBuilder sb = new StringBuilder("JVM start");
+        marks.forEach((phase, ms) -> sb.append(" → ").append(phase).append(' ').append(ms).append(" ms"));
+        return sb.toString();
+    }
+}
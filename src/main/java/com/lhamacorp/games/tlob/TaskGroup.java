@@ -0,0 +1,87 @@
+package com.lhamacorp.games.tlob;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs launcher tasks concurrently, one virtual thread per task, with structured cancellation.
+ *
+ * Tasks are expected to handle their own expected failures (network errors etc.). An exception
+ * escaping a task is logged and ends only that task: the group's jobs (startup checks,
+ * downloads, prefetch, the update poller) are independent, so one failing must not stop the
+ * others. Closing the group (window close, launching the game) cancels and rejects everything.
+ */
+final class TaskGroup implements AutoCloseable {
+
+    /** A unit of work that may block on I/O. */
+    @FunctionalInterface
+    interface Task {
+        void run() throws Exception;
+    }
+
+    private final String name;
+    private final ExecutorService exec;
+    private final Set<Future<?>> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    TaskGroup(String name) {
+        this.name = name;
+        this.exec = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+
+    /** Forks a task; returns null when the group is already closed. */
+    Future<?> submit(Task task) {
+        if (closed) return null;
+        var future = new FutureTask<Void>(() -> {
+            try {
+                task.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                if (!closed) {
+                    System.out.println(name + " task failed: " + t);
+                    t.printStackTrace();
+                }
+            }
+        }, null) {
+            @Override
+            protected void done() {
+                running.remove(this);
+            }
+        };
+        running.add(future);
+        try {
+            exec.execute(future);
+        } catch (RejectedExecutionException e) {
+            running.remove(future);
+            return null;
+        }
+        return future;
+    }
+
+    /** Interrupts every task that is still running; the group stays open for new work. */
+    void cancelAll() {
+        for (Future<?> f : running) f.cancel(true);
+    }
+
+    int runningCount() {
+        return running.size();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /** Cancels all running tasks and rejects new ones. Does not wait for them to finish. */
+    @Override
+    public void close() {
+        closed = true;
+        cancelAll();
+        exec.shutdownNow();
+    }
+}
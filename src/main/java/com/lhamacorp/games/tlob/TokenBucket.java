@@ -0,0 +1,55 @@
+package com.lhamacorp.games.tlob;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket bandwidth limiter shared by every connection of a download.
+ *
+ * Tokens (bytes) refill continuously at {@code bytesPerSecond} up to {@code burstBytes}. Taking more
+ * than is available is allowed and leaves the bucket in debt; the caller is told how long to hold
+ * off, which keeps the average rate at the limit without ever blocking inside the bucket itself.
+ */
+final class TokenBucket {
+
+    private final double bytesPerSecond;
+    private final double burstBytes;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(long bytesPerSecond, long burstBytes) {
+        if (bytesPerSecond <= 0) throw new IllegalArgumentException("rate must be positive");
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstBytes = Math.max(1, burstBytes);
+        this.tokens = this.burstBytes;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /** A bucket holding one second's worth of bytes, or null when {@code bytesPerSecond} is not positive (unlimited). */
+    static TokenBucket perSecond(long bytesPerSecond) {
+        return bytesPerSecond > 0 ? new TokenBucket(bytesPerSecond, bytesPerSecond) : null;
+    }
+
+    /** Takes {@code bytes} tokens and returns how many nanoseconds to wait before moving more data. */
+    synchronized long reserve(long bytes) {
+        return reserve(bytes, System.nanoTime());
+    }
+
+    synchronized long reserve(long bytes, long nowNanos) {
+        if (nowNanos > lastRefill) {
+            tokens = Math.min(burstBytes, tokens + (nowNanos - lastRefill) * bytesPerSecond / 1e9);
+            lastRefill = nowNanos;
+        }
+        tokens -= bytes;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / bytesPerSecond * 1e9);
+    }
+
+    /** Blocking form of {@link #reserve(long)} for threads that may sleep. */
+    void acquire(long bytes) throws InterruptedException {
+        long wait = reserve(bytes);
+        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    long bytesPerSecond() {
+        return (long) bytesPerSecond;
+    }
+}
@@ -0,0 +1,56 @@
+package com.lhamacorp.games.tlob;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Re-runs the release checks while the launcher stays open.
+ *
+ * Each wait is the interval scaled by a random factor in {@code [1 - jitter, 1 + jitter]}, so
+ * launchers started together (a lab, an office) drift apart instead of polling in lockstep.
+ */
+final class UpdatePoller {
+
+    static final double DEFAULT_JITTER = 0.2;
+
+    private final Duration interval;
+    private final double jitter;
+    private final BooleanSupplier busy;
+    private final Runnable poll;
+
+    /**
+     * @param busy checked before each poll; while it returns true (e.g. an update is installing) the poll is skipped
+     * @param poll runs the checks; called from the poller's own thread
+     */
+    UpdatePoller(Duration interval, double jitter, BooleanSupplier busy, Runnable poll) {
+        this.interval = interval;
+        this.jitter = Math.max(0, Math.min(1, jitter));
+        this.busy = busy;
+        this.poll = poll;
+    }
+
+    /** Starts polling in {@code tasks}; returns false when polling is disabled (non-positive interval). */
+    boolean start(TaskGroup tasks) {
+        if (interval.isZero() || interval.isNegative()) return false;
+        tasks.submit(() -> {
+            while (!tasks.isClosed()) {
+                long delay = nextDelayMillis(ThreadLocalRandom.current().nextDouble());
+                Thread.sleep(delay);
+                if (busy.getAsBoolean()) {
+                    System.out.println("Update poll skipped: launcher is busy");
+                    continue;
+                }
+                System.out.println("Polling for updates (next in ~" + interval.toMinutes() + " min)");
+                poll.run();
+            }
+        });
+        return true;
+    }
+
+    /** The wait before the next poll for a uniform random {@code u} in [0, 1). */
+    long nextDelayMillis(double u) {
+        double factor = 1 + jitter * (2 * u - 1);
+        return Math.max(1, Math.round(interval.toMillis() * factor));
+    }
+}
@@ -0,0 +1,302 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Low-level jar (ZIP) layout: reading the central directory and writing a jar from
+ * already-compressed entry data, without inflating or deflating anything.
+ *
+ * Used by {@link JarDelta} to splice remote and local entries and by {@link BlobStore}
+ * to materialize jars from stored entries. ZIP64 archives are rejected.
+ */
+final class ZipLayout {
+
+    /** One central directory record; {@code record} holds its raw bytes for re-emitting. */
+    record Entry(String name, int flags, int method, long crc, long compressedSize, long size, long offset, byte[] record) {
+
+        /** Identifies the entry's compressed bytes independent of its name and position. */
+        String contentKey() {
+            return Long.toHexString(crc) + ":" + compressedSize + ":" + size + ":" + method;
+        }
+    }
+
+    /** Entries in central directory order, plus where the directory sits and the raw EOCD record. */
+    record CentralDirectory(List<Entry> entries, long offset, long size, byte[] eocd) {
+    }
+
+    /**
+     * Where an entry's bytes come from when writing a jar: either its complete local record
+     * (header, data and any data descriptor) copied verbatim, or only its compressed data, in which
+     * case the local header is rebuilt from the central directory record. Reads from
+     * {@code channel}, or opens {@code file} for the copy when no channel is given.
+     */
+    record Piece(FileChannel channel, Path file, long position, long length, boolean raw) {
+
+        static Piece raw(FileChannel channel, long position, long length) {
+            return new Piece(channel, null, position, length, true);
+        }
+
+        static Piece data(FileChannel channel, long position, long length) {
+            return new Piece(channel, null, position, length, false);
+        }
+
+        static Piece data(Path file, long length) {
+            return new Piece(null, file, 0, length, false);
+        }
+    }
+
+    /** Resolves the source of each entry while a jar is being written. */
+    @FunctionalInterface
+    interface PieceSource {
+        Piece pieceFor(Entry entry) throws IOException;
+    }
+
+    static final int EOCD_SIG = 0x06054b50;
+    static final int CEN_SIG = 0x02014b50;
+    static final int LOC_SIG = 0x04034b50;
+    static final int EOCD_LEN = 22;
+    static final int CEN_LEN = 46;
+    static final int LOC_LEN = 30;
+    // EOCD plus the longest possible archive comment
+    static final int TAIL_LEN = EOCD_LEN + 0xFFFF;
+    static final int FLAG_ENCRYPTED = 0x01;
+    static final int FLAG_DATA_DESCRIPTOR = 0x08;
+
+    private ZipLayout() {
+    }
+
+    /** True when both entries hold the same compressed bytes and can be swapped for each other. */
+    static boolean sameContent(Entry a, Entry b) {
+        return a != null && b != null
+            && (a.flags() & FLAG_ENCRYPTED) == 0 && (b.flags() & FLAG_ENCRYPTED) == 0
+            && a.contentKey().equals(b.contentKey());
+    }
+
+    // ------------------------ Writing ------------------------
+
+    /**
+     * Writes a jar with the given central directory to {@code target}. Entries keep their relative
+     * order; offsets in the central directory and EOCD are rewritten to match the new layout.
+     */
+    static void write(Path target, CentralDirectory cd, PieceSource source) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            List<Entry> byOffset = new ArrayList<>(cd.entries());
+            byOffset.sort(Comparator.comparingLong(Entry::offset));
+            Map<Entry, byte[]> records = new HashMap<>();
+            long pos = 0;
+            for (Entry e : byOffset) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Jar assembly cancelled");
+                Piece piece = source.pieceFor(e);
+                if (piece.raw()) {
+                    records.put(e, patchRecord(e.record(), e.flags(), pos));
+                    pos += copy(piece, out, pos);
+                    continue;
+                }
+                // Sizes go inline into the rebuilt header, so no data descriptor follows the data
+                int flags = e.flags() & ~FLAG_DATA_DESCRIPTOR;
+                records.put(e, patchRecord(e.record(), flags, pos));
+                pos += writeFully(out, ByteBuffer.wrap(localHeader(e, flags)), pos);
+                if (piece.length() != e.compressedSize()) throw new IOException("Size mismatch for entry " + e.name());
+                pos += copy(piece, out, pos);
+            }
+
+            long cdStart = pos;
+            for (Entry e : cd.entries()) pos += writeFully(out, ByteBuffer.wrap(records.get(e)), pos);
+            ByteBuffer eocd = le(cd.eocd().clone());
+            eocd.putInt(12, (int) (pos - cdStart));
+            eocd.putInt(16, (int) cdStart);
+            writeFully(out, eocd, pos);
+        }
+    }
+
+    private static long copy(Piece piece, FileChannel out, long pos) throws IOException {
+        if (piece.channel() != null) return copy(piece.channel(), piece.position(), piece.length(), out, pos);
+        try (FileChannel in = FileChannel.open(piece.file(), StandardOpenOption.READ)) {
+            return copy(in, piece.position(), piece.length(), out, pos);
+        }
+    }
+
+    /**
+     * Length of an entry's local record as {@link #write} rebuilds it from compressed data: header
+     * without extra field, then the data, no descriptor. A source record of the same length and
+     * without the data descriptor flag is reproduced byte for byte.
+     */
+    static long rebuiltLength(Entry e) {
+        if ((e.flags() & FLAG_DATA_DESCRIPTOR) != 0) return -1;
+        return LOC_LEN + u16(le(e.record()), 28) + e.compressedSize();
+    }
+
+    static byte[] localHeader(Entry e, int flags) {
+        byte[] name = Arrays.copyOfRange(e.record(), CEN_LEN, CEN_LEN + u16(le(e.record()), 28));
+        ByteBuffer h = ByteBuffer.allocate(LOC_LEN + name.length).order(ByteOrder.LITTLE_ENDIAN);
+        h.putInt(LOC_SIG);
+        h.put(e.record(), 6, 22); // version needed .. uncompressed size, same layout as the local header
+        h.putShort(6, (short) flags);
+        h.position(26);
+        h.putShort((short) name.length);
+        h.putShort((short) 0);
+        h.put(name);
+        return h.array();
+    }
+
+    private static byte[] patchRecord(byte[] record, int flags, long offset) {
+        ByteBuffer b = le(record.clone());
+        b.putShort(8, (short) flags);
+        b.putInt(42, (int) offset);
+        return b.array();
+    }
+
+    /** Offset of an entry's compressed data, found by reading its local header. */
+    static long dataStart(FileChannel ch, Entry e) throws IOException {
+        ByteBuffer h = ByteBuffer.allocate(LOC_LEN).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(ch, h, e.offset());
+        if (h.getInt(0) != LOC_SIG) throw new IOException("Bad local header for " + e.name() + " at " + e.offset());
+        return e.offset() + LOC_LEN + u16(h, 26) + u16(h, 28);
+    }
+
+    /**
+     * Reads every entry back so a CRC or size mismatch anywhere fails loudly, and returns the
+     * SHA-256 (lowercase hex) of the whole file, hashed in the same single read.
+     */
+    static String verify(Path jar, int expectedEntries) throws IOException {
+        int count = 0;
+        byte[] buf = new byte[64 * 1024];
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (DigestInputStream raw = new DigestInputStream(Files.newInputStream(jar), md);
+             ZipInputStream zin = new ZipInputStream(raw)) {
+            while (zin.getNextEntry() != null) {
+                while (zin.read(buf) != -1) {
+                    if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Jar verification cancelled");
+                }
+                count++;
+            }
+            // The central directory is not read by ZipInputStream; feed the rest of the file to the digest
+            while (raw.read(buf) != -1) {
+                // digest only
+            }
+        }
+        if (count != expectedEntries) throw new IOException("Jar has " + count + " entries, expected " + expectedEntries);
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    // ------------------------ Reading ------------------------
+
+    static CentralDirectory readCentralDirectory(Path jar) throws IOException {
+        try (FileChannel ch = FileChannel.open(jar, StandardOpenOption.READ)) {
+            return readCentralDirectory(ch);
+        }
+    }
+
+    static CentralDirectory readCentralDirectory(FileChannel ch) throws IOException {
+        long size = ch.size();
+        int tailLen = (int) Math.min(size, TAIL_LEN);
+        ByteBuffer tail = ByteBuffer.allocate(tailLen);
+        readFully(ch, tail, size - tailLen);
+        byte[] t = tail.array();
+        int eocdPos = findEocd(t);
+        if (eocdPos < 0) throw new IOException("Jar has no end of central directory record");
+        ByteBuffer e = le(t);
+        long cdSize = u32(e, eocdPos + 12);
+        long cdOffset = u32(e, eocdPos + 16);
+        if (cdOffset == 0xFFFFFFFFL) throw new IOException("ZIP64 jars are not supported");
+        ByteBuffer cd = ByteBuffer.allocate((int) cdSize);
+        readFully(ch, cd, cdOffset);
+        return new CentralDirectory(parseEntries(cd.array()), cdOffset, cdSize, Arrays.copyOfRange(t, eocdPos, t.length));
+    }
+
+    static List<Entry> parseEntries(byte[] cd) throws IOException {
+        ByteBuffer b = le(cd);
+        List<Entry> entries = new ArrayList<>();
+        int p = 0;
+        while (p + CEN_LEN <= cd.length) {
+            if (b.getInt(p) != CEN_SIG) throw new IOException("Bad central directory record at " + p);
+            int nlen = u16(b, p + 28), xlen = u16(b, p + 30), clen = u16(b, p + 32);
+            int len = CEN_LEN + nlen + xlen + clen;
+            if (p + len > cd.length) throw new IOException("Truncated central directory");
+            long csize = u32(b, p + 20), usize = u32(b, p + 24), offset = u32(b, p + 42);
+            if (csize == 0xFFFFFFFFL || usize == 0xFFFFFFFFL || offset == 0xFFFFFFFFL) {
+                throw new IOException("ZIP64 entries are not supported");
+            }
+            String name = new String(cd, p + CEN_LEN, nlen, StandardCharsets.UTF_8);
+            entries.add(new Entry(name, u16(b, p + 8), u16(b, p + 10), u32(b, p + 16), csize, usize, offset,
+                Arrays.copyOfRange(cd, p, p + len)));
+            p += len;
+        }
+        return entries;
+    }
+
+    /** Scans backwards for the EOCD signature whose comment length reaches exactly to the end. */
+    static int findEocd(byte[] tail) {
+        ByteBuffer b = le(tail);
+        for (int i = tail.length - EOCD_LEN; i >= 0; i--) {
+            if (b.getInt(i) == EOCD_SIG && i + EOCD_LEN + u16(b, i + 20) == tail.length) return i;
+        }
+        return -1;
+    }
+
+    // ------------------------ Channel helpers ------------------------
+
+    static long copy(FileChannel from, long position, long count, FileChannel to, long toPosition) throws IOException {
+        long done = 0;
+        while (done < count) {
+            long n = from.transferTo(position + done, count - done, to.position(toPosition + done));
+            if (n <= 0) throw new IOException("Unexpected end of file while copying entry data");
+            done += n;
+        }
+        return done;
+    }
+
+    static int writeFully(FileChannel ch, ByteBuffer b, long position) throws IOException {
+        int n = b.remaining();
+        long pos = position;
+        while (b.hasRemaining()) pos += ch.write(b, pos);
+        return n;
+    }
+
+    static void readFully(FileChannel ch, ByteBuffer b, long position) throws IOException {
+        long pos = position;
+        while (b.hasRemaining()) {
+            int n = ch.read(b, pos);
+            if (n < 0) throw new IOException("Unexpected end of file");
+            pos += n;
+        }
+    }
+
+    static ByteBuffer le(byte[] data) {
+        return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static int u16(ByteBuffer b, int index) {
+        return Short.toUnsignedInt(b.getShort(index));
+    }
+
+    static long u32(ByteBuffer b, int index) {
+        return Integer.toUnsignedLong(b.getInt(index));
+    }
+}
@@ -0,0 +1,129 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.http.HttpHeaders;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("API Quota Tests")
+class ApiQuotaTest {
+
+    private static final String HOST = "api.github.com";
+    private static final long NOW = 1_700_000_000_000L;
+
+    @TempDir
+    Path tmp;
+
+    private static HttpHeaders headers(String... kv) {
+        Map<String, List<String>> map = new HashMap<>();
+        for (int i = 0; i + 1 < kv.length; i += 2) map.put(kv[i], List.of(kv[i + 1]));
+        return HttpHeaders.of(map, (k, v) -> true);
+    }
+
+    private static HttpHeaders quota(int limit, int remaining, long resetAtMillis) {
+        return headers("X-RateLimit-Limit", Integer.toString(limit), "X-RateLimit-Remaining", Integer.toString(remaining),
+            "X-RateLimit-Reset", Long.toString(resetAtMillis / 1000));
+    }
+
+    @Test
+    @DisplayName("Should allow everything for unknown hosts and plenty of quota")
+    void testAllow() {
+        var q = new ApiQuota(tmp.resolve("ratelimit.properties"));
+        assertEquals(ApiQuota.Action.ALLOW, q.check(HOST, true, NOW).action());
+        q.record(HOST, 200, quota(60, 40, NOW + 3_600_000), NOW);
+        assertEquals(ApiQuota.Action.ALLOW, q.check(HOST, true, NOW).action());
+        assertEquals(40, q.state(HOST).remaining());
+    }
+
+    @Test
+    @DisplayName("Should skip background checks once the quota reaches the reserve")
+    void testReserve() {
+        var q = new ApiQuota(tmp.resolve("ratelimit.properties"));
+        q.record(HOST, 200, quota(60, ApiQuota.reserve(60), NOW + 3_600_000), NOW);
+        assertEquals(ApiQuota.Action.SKIP, q.check(HOST, true, NOW).action());
+        assertEquals(ApiQuota.Action.ALLOW, q.check(HOST, false, NOW).action());
+        // A new window restores the full quota
+        assertEquals(ApiQuota.Action.ALLOW, q.check(HOST, true, NOW + 3_600_001).action());
+    }
+
+    @Test
+    @DisplayName("Should delay foreground checks briefly and skip long waits when exhausted")
+    void testExhausted() {
+        var q = new ApiQuota(tmp.resolve("ratelimit.properties"));
+        q.record(HOST, 403, quota(60, 0, NOW + 5_000), NOW);
+        var d = q.check(HOST, false, NOW);
+        assertEquals(ApiQuota.Action.DELAY, d.action());
+        assertEquals(5_000, d.delayMillis());
+        assertEquals(ApiQuota.Action.SKIP, q.check(HOST, true, NOW).action());
+
+        q.record(HOST, 403, quota(60, 0, NOW + 600_000), NOW);
+        assertEquals(ApiQuota.Action.SKIP, q.check(HOST, false, NOW).action());
+        assertEquals(ApiQuota.Action.ALLOW, q.check(HOST, false, NOW + 600_000).action());
+    }
+
+    @Test
+    @DisplayName("Should honour Retry-After on secondary limits")
+    void testRetryAfter() {
+        var q = new ApiQuota(tmp.resolve("ratelimit.properties"));
+        q.record(HOST, 429, headers("Retry-After", "120"), NOW);
+        assertEquals(ApiQuota.Action.SKIP, q.check(HOST, false, NOW + 60_000).action());
+        assertEquals(ApiQuota.Action.ALLOW, q.check(HOST, false, NOW + 120_000).action());
+    }
+
+    @Test
+    @DisplayName("Should parse Retry-After as seconds or an HTTP date")
+    void testParseRetryAfter() {
+        assertEquals(NOW + 30_000, ApiQuota.parseRetryAfter("30", NOW));
+        assertEquals(1_445_412_480_000L, ApiQuota.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT", NOW));
+        assertEquals(-1, ApiQuota.parseRetryAfter("soon", NOW));
+        assertEquals(-1, ApiQuota.parseRetryAfter(null, NOW));
+    }
+
+    @Test
+    @DisplayName("Should ignore responses without quota headers")
+    void testIgnoresPlainResponses() {
+        var q = new ApiQuota(tmp.resolve("ratelimit.properties"));
+        q.record("github.com", 200, headers("ETag", "\"x\""), NOW);
+        assertNull(q.state("github.com"));
+    }
+
+    @Test
+    @DisplayName("Should share state through the file with other launchers")
+    void testPersistence() {
+        Path file = tmp.resolve("ratelimit.properties");
+        new ApiQuota(file).record(HOST, 403, quota(60, 0, NOW + 600_000), NOW);
+
+        var other = new ApiQuota(file);
+        assertEquals(0, other.state(HOST).remaining());
+        assertEquals(NOW + 600_000, other.state(HOST).resetAt());
+        assertEquals(ApiQuota.Action.SKIP, other.check(HOST, false, NOW).action());
+    }
+
+    @Test
+    @DisplayName("Should leave a readable file and no temp files when launchers save at once")
+    void testConcurrentSaves() throws Exception {
+        Path file = tmp.resolve("ratelimit.properties");
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            var quota = new ApiQuota(file);
+            threads.add(Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < 50; i++) quota.record(HOST, 200, quota(60, i, NOW + 600_000), NOW);
+            }));
+        }
+        for (Thread t : threads) t.join();
+
+        assertEquals(60, new ApiQuota(file).state(HOST).limit());
+        try (var files = Files.list(tmp)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+}
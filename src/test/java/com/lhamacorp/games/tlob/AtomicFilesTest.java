@@ -0,0 +1,52 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Atomic Files Tests")
+class AtomicFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should create missing directories and replace existing content")
+    void testWrite() throws Exception {
+        Path target = tempDir.resolve("a/b/state.properties");
+        AtomicFiles.write(target, "old".getBytes(StandardCharsets.UTF_8));
+        AtomicFiles.write(target, "new".getBytes(StandardCharsets.UTF_8));
+        assertEquals("new", Files.readString(target));
+
+        AtomicFiles.write(target, out -> out.write(ByteBuffer.wrap("channel".getBytes(StandardCharsets.UTF_8))));
+        assertEquals("channel", Files.readString(target));
+        assertNoTempFiles(target.getParent());
+    }
+
+    @Test
+    @DisplayName("Should keep the old content and no temp file when writing fails")
+    void testFailedWrite() throws Exception {
+        Path target = Files.writeString(tempDir.resolve("state.properties"), "old");
+        assertThrows(IOException.class, () -> AtomicFiles.write(target, out -> {
+            out.write(ByteBuffer.wrap("partial".getBytes(StandardCharsets.UTF_8)));
+            throw new IOException("disk full");
+        }));
+        assertEquals("old", Files.readString(target));
+        assertNoTempFiles(tempDir);
+    }
+
+    private static void assertNoTempFiles(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(), files.filter(f -> f.toString().endsWith(".tmp")).toList());
+        }
+    }
+}
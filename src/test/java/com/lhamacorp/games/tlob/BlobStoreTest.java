@@ -0,0 +1,131 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Blob Store Tests")
+class BlobStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    /** Writes version {@code version} of the shared test jar to {@code v<version>.jar}. */
+    private Path jar(int version) throws IOException {
+        return Files.write(tempDir.resolve("v" + version + ".jar"), TestReleases.jar(TestReleases.contents(version), false));
+    }
+
+    private static long blobCount(Path store) throws IOException {
+        try (Stream<Path> files = Files.walk(store.resolve("blobs"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    @DisplayName("Should store shared entries once across versions")
+    void testDeduplication() throws Exception {
+        Path dir = tempDir.resolve("store");
+        BlobStore store = new BlobStore(dir);
+
+        int entries = TestReleases.contents(1).size();
+        assertEquals(entries, store.ingest(jar(1), "game-1"));
+        assertEquals(TestReleases.CHANGED_ENTRIES, store.ingest(jar(2), "game-2"));
+        assertEquals(0, store.ingest(jar(2), "game-2"));
+        assertEquals(entries + TestReleases.CHANGED_ENTRIES, blobCount(dir));
+        assertTrue(store.has("game-1"));
+        assertFalse(store.has("game-3"));
+    }
+
+    @Test
+    @DisplayName("Should materialize a stored version into a working jar")
+    void testMaterialize() throws Exception {
+        BlobStore store = new BlobStore(tempDir.resolve("store"));
+        store.ingest(jar(1), "game-1");
+        store.ingest(jar(2), "game-2");
+
+        Path out = tempDir.resolve("restored.jar");
+        store.materialize("game-1", out);
+
+        try (ZipFile zip = new ZipFile(out.toFile())) {
+            assertEquals(TestReleases.contents(1).size(), zip.size());
+            for (var e : TestReleases.contents(1).entrySet()) {
+                assertArrayEquals(e.getValue(), zip.getInputStream(zip.getEntry(e.getKey())).readAllBytes());
+            }
+        }
+        assertThrows(IOException.class, () -> store.materialize("game-9", tempDir.resolve("missing.jar")));
+    }
+
+    @Test
+    @DisplayName("Should record the digest of the jar each version was taken from")
+    void testDigest() throws Exception {
+        Path v1 = jar(1);
+        BlobStore store = new BlobStore(tempDir.resolve("store"));
+        store.ingest(v1, "game-1");
+
+        assertEquals(TestReleases.sha256(Files.readAllBytes(v1)), store.digest("game-1"));
+        assertNull(store.digest("game-9"));
+
+        // Manifests written before digests were recorded still materialize, without a digest
+        Path manifest = tempDir.resolve("store/manifests/game-1.manifest");
+        List<String> lines = new ArrayList<>(Files.readAllLines(manifest));
+        lines.removeIf(l -> l.startsWith("sha256 "));
+        Files.write(manifest, lines);
+        assertNull(store.digest("game-1"));
+        store.materialize("game-1", tempDir.resolve("restored.jar"));
+    }
+
+    @Test
+    @DisplayName("Should find stored entries by content")
+    void testFind() throws Exception {
+        Path v1 = jar(1);
+        Path v2 = jar(2);
+        BlobStore store = new BlobStore(tempDir.resolve("store"));
+        store.ingest(v1, "game-1");
+
+        int found = 0;
+        for (var e : ZipLayout.readCentralDirectory(v2).entries()) {
+            Path blob = store.find(e);
+            if (blob != null) {
+                found++;
+                assertEquals(e.compressedSize(), Files.size(blob));
+            }
+        }
+        assertEquals(TestReleases.contents(2).size() - TestReleases.CHANGED_ENTRIES, found);
+    }
+
+    @Test
+    @DisplayName("Should prune old versions and their unshared blobs")
+    void testPrune() throws Exception {
+        Path dir = tempDir.resolve("store");
+        BlobStore store = new BlobStore(dir);
+        for (int v = 1; v <= 3; v++) {
+            store.ingest(jar(v), "game-" + v);
+            Files.setLastModifiedTime(dir.resolve("manifests/game-" + v + ".manifest"), FileTime.fromMillis(v * 1000L));
+        }
+        store.ingest(Files.write(tempDir.resolve("launcher.jar"), TestReleases.jar(Map.of("l.txt", "launcher"))), "launcher-1");
+        int entries = TestReleases.contents(1).size();
+        // Version 1's entries, the ones versions 2 and 3 changed, and the launcher's single entry
+        assertEquals(entries + 2 * TestReleases.CHANGED_ENTRIES + 1, blobCount(dir));
+
+        store.prune("game-", 2);
+
+        assertFalse(store.has("game-1"));
+        assertTrue(store.has("game-2"));
+        assertTrue(store.has("game-3"));
+        assertTrue(store.has("launcher-1"));
+        assertEquals(entries + TestReleases.CHANGED_ENTRIES + 1, blobCount(dir));
+        store.materialize("game-2", tempDir.resolve("restored.jar"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CDS Archive Tests")
+class CdsArchiveTest {
+
+    @TempDir
+    Path tmp;
+
+    private String fakeJdk(String name, String version) throws IOException {
+        Path home = tmp.resolve(name);
+        Files.createDirectories(home.resolve("bin"));
+        Files.writeString(home.resolve("release"), "IMPLEMENTOR=\"Test\"\nJAVA_VERSION=\"" + version + "\"\n");
+        return home.resolve("bin").resolve("java").toString();
+    }
+
+    private static String archiveOf(List<String> options) {
+        return options.get(0).substring(options.get(0).indexOf('=') + 1);
+    }
+
+    @Test
+    @DisplayName("Should record the archive on the first launch and reuse it afterwards")
+    void testRecordThenReuse() throws IOException {
+        String java = fakeJdk("jdk17", "17.0.2");
+        Path jar = Files.writeString(tmp.resolve("game.jar"), "jar");
+        var cds = new CdsArchive(tmp.resolve("cds"));
+
+        List<String> first = cds.jvmOptions(java, jar, "aa", List.of());
+        assertEquals(1, first.size());
+        assertTrue(first.get(0).startsWith("-XX:ArchiveClassesAtExit="));
+
+        // An empty file (the game was killed while dumping) does not count as an archive
+        Path archive = Path.of(archiveOf(first));
+        Files.createFile(archive);
+        assertTrue(cds.jvmOptions(java, jar, "aa", List.of()).get(0).startsWith("-XX:ArchiveClassesAtExit="));
+
+        Files.writeString(archive, "archive");
+        assertEquals(List.of("-XX:SharedArchiveFile=" + archive), cds.jvmOptions(java, jar, "aa", List.of()));
+    }
+
+    @Test
+    @DisplayName("Should invalidate the archive when the game jar, the Java runtime or the VM options change")
+    void testInvalidation() throws IOException {
+        String jdk17 = fakeJdk("jdk17", "17.0.2");
+        String jdk21 = fakeJdk("jdk21", "21.0.1");
+        Path jar = Files.writeString(tmp.resolve("game.jar"), "jar");
+        var cds = new CdsArchive(tmp.resolve("cds"));
+
+        Path archive = Path.of(archiveOf(cds.jvmOptions(jdk17, jar, "aa", List.of())));
+        Files.writeString(archive, "archive");
+
+        List<String> newGame = cds.jvmOptions(jdk17, jar, "bb", List.of());
+        assertTrue(newGame.get(0).startsWith("-XX:ArchiveClassesAtExit="));
+        assertNotEquals(archive.toString(), archiveOf(newGame));
+        assertFalse(Files.exists(archive), "stale archive is deleted");
+
+        Path archive2 = Path.of(archiveOf(newGame));
+        Files.writeString(archive2, "archive");
+        List<String> newJdk = cds.jvmOptions(jdk21, jar, "bb", List.of());
+        assertTrue(newJdk.get(0).startsWith("-XX:ArchiveClassesAtExit="));
+        assertNotEquals(archive2.toString(), archiveOf(newJdk));
+
+        // A different GC cannot map the old archive either
+        Path archive3 = Path.of(archiveOf(newJdk));
+        Files.writeString(archive3, "archive");
+        List<String> newGc = cds.jvmOptions(jdk21, jar, "bb", List.of("-XX:+UseSerialGC"));
+        assertNotEquals(archive3.toString(), archiveOf(newGc));
+    }
+
+    @Test
+    @DisplayName("Should fall back to size and mtime when the jar hash is unknown")
+    void testFingerprintWithoutSha() throws IOException {
+        Path jar = Files.writeString(tmp.resolve("game.jar"), "jar");
+        var runtime = CdsArchive.detect(fakeJdk("jdk17", "17.0.2"));
+        String before = CdsArchive.fingerprint(jar, null, runtime, List.of());
+        assertEquals(before, CdsArchive.fingerprint(jar, null, runtime, List.of()));
+
+        Files.writeString(jar, "a bigger jar");
+        assertNotEquals(before, CdsArchive.fingerprint(jar, null, runtime, List.of()));
+    }
+
+    @Test
+    @DisplayName("Should use the AOT cache on JDK 25 and newer")
+    void testAotCache() throws IOException {
+        String java = fakeJdk("jdk25", "25");
+        Path jar = Files.writeString(tmp.resolve("game.jar"), "jar");
+        var cds = new CdsArchive(tmp.resolve("cds"));
+
+        List<String> first = cds.jvmOptions(java, jar, "aa", List.of());
+        assertTrue(first.get(0).startsWith("-XX:AOTCacheOutput="));
+        assertTrue(first.get(0).endsWith(".aot"));
+
+        Files.writeString(Path.of(archiveOf(first)), "cache");
+        assertTrue(cds.jvmOptions(java, jar, "aa", List.of()).get(0).startsWith("-XX:AOTCache="));
+    }
+
+    @Test
+    @DisplayName("Should skip CDS for old or unidentifiable runtimes")
+    void testSkipped() throws IOException {
+        Path jar = Files.writeString(tmp.resolve("game.jar"), "jar");
+        var cds = new CdsArchive(tmp.resolve("cds"));
+
+        assertEquals(List.of(), cds.jvmOptions("java", jar, "aa", List.of()));
+        assertEquals(List.of(), cds.jvmOptions(fakeJdk("jdk11", "11.0.20"), jar, "aa", List.of()));
+        assertEquals(List.of(), cds.jvmOptions(tmp.resolve("nowhere/bin/java").toString(), jar, "aa", List.of()));
+    }
+
+    @Test
+    @DisplayName("Should identify the launcher's own runtime without reading its release file")
+    void testDetectCurrentRuntime() throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        var runtime = CdsArchive.detect(java);
+        assertNotNull(runtime);
+        assertEquals(Runtime.version(), runtime.version());
+    }
+}
@@ -0,0 +1,91 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("In-Process Game Tests")
+class InProcessGameTest {
+
+    private static final String RAN = "tlob.test.fakeGame";
+
+    /** Stands in for the game; copied into a jar and loaded from there. */
+    public static class FakeGame {
+        public static void main(String[] args) {
+            System.setProperty(RAN, FakeGame.class.getClassLoader().getName() + ":"
+                + Thread.currentThread().getContextClassLoader().getName() + ":" + String.join(",", args));
+        }
+    }
+
+    @TempDir
+    Path tmp;
+
+    private Path jar(String mainClass) throws IOException {
+        var manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (mainClass != null) manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass);
+        Path jar = tmp.resolve("game.jar");
+        String entry = FakeGame.class.getName().replace('.', '/') + ".class";
+        try (var out = new JarOutputStream(Files.newOutputStream(jar), manifest);
+             InputStream in = FakeGame.class.getClassLoader().getResourceAsStream(entry)) {
+            out.putNextEntry(new JarEntry(entry));
+            in.transferTo(out);
+        }
+        return jar;
+    }
+
+    @Test
+    @DisplayName("Should run the jar's Main-Class in its own class loader")
+    void testRunsIsolated() throws Exception {
+        System.clearProperty(RAN);
+        var game = InProcessGame.load(jar(FakeGame.class.getName()));
+        assertEquals(FakeGame.class.getName(), game.mainClass());
+
+        Thread t = game.start(new String[]{"a", "b"});
+        t.join(5_000);
+        assertFalse(t.isAlive());
+        // Loaded from the jar, not the launcher's class path
+        assertEquals("game:game:a,b", System.getProperty(RAN));
+    }
+
+    @Test
+    @DisplayName("Should fail to load when the jar cannot be run")
+    void testLoadFailures() throws IOException {
+        assertThrows(IOException.class, () -> InProcessGame.load(jar(null)));
+        assertThrows(IOException.class, () -> InProcessGame.load(jar("com.example.Missing")));
+        assertThrows(IOException.class, () -> InProcessGame.load(jar(InProcessGameTest.class.getName())));
+    }
+
+    @Test
+    @DisplayName("Should only run in-process when the working directory is the game's")
+    void testWorkingDirectory() throws IOException {
+        Path home = Files.createDirectory(tmp.resolve("home"));
+        assertTrue(InProcessGame.sameDirectory(home, tmp.resolve(".").resolve("home")));
+        assertFalse(InProcessGame.sameDirectory(tmp, home));
+        assertFalse(InProcessGame.sameDirectory(home, tmp.resolve("missing")));
+
+        assertTrue(InProcessGame.runsIn(Path.of(System.getProperty("user.dir"))));
+        assertFalse(InProcessGame.runsIn(home));
+    }
+
+    @Test
+    @DisplayName("Should read the max heap from JVM options")
+    void testMaxHeap() {
+        assertEquals(-1, InProcessGame.maxHeap(List.of("-XX:+UseG1GC")));
+        assertEquals(512L << 20, InProcessGame.maxHeap(List.of("-Xms64m", "-Xmx512m")));
+        assertEquals(2L << 30, InProcessGame.maxHeap(List.of("-Xmx1g", "-Xmx2G")));
+        assertEquals(1_000_000, InProcessGame.maxHeap(List.of("-Xmx1000000")));
+    }
+}
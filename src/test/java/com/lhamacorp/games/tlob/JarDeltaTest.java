@@ -0,0 +1,176 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Jar Delta Tests")
+class JarDeltaTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    /** A no-op progress sink. */
+    private static final SegmentedDownloader.Progress NO_PROGRESS = new SegmentedDownloader.Progress() {
+        @Override
+        public void started(long totalBytes, long alreadyDownloaded) {
+        }
+
+        @Override
+        public void transferred(long bytes) {
+        }
+    };
+
+    @Test
+    @DisplayName("Should rebuild the new jar fetching only changed entries")
+    void testDeltaUpdate() throws Exception {
+        Path local = tempDir.resolve("game.jar");
+        Files.write(local, TestReleases.jar(TestReleases.contents(1), false));
+        byte[] remoteJar = TestReleases.jar(TestReleases.contents(2), false);
+        Map<String, byte[]> expected = TestReleases.contents(2);
+
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.put("/game.jar", remoteJar);
+            Path target = tempDir.resolve("game.jar.delta");
+
+            var result = new JarDelta(http, "test").update(server.url("/game.jar"), local, target, null, NO_PROGRESS);
+
+            assertNotNull(result);
+            assertEquals(expected.size(), result.entries());
+            assertEquals(3, result.changed()); // manifest + two classes
+            assertTrue(result.bytesFetched() < remoteJar.length / 4, "fetched " + result.bytesFetched());
+            assertEquals(TestReleases.sha256(Files.readAllBytes(target)),
+                result.sha256());
+            try (ZipFile zip = new ZipFile(target.toFile())) {
+                assertEquals(expected.size(), zip.size());
+                for (var e : expected.entrySet()) {
+                    assertArrayEquals(e.getValue(), zip.getInputStream(zip.getEntry(e.getKey())).readAllBytes());
+                }
+            }
+            assertFalse(Files.exists(tempDir.resolve("game.jar.delta.ranges")));
+        }
+    }
+
+    @Test
+    @DisplayName("Should take entries missing locally from the blob store instead of fetching them")
+    void testDeltaFromStore() throws Exception {
+        Path local = tempDir.resolve("game.jar");
+        Files.write(local, TestReleases.jar(TestReleases.contents(1), false));
+        byte[] remoteJar = TestReleases.jar(TestReleases.contents(2), false);
+        Path previous = tempDir.resolve("previous.jar");
+        Files.write(previous, remoteJar);
+        BlobStore store = new BlobStore(tempDir.resolve("store"));
+        store.ingest(previous, "game-2");
+
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.put("/game.jar", remoteJar);
+            Path target = tempDir.resolve("game.jar.delta");
+
+            var result = new JarDelta(http, "test", store).update(server.url("/game.jar"), local, target, null, NO_PROGRESS);
+
+            assertNotNull(result);
+            assertEquals(0, result.changed());
+            assertEquals(3, result.fromStore());
+            assertEquals(1, server.requests.get()); // just the central directory
+            try (ZipFile zip = new ZipFile(target.toFile())) {
+                for (var e : TestReleases.contents(2).entrySet()) {
+                    assertArrayEquals(e.getValue(), zip.getInputStream(zip.getEntry(e.getKey())).readAllBytes());
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should rebuild the release asset byte for byte when checking a published digest")
+    void testPublishedDigest() throws Exception {
+        Path local = tempDir.resolve("game.jar");
+        Files.write(local, TestReleases.jar(TestReleases.contents(1), true));
+        byte[] remoteJar = TestReleases.jar(TestReleases.contents(2), true);
+
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.put("/game.jar", remoteJar);
+            Path target = tempDir.resolve("game.jar.delta");
+
+            var result = new JarDelta(http, "test").update(server.url("/game.jar"), local, target, TestReleases.sha256(remoteJar), NO_PROGRESS);
+
+            assertNotNull(result);
+            assertEquals(3, result.changed());
+            assertEquals(TestReleases.sha256(remoteJar), result.sha256());
+            assertArrayEquals(remoteJar, Files.readAllBytes(target));
+
+            assertThrows(IOException.class, () -> new JarDelta(http, "test")
+                .update(server.url("/game.jar"), local, target, TestReleases.sha256(new byte[0]), NO_PROGRESS));
+        }
+    }
+
+    @Test
+    @DisplayName("Should skip the delta when a rebuilt jar could not match the published digest")
+    void testPublishedDigestUnreachable() throws Exception {
+        Path local = tempDir.resolve("game.jar");
+        Files.write(local, TestReleases.jar(TestReleases.contents(1), false));
+        byte[] remoteJar = TestReleases.jar(TestReleases.contents(2), false);
+
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.put("/game.jar", remoteJar);
+            Path target = tempDir.resolve("game.jar.delta");
+
+            // Reused entries have data descriptors, which the rebuilt headers drop
+            assertNull(new JarDelta(http, "test").update(server.url("/game.jar"), local, target, TestReleases.sha256(remoteJar), NO_PROGRESS));
+            assertEquals(1, server.requests.get()); // just the central directory
+            assertFalse(Files.exists(target));
+        }
+    }
+
+    @Test
+    @DisplayName("Should decline when most of the jar changed")
+    void testMostlyChanged() throws Exception {
+        Path local = tempDir.resolve("game.jar");
+        Files.write(local, TestReleases.jar(Map.of("a.txt", "unrelated")));
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.put("/game.jar", TestReleases.jar(TestReleases.contents(2), false));
+            assertNull(new JarDelta(http, "test").update(server.url("/game.jar"), local, tempDir.resolve("out.jar"), null, NO_PROGRESS));
+        }
+    }
+
+    @Test
+    @DisplayName("Should decline without range support")
+    void testNoRanges() throws Exception {
+        Path local = tempDir.resolve("game.jar");
+        Files.write(local, TestReleases.jar(TestReleases.contents(1), false));
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.rangesSupported = false;
+            server.put("/game.jar", TestReleases.jar(TestReleases.contents(2), false));
+            assertNull(new JarDelta(http, "test").update(server.url("/game.jar"), local, tempDir.resolve("out.jar"), null, NO_PROGRESS));
+        }
+    }
+
+    @Test
+    @DisplayName("Should coalesce nearby ranges")
+    void testCoalesce() {
+        var merged = JarDelta.coalesce(List.of(new long[]{100_000, 200_000}, new long[]{0, 10}, new long[]{20, 30}));
+        assertEquals(2, merged.size());
+        assertArrayEquals(new long[]{0, 30}, merged.get(0));
+        assertArrayEquals(new long[]{100_000, 200_000}, merged.get(1));
+    }
+
+    @Test
+    @DisplayName("Should locate the end of central directory")
+    void testFindEocd() throws Exception {
+        byte[] data = TestReleases.jar(Map.of("a.txt", "hello"));
+        int pos = ZipLayout.findEocd(data);
+        assertEquals(data.length - 22, pos);
+        assertEquals(-1, ZipLayout.findEocd(new byte[100]));
+    }
+}
@@ -0,0 +1,139 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Launch Profile Tests")
+class LaunchProfileTest {
+
+    private static final long GB = 1L << 30;
+
+    private static Properties defaults() throws IOException {
+        var p = new Properties();
+        p.load(new StringReader(LaunchProfile.DEFAULT_RULES));
+        return p;
+    }
+
+    private static String pick(int cores, long memory, boolean container) throws IOException {
+        return LaunchProfile.choose(defaults(), new Properties(), new LaunchProfile.Hardware(cores, memory, container)).name();
+    }
+
+    @Nested
+    @DisplayName("Default rules")
+    class DefaultRules {
+
+        @Test
+        @DisplayName("Should match hardware tiers in rule order")
+        void testTiers() throws IOException {
+            assertEquals("low-memory", pick(8, 4 * GB, false));
+            assertEquals("low-memory", pick(2, 2 * GB, true));
+            assertEquals("container", pick(16, 32 * GB, true));
+            assertEquals("few-cores", pick(2, 8 * GB, false));
+            assertEquals("workstation", pick(16, 64 * GB, false));
+            assertEquals("desktop", pick(8, 8 * GB, false));
+            assertEquals("desktop", pick(4, 16 * GB, false));
+        }
+
+        @Test
+        @DisplayName("Should resolve a rule to its options")
+        void testOptions() throws IOException {
+            var choice = LaunchProfile.choose(defaults(), new Properties(), new LaunchProfile.Hardware(4, 2 * GB, false));
+            assertEquals(List.of("-XX:+UseSerialGC"), choice.options());
+            assertFalse(choice.overridden());
+        }
+    }
+
+    @Nested
+    @DisplayName("Overrides")
+    class Overrides {
+
+        @Test
+        @DisplayName("Should force a profile by name and append extra options")
+        void testForcedProfile() throws IOException {
+            var overrides = new Properties();
+            overrides.setProperty("profile", "few-cores");
+            overrides.setProperty("extraOptions", "-Dgame.fps=144");
+            var choice = LaunchProfile.choose(defaults(), overrides, new LaunchProfile.Hardware(16, 64 * GB, false));
+            assertEquals("few-cores", choice.name());
+            assertEquals(List.of("-Xms128m", "-XX:+UseSerialGC", "-Dgame.fps=144"), choice.options());
+            assertTrue(choice.overridden());
+        }
+
+        @Test
+        @DisplayName("Should replace options entirely")
+        void testReplacedOptions() throws IOException {
+            var overrides = new Properties();
+            overrides.setProperty("options", "  -Xmx3g   -XX:+UseParallelGC ");
+            var choice = LaunchProfile.choose(defaults(), overrides, new LaunchProfile.Hardware(4, 8 * GB, false));
+            assertEquals("desktop", choice.name());
+            assertEquals(List.of("-Xmx3g", "-XX:+UseParallelGC"), choice.options());
+        }
+
+        @Test
+        @DisplayName("Should persist the profile override next to the rules")
+        void testSaveOverride(@TempDir Path dir) throws IOException {
+            var profiles = new LaunchProfile(dir.resolve("launch-profiles.properties"), dir.resolve("launch.properties"));
+            var hw = new LaunchProfile.Hardware(16, 64 * GB, false);
+            assertEquals("workstation", profiles.choose(hw).name());
+            assertTrue(Files.exists(dir.resolve("launch-profiles.properties")), "default rules written for editing");
+            assertEquals(List.of("low-memory", "container", "few-cores", "workstation", "desktop"), profiles.profileNames());
+
+            profiles.saveProfileOverride("desktop");
+            assertEquals("desktop", profiles.choose(hw).name());
+            profiles.saveProfileOverride(null);
+            assertEquals("workstation", profiles.choose(hw).name());
+        }
+
+        @Test
+        @DisplayName("Should use edited rules and ignore invalid conditions")
+        void testEditedRules(@TempDir Path dir) throws IOException {
+            Files.writeString(dir.resolve("rules.properties"), """
+                rule.1.name=huge
+                rule.1.minCores=lots
+                rule.1.options=-Xmx8g
+                """);
+            var profiles = new LaunchProfile(dir.resolve("rules.properties"), dir.resolve("launch.properties"));
+            var choice = profiles.choose(new LaunchProfile.Hardware(1, GB, false));
+            assertEquals("huge", choice.name());
+            assertEquals(List.of("-Xmx8g"), choice.options());
+        }
+
+        @Test
+        @DisplayName("Should fall back to JVM defaults when no rule matches")
+        void testNoMatch() {
+            var rules = new Properties();
+            rules.setProperty("rule.1.minCores", "64");
+            rules.setProperty("rule.1.options", "-Xmx8g");
+            var choice = LaunchProfile.choose(rules, new Properties(), new LaunchProfile.Hardware(4, 8 * GB, false));
+            assertEquals("default", choice.name());
+            assertEquals(List.of(), choice.options());
+        }
+    }
+
+    @Test
+    @DisplayName("Should parse cgroup memory limits")
+    void testCgroupLimit() {
+        assertEquals(Long.MAX_VALUE, LaunchProfile.parseCgroupLimit("max\n"));
+        assertEquals(Long.MAX_VALUE, LaunchProfile.parseCgroupLimit("9223372036854771712\n"));
+        assertEquals(2 * GB, LaunchProfile.parseCgroupLimit("2147483648\n"));
+    }
+
+    @Test
+    @DisplayName("Should detect some cores and memory on this machine")
+    void testDetect() {
+        var hw = LaunchProfile.detect();
+        assertTrue(hw.cores() > 0);
+        assertTrue(hw.memoryBytes() > 0);
+    }
+}
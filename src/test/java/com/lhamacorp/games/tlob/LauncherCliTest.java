@@ -0,0 +1,141 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Launcher CLI Tests")
+class LauncherCliTest {
+
+    @Test
+    @DisplayName("Should parse any combination of flags")
+    void testParse() {
+        var o = LauncherCli.Options.parse(new String[]{"--update", "--launch", "--json"});
+        assertFalse(o.check());
+        assertTrue(o.update());
+        assertTrue(o.launch());
+        assertTrue(o.json());
+        assertTrue(LauncherCli.Options.parse(new String[]{"--check"}).check());
+    }
+
+    @Test
+    @DisplayName("Should reject unknown options and option lists with no action")
+    void testParseErrors() {
+        assertThrows(IllegalArgumentException.class, () -> LauncherCli.Options.parse(new String[]{"--chek"}));
+        assertThrows(IllegalArgumentException.class, () -> LauncherCli.Options.parse(new String[]{"--json"}));
+    }
+
+    @Test
+    @DisplayName("Should write events as single-line JSON objects")
+    void testJson() {
+        assertEquals("{\"event\":\"check\",\"target\":\"game\",\"installed\":\"1.0.0\",\"latest\":null,\"updateAvailable\":false}",
+            LauncherCli.json("check", "target", "game", "installed", "1.0.0", "latest", null, "updateAvailable", false));
+        assertEquals("{\"event\":\"progress\",\"done\":512,\"total\":1024}",
+            LauncherCli.json("progress", "done", 512L, "total", 1024));
+        assertEquals("{\"event\":\"error\",\"message\":\"bad \\\"tag\\\"\\nnext\"}",
+            LauncherCli.json("error", "message", "bad \"tag\"\nnext"));
+    }
+
+    @Nested
+    @DisplayName("Run")
+    class Run {
+
+        @TempDir
+        Path tmp;
+
+        private TestReleases releases;
+
+        @BeforeEach
+        void setUp() throws Exception {
+            TestReleases.resetHome();
+            releases = new TestReleases(tmp);
+        }
+
+        /** Runs the CLI with {@code args} against {@code spec}; returns the exit code followed by the stdout lines. */
+        private List<String> run(String spec, String... args) {
+            var buf = new ByteArrayOutputStream();
+            LauncherCore core = new LauncherCore(spec);
+            try {
+                int code = LauncherCli.run(args, () -> core, new PrintStream(buf, true, StandardCharsets.UTF_8));
+                return Stream.concat(Stream.of(Integer.toString(code)),
+                    buf.toString(StandardCharsets.UTF_8).lines()).toList();
+            } finally {
+                core.shutdown();
+            }
+        }
+
+        @Test
+        @DisplayName("Should exit 3 from --check when a game update is available")
+        void testCheckUpdateAvailable() throws Exception {
+            releases.publish("game", "v1.0.0", TestReleases.jar(Map.of("a.txt", "one")));
+            releases.publish("launcher", "v1.0.0", TestReleases.jar(Map.of("l.txt", "launcher")));
+
+            List<String> result = run(releases.spec(), "--check", "--json");
+            assertEquals(3, result.size());
+            assertEquals(Integer.toString(LauncherCli.EXIT_UPDATE_AVAILABLE), result.get(0));
+            assertEquals("{\"event\":\"check\",\"target\":\"game\",\"installed\":\"0.0.0\",\"latest\":\"v1.0.0\","
+                + "\"updateAvailable\":true,\"cached\":false}", result.get(1));
+            assertTrue(result.get(2).startsWith("{\"event\":\"check\",\"target\":\"launcher\","), result.get(2));
+        }
+
+        @Test
+        @DisplayName("Should install with --update, after which --check exits 0")
+        void testUpdateThenCheck() throws Exception {
+            String sha = releases.publish("game", "v1.0.0", TestReleases.jar(Map.of("a.txt", "one")));
+            releases.publish("launcher", "v1.0.0", TestReleases.jar(Map.of("l.txt", "launcher")));
+
+            List<String> update = run(releases.spec(), "--update", "--json");
+            assertEquals(Integer.toString(LauncherCli.EXIT_OK), update.get(0));
+            assertTrue(update.get(1).startsWith("{\"event\":\"check\",\"target\":\"game\","), update.get(1));
+            assertEquals("{\"event\":\"installed\",\"target\":\"game\",\"version\":\"v1.0.0\",\"sha256\":\"" + sha + "\"}",
+                update.get(update.size() - 1));
+
+            List<String> check = run(releases.spec(), "--check", "--json");
+            assertEquals(Integer.toString(LauncherCli.EXIT_OK), check.get(0));
+            assertEquals("{\"event\":\"check\",\"target\":\"game\",\"installed\":\"v1.0.0\",\"latest\":\"v1.0.0\","
+                + "\"updateAvailable\":false,\"cached\":false}", check.get(1));
+        }
+
+        @Test
+        @DisplayName("Should exit 2 on bad options without creating a core or printing to stdout")
+        void testUsage() {
+            var buf = new ByteArrayOutputStream();
+            int code = LauncherCli.run(new String[]{"--chek"}, () -> fail("core created"),
+                new PrintStream(buf, true, StandardCharsets.UTF_8));
+            assertEquals(LauncherCli.EXIT_USAGE, code);
+            assertEquals(0, buf.size());
+        }
+
+        @Test
+        @DisplayName("Should exit 1 with an error event when no release info can be had")
+        void testUnreachableSource() {
+            List<String> result = run(tmp.resolve("missing").toUri().toString(), "--check", "--json");
+            assertEquals(Integer.toString(LauncherCli.EXIT_FAILED), result.get(0));
+            assertEquals(2, result.size());
+            assertTrue(result.get(1).startsWith("{\"event\":\"error\",\"message\":"), result.get(1));
+        }
+
+        @Test
+        @DisplayName("Should print plain text lines without --json")
+        void testTextOutput() throws Exception {
+            releases.publish("game", "v1.0.0", TestReleases.jar(Map.of("a.txt", "one")));
+            releases.publish("launcher", "v1.0.0", TestReleases.jar(Map.of("l.txt", "launcher")));
+
+            List<String> result = run(releases.spec(), "--check");
+            assertEquals(Integer.toString(LauncherCli.EXIT_UPDATE_AVAILABLE), result.get(0));
+            assertEquals("game: installed 0.0.0, latest v1.0.0 (update available)", result.get(1));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Launcher Core Tests")
+class LauncherCoreTest {
+
+    @TempDir
+    Path tmp;
+
+    private TestReleases releases;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TestReleases.resetHome();
+        releases = new TestReleases(tmp);
+    }
+
+    private static void checkAndInstall(LauncherCore core) throws Exception {
+        core.apply(core.game, core.fetchLatest(core.game), false);
+        core.installGame(LauncherCore.SILENT);
+    }
+
+    private static String installedSha256() throws Exception {
+        var p = new Properties();
+        try (var in = Files.newInputStream(LauncherCore.INSTALLED_PROPS)) {
+            p.load(in);
+        }
+        return p.getProperty("sha256");
+    }
+
+    @Test
+    @DisplayName("Should record the published digest for a version restored from the store")
+    void testStoreInstallRecordsPublishedDigest() throws Exception {
+        byte[] v1 = TestReleases.jar(Map.of("a.txt", "one", "b.txt", "shared"));
+        byte[] v2 = TestReleases.jar(Map.of("a.txt", "two", "b.txt", "shared"));
+        LauncherCore core = new LauncherCore(releases.spec());
+        try {
+            String sha1 = releases.publish("game", "v1.0.0", v1);
+            checkAndInstall(core);
+            releases.publish("game", "v2.0.0", v2);
+            checkAndInstall(core);
+
+            // Roll back: the jar is gone from the release source, so only the store can provide it
+            releases.publish("game", "v1.0.0", v1);
+            releases.unpublishJar("game", "v1.0.0");
+            checkAndInstall(core);
+            assertEquals("v1.0.0", core.game.localVersion);
+            // The restored jar's local headers are rebuilt, so its own hash is not the release's
+            assertNotEquals(sha1, TestReleases.sha256(Files.readAllBytes(LauncherCore.GAME_JAR)));
+            assertEquals(sha1, core.game.localSha256);
+            assertEquals(sha1, installedSha256());
+
+            // The same bytes republished under a new tag need no install
+            releases.publish("game", "v1.0.1", v1);
+            core.apply(core.game, core.fetchLatest(core.game), false);
+            assertEquals("v1.0.1", core.game.localVersion);
+            assertFalse(core.updateAvailable(core.game));
+        } finally {
+            core.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should download instead of restoring a stored version whose digest changed")
+    void testStoreSkippedForRepublishedTag() throws Exception {
+        LauncherCore core = new LauncherCore(releases.spec());
+        try {
+            releases.publish("game", "v1.0.0", TestReleases.jar(Map.of("a.txt", "one")));
+            checkAndInstall(core);
+            releases.publish("game", "v2.0.0", TestReleases.jar(Map.of("a.txt", "two")));
+            checkAndInstall(core);
+
+            // v1.0.0 republished with other content: the stored copy must not be used
+            String sha = releases.publish("game", "v1.0.0", TestReleases.jar(Map.of("a.txt", "one, fixed")));
+            checkAndInstall(core);
+            assertEquals(sha, core.game.localSha256);
+            assertEquals(sha, TestReleases.sha256(Files.readAllBytes(LauncherCore.GAME_JAR)));
+        } finally {
+            core.shutdown();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.lhamacorp.games.tlob;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Launcher Events Tests")
+class LauncherEventsTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    @DisplayName("Should record phase events with their URL, bytes, status and version")
+    void testRecordedFields() throws Exception {
+        Path file = tmp.resolve("test.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.lhamacorp.tlob.Download");
+            recording.enable("com.lhamacorp.tlob.HttpRequest");
+            recording.start();
+
+            var download = new LauncherEvents.DownloadEvent();
+            download.begin();
+            download.url = "https://example.com/game.jar";
+            download.version = "v1.2.0";
+            download.bytes = 4096;
+            download.connections = 3;
+            download.commit();
+
+            var request = new LauncherEvents.HttpRequestEvent();
+            request.begin();
+            request.method = "HEAD";
+            request.status = 200;
+            request.commit();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent download = events.stream()
+            .filter(e -> e.getEventType().getName().equals("com.lhamacorp.tlob.Download")).findFirst().orElseThrow();
+        assertEquals("https://example.com/game.jar", download.getString("url"));
+        assertEquals("v1.2.0", download.getString("version"));
+        assertEquals(4096, download.getLong("bytes"));
+        assertEquals(3, download.getInt("connections"));
+        assertTrue(download.getEventType().getCategoryNames().contains("TLOB Launcher"));
+
+        RecordedEvent request = events.stream()
+            .filter(e -> e.getEventType().getName().equals("com.lhamacorp.tlob.HttpRequest")).findFirst().orElseThrow();
+        assertEquals("HEAD", request.getString("method"));
+        assertEquals(200, request.getInt("status"));
+        assertEquals(-1, request.getLong("bytes"));
+    }
+
+    @Test
+    @DisplayName("Should start a recording only when -Dtlob.jfr asks for one")
+    void testStartRecording() {
+        String old = System.getProperty("tlob.jfr");
+        try {
+            System.clearProperty("tlob.jfr");
+            assertNull(LauncherEvents.startRecording("test"));
+            System.setProperty("tlob.jfr", "false");
+            assertNull(LauncherEvents.startRecording("test"));
+
+            Path file = tmp.resolve("out/launcher.jfr");
+            System.setProperty("tlob.jfr", file.toString());
+            try (Recording recording = LauncherEvents.startRecording("test")) {
+                assertNotNull(recording);
+                assertEquals(file, recording.getDestination());
+                assertTrue(recording.getDumpOnExit());
+            }
+        } finally {
+            if (old == null) System.clearProperty("tlob.jfr");
+            else System.setProperty("tlob.jfr", old);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Launcher Metrics Tests")
+class LauncherMetricsTest {
+
+    @Nested
+    @DisplayName("Histogram")
+    class Histograms {
+
+        @Test
+        @DisplayName("Should place latencies in power-of-two buckets")
+        void testBuckets() {
+            assertEquals(0, LauncherMetrics.Histogram.bucket(0));
+            assertEquals(0, LauncherMetrics.Histogram.bucket(1));
+            assertEquals(1, LauncherMetrics.Histogram.bucket(2));
+            assertEquals(2, LauncherMetrics.Histogram.bucket(3));
+            assertEquals(2, LauncherMetrics.Histogram.bucket(4));
+            assertEquals(10, LauncherMetrics.Histogram.bucket(1024));
+            assertEquals(11, LauncherMetrics.Histogram.bucket(1025));
+            assertEquals(LauncherMetrics.Histogram.BUCKETS - 1, LauncherMetrics.Histogram.bucket(Long.MAX_VALUE));
+        }
+
+        @Test
+        @DisplayName("Should report count, mean, max and bucketed percentiles")
+        void testStatistics() {
+            var h = new LauncherMetrics.Histogram();
+            assertEquals(0, h.percentile(0.5));
+            for (int i = 1; i <= 100; i++) h.record(i * 10);
+            assertEquals(100, h.count());
+            assertEquals(505.0, h.mean(), 0.001);
+            assertEquals(1000, h.max());
+            // The median (500 ms) falls in the (256, 512] bucket
+            assertEquals(512, h.percentile(0.50));
+            // Bucket bounds above the largest sample are capped at it
+            assertEquals(1000, h.percentile(0.99));
+        }
+
+        @Test
+        @DisplayName("Should not lose updates under concurrent recording")
+        void testConcurrent() throws Exception {
+            var metrics = new LauncherMetrics();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                threads.add(Thread.ofVirtual().start(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        metrics.downloads.increment();
+                        metrics.downloadLatency.record(i % 50);
+                    }
+                }));
+            }
+            for (Thread t : threads) t.join();
+            assertEquals(8000, metrics.downloads.get());
+            assertEquals(8000, metrics.downloadLatency.count());
+            assertEquals(49, metrics.downloadLatency.max());
+        }
+    }
+
+    @Nested
+    @DisplayName("MBean")
+    class MBean {
+
+        @Test
+        @DisplayName("Should expose counters and histogram statistics as read-only attributes")
+        void testAttributes() throws Exception {
+            var metrics = new LauncherMetrics();
+            metrics.checks.add(3);
+            metrics.checkLatency.record(120);
+
+            assertEquals(3L, metrics.getAttribute("checks"));
+            assertEquals(1L, metrics.getAttribute("checks.latency.count"));
+            assertEquals(120L, metrics.getAttribute("checks.latency.maxMillis"));
+            assertThrows(AttributeNotFoundException.class, () -> metrics.getAttribute("nope"));
+
+            var names = new ArrayList<String>();
+            for (MBeanAttributeInfo info : metrics.getMBeanInfo().getAttributes()) {
+                assertTrue(info.isReadable());
+                assertFalse(info.isWritable());
+                names.add(info.getName());
+            }
+            assertTrue(names.containsAll(List.of("checks", "downloads.bytes", "launches.failed",
+                "selfUpdates.latency.p95Millis")));
+        }
+
+        @Test
+        @DisplayName("Should be readable from the platform MBean server once registered")
+        void testRegister() throws Exception {
+            var metrics = new LauncherMetrics();
+            assertTrue(metrics.register());
+            // A second launcher core in the same JVM takes the name over
+            var replacement = new LauncherMetrics();
+            assertTrue(replacement.register());
+            replacement.launches.increment();
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(LauncherMetrics.OBJECT_NAME);
+            try {
+                assertEquals(1L, server.getAttribute(name, "launches"));
+                assertEquals(0L, server.getAttribute(name, "selfUpdates"));
+            } finally {
+                server.unregisterMBean(name);
+            }
+        }
+    }
+}
@@ -26,20 +26,14 @@ class LauncherTest {
     private static class TestHelper {
         private static Method isNewerMethod;
         private static Method parseIntMethod;
-        private static Method extractMethod;
-        private static Method extractFirstJarUrlMethod;
         
         static {
             try {
-                isNewerMethod = Launcher.class.getDeclaredMethod("isNewer", String.class, String.class);
-                parseIntMethod = Launcher.class.getDeclaredMethod("parseInt", String.class);
-                extractMethod = Launcher.class.getDeclaredMethod("extract", String.class, String.class);
-                extractFirstJarUrlMethod = Launcher.class.getDeclaredMethod("extractFirstJarUrl", String.class);
+                isNewerMethod = LauncherCore.class.getDeclaredMethod("isNewer", String.class, String.class);
+                parseIntMethod = LauncherCore.class.getDeclaredMethod("parseInt", String.class);
                 
                 isNewerMethod.setAccessible(true);
                 parseIntMethod.setAccessible(true);
-                extractMethod.setAccessible(true);
-                extractFirstJarUrlMethod.setAccessible(true);
             } catch (NoSuchMethodException e) {
                 throw new RuntimeException("Failed to access private methods for testing", e);
             }
@@ -61,22 +55,6 @@ class LauncherTest {
                 throw new RuntimeException("Failed to invoke parseInt method", e);
             }
         }
-        
-        static String extract(String json, String regex) {
-            try {
-                return (String) extractMethod.invoke(null, json, regex);
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to invoke extract method", e);
-            }
-        }
-        
-        static String extractFirstJarUrl(String json) {
-            try {
-                return (String) extractFirstJarUrlMethod.invoke(null, json);
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to invoke extractFirstJarUrl method", e);
-            }
-        }
     }
     
     @BeforeEach
@@ -189,54 +167,6 @@ class LauncherTest {
         }
     }
     
-    @Nested
-    @DisplayName("JSON Extraction Tests")
-    class JsonExtractionTests {
-        
-        @Test
-        @DisplayName("Should extract version from JSON")
-        void testExtractVersion() throws Exception {
-            String json = "{\"tag_name\": \"v1.0.0\", \"other\": \"value\"}";
-            String version = TestHelper.extract(json, "\"tag_name\"\\s*:\\s*\"([^\"]+)\"");
-            assertEquals("v1.0.0", version);
-        }
-        
-        @Test
-        @DisplayName("Should extract JAR URL from JSON")
-        void testExtractJarUrl() throws Exception {
-            String json = "{\"assets\": [{\"browser_download_url\": \"https://example.com/game.jar\"}]}";
-            String url = TestHelper.extractFirstJarUrl(json);
-            assertEquals("https://example.com/game.jar", url);
-        }
-        
-        @Test
-        @DisplayName("Should handle missing JSON patterns")
-        void testMissingPatterns() throws Exception {
-            String json = "{\"other\": \"value\"}";
-            String version = TestHelper.extract(json, "\"tag_name\"\\s*:\\s*\"([^\"]+)\"");
-            assertNull(version);
-            
-            String url = TestHelper.extractFirstJarUrl(json);
-            assertNull(url);
-        }
-        
-        @Test
-        @DisplayName("Should extract first JAR URL from multiple assets")
-        void testMultipleAssets() throws Exception {
-            String json = """
-                {
-                    "assets": [
-                        {"browser_download_url": "https://example.com/source.zip"},
-                        {"browser_download_url": "https://example.com/game.jar"},
-                        {"browser_download_url": "https://example.com/other.jar"}
-                    ]
-                }
-                """;
-            String url = TestHelper.extractFirstJarUrl(json);
-            assertEquals("https://example.com/game.jar", url);
-        }
-    }
-    
     @Nested
     @DisplayName("File Operations Tests")
     class FileOperationsTests {
@@ -346,31 +276,6 @@ class LauncherTest {
             assertTrue(TestHelper.isNewer("1..0", "invalid")); // "1..0" parses to 1, "invalid" parses to 0
             assertFalse(TestHelper.isNewer("invalid", "1..0"));
         }
-        
-        @Test
-        @DisplayName("Should handle empty JSON gracefully")
-        void testEmptyJson() throws Exception {
-            String emptyJson = "";
-            String version = TestHelper.extract(emptyJson, "\"tag_name\"\\s*:\\s*\"([^\"]+)\"");
-            assertNull(version);
-            
-            String url = TestHelper.extractFirstJarUrl(emptyJson);
-            assertNull(url);
-        }
-        
-        @Test
-        @DisplayName("Should handle null JSON gracefully")
-        void testNullJson() throws Exception {
-            // The extract method throws NullPointerException when given null
-            // This is expected behavior for the current implementation
-            assertThrows(RuntimeException.class, () -> {
-                TestHelper.extract(null, "\"tag_name\"\\s*:\\s*\"([^\"]+)\"");
-            });
-            
-            assertThrows(RuntimeException.class, () -> {
-                TestHelper.extractFirstJarUrl(null);
-            });
-        }
     }
     
     @Nested
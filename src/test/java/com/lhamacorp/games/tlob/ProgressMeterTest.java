@@ -0,0 +1,84 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Progress Meter Tests")
+class ProgressMeterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    @DisplayName("Should count bytes from many threads without losing any")
+    void testConcurrentAdds() throws Exception {
+        var meter = new ProgressMeter();
+        meter.start(-1, 0);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                for (int j = 0; j < 10_000; j++) meter.add(3);
+            }));
+        }
+        for (Thread t : threads) t.join();
+        assertEquals(8 * 10_000 * 3, meter.done());
+    }
+
+    @Test
+    @DisplayName("Should compute rate and ETA from samples")
+    void testRateAndEta() {
+        var meter = new ProgressMeter();
+        meter.start(10_000_000, 0);
+        meter.sample(SECOND);
+        meter.add(1_000_000);
+        var snap = meter.sample(2 * SECOND);
+
+        assertEquals(1_000_000, snap.done());
+        assertEquals(10, snap.percent());
+        assertEquals(1_000_000, snap.bytesPerSecond(), 1);
+        assertEquals(9, snap.etaSeconds());
+    }
+
+    @Test
+    @DisplayName("Should smooth out rate spikes")
+    void testSmoothing() {
+        var meter = new ProgressMeter();
+        meter.start(100_000_000, 0);
+        long now = SECOND;
+        meter.sample(now);
+        for (int i = 0; i < 10; i++) {
+            meter.add(1_000_000);
+            now += SECOND;
+            meter.sample(now);
+        }
+        // One burst at 10x the steady rate moves the average only part of the way
+        meter.add(10_000_000);
+        now += SECOND;
+        var snap = meter.sample(now);
+        assertTrue(snap.bytesPerSecond() > 1_000_000 && snap.bytesPerSecond() < 5_000_000, "rate " + snap.bytesPerSecond());
+    }
+
+    @Test
+    @DisplayName("Should include already downloaded bytes when resuming")
+    void testResumeStart() {
+        var meter = new ProgressMeter();
+        meter.start(1000, 400);
+        var snap = meter.sample(SECOND);
+        assertEquals(40, snap.percent());
+        assertEquals(-1, snap.etaSeconds());
+    }
+
+    @Test
+    @DisplayName("Should format the bar text")
+    void testFormat() {
+        assertEquals("50% · 2.0 MB/s · 1:05 left",
+            ProgressMeter.format(new ProgressMeter.Snapshot(50, 100, 2 * 1024 * 1024, 65)));
+        assertEquals("100%", ProgressMeter.format(new ProgressMeter.Snapshot(100, 100, 0, -1)));
+        assertEquals("512 B", ProgressMeter.format(new ProgressMeter.Snapshot(512, -1, 0, -1)));
+        assertEquals("1:01:01", ProgressMeter.formatDuration(3661));
+    }
+}
@@ -0,0 +1,89 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Release Cache Tests")
+class ReleaseCacheTest {
+
+    private static final String URL = "https://api.github.com/repos/dbohry/the-legend-of-belga/releases/latest";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should return null when nothing is cached")
+    void testEmptyCache() {
+        ReleaseCache cache = new ReleaseCache(tempDir.resolve("cache"));
+        assertNull(cache.load(URL));
+    }
+
+    @Test
+    @DisplayName("Should round-trip body and validators")
+    void testStoreAndLoad() {
+        ReleaseCache cache = new ReleaseCache(tempDir.resolve("cache"));
+        cache.store(URL, "{\"tag_name\": \"v1.2.3\"}", "W/\"abc\"", "Tue, 01 Oct 2024 10:00:00 GMT");
+
+        ReleaseCache.Entry entry = cache.load(URL);
+        assertNotNull(entry);
+        assertEquals("{\"tag_name\": \"v1.2.3\"}", entry.body());
+        assertEquals("W/\"abc\"", entry.etag());
+        assertEquals("Tue, 01 Oct 2024 10:00:00 GMT", entry.lastModified());
+        assertTrue(entry.fetchedAt() > 0);
+    }
+
+    @Test
+    @DisplayName("Should keep entries for different URLs apart")
+    void testSeparateKeys() {
+        ReleaseCache cache = new ReleaseCache(tempDir);
+        String other = "https://api.github.com/repos/dbohry/the-legend-of-belga-launcher/releases/latest";
+        cache.store(URL, "game", "\"1\"", null);
+        cache.store(other, "launcher", null, null);
+
+        assertEquals("game", cache.load(URL).body());
+        assertEquals("launcher", cache.load(other).body());
+        assertNull(cache.load(other).etag());
+    }
+
+    @Test
+    @DisplayName("Should ignore a body without metadata")
+    void testMissingMetadata() throws Exception {
+        ReleaseCache cache = new ReleaseCache(tempDir);
+        Files.writeString(tempDir.resolve(ReleaseCache.key(URL) + ".json"), "{}");
+        assertNull(cache.load(URL));
+    }
+
+    @Test
+    @DisplayName("Should survive concurrent writers sharing the cache directory")
+    void testConcurrentWriters() throws Exception {
+        // Separate instances stand in for separate launcher processes
+        List<Thread> writers = new ArrayList<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (int w = 0; w < 4; w++) {
+            String body = "{\"tag_name\": \"v" + w + "\"}";
+            writers.add(Thread.ofVirtual().start(() -> {
+                ReleaseCache cache = new ReleaseCache(tempDir);
+                for (int i = 0; i < 50; i++) {
+                    if (!cache.store(URL, body, "\"" + i + "\"", null)) failed.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread t : writers) t.join();
+
+        assertEquals(0, failed.get());
+
+        assertTrue(new ReleaseCache(tempDir).load(URL).body().startsWith("{\"tag_name\": \"v"));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(List.of(), files.filter(f -> f.toString().endsWith(".tmp")).toList());
+        }
+    }
+}
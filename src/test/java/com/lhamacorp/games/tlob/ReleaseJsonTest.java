@@ -0,0 +1,182 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Release JSON Tests")
+class ReleaseJsonTest {
+
+    @Nested
+    @DisplayName("Field Extraction Tests")
+    class FieldExtractionTests {
+
+        @Test
+        @DisplayName("Should extract version from JSON")
+        void testExtractVersion() throws Exception {
+            var release = ReleaseJson.parse("{\"tag_name\": \"v1.0.0\", \"other\": \"value\"}");
+            assertEquals("v1.0.0", release.tag());
+            assertNull(release.jar());
+        }
+
+        @Test
+        @DisplayName("Should extract JAR asset from JSON")
+        void testExtractJarAsset() throws Exception {
+            var release = ReleaseJson.parse("""
+                {"assets": [{"name": "game.jar", "size": 12345,
+                  "digest": "sha256:abc", "browser_download_url": "https://example.com/game.jar"}]}
+                """);
+            assertEquals("https://example.com/game.jar", release.jarUrl());
+            assertEquals("game.jar", release.jar().name());
+            assertEquals(12345, release.jarSize());
+            assertEquals("sha256:abc", release.jarDigest());
+        }
+
+        @Test
+        @DisplayName("Should expose only well-formed SHA-256 digests")
+        void testSha256Digest() {
+            String hex = "ab".repeat(32);
+            assertEquals(hex, new ReleaseJson.Asset("g.jar", "u", 1, "sha256:" + hex.toUpperCase()).sha256());
+            assertNull(new ReleaseJson.Asset("g.jar", "u", 1, "sha256:abc").sha256());
+            assertNull(new ReleaseJson.Asset("g.jar", "u", 1, "sha512:" + hex).sha256());
+            assertNull(new ReleaseJson.Asset("g.jar", "u", 1, null).sha256());
+            assertNull(new ReleaseJson.Release("v1", null).jarSha256());
+        }
+
+        @Test
+        @DisplayName("Should handle missing fields")
+        void testMissingFields() throws Exception {
+            var release = ReleaseJson.parse("{\"other\": \"value\"}");
+            assertNull(release.tag());
+            assertNull(release.jarUrl());
+            assertEquals(-1, release.jarSize());
+        }
+
+        @Test
+        @DisplayName("Should extract first JAR URL from multiple assets")
+        void testMultipleAssets() throws Exception {
+            var release = ReleaseJson.parse("""
+                {
+                    "assets": [
+                        {"browser_download_url": "https://example.com/source.zip"},
+                        {"browser_download_url": "https://example.com/game.jar"},
+                        {"browser_download_url": "https://example.com/other.jar"}
+                    ]
+                }
+                """);
+            assertEquals("https://example.com/game.jar", release.jarUrl());
+        }
+
+        @Test
+        @DisplayName("Should decode escapes and skip nested values")
+        void testEscapesAndNesting() throws Exception {
+            var release = ReleaseJson.parse("""
+                {
+                    "author": {"login": "dbohry", "tags": ["a", {"x": "}]"}]},
+                    "name": "Quote \\" and brace } in a string",
+                    "tag_name": "v\\u0031.2.3",
+                    "draft": false,
+                    "digest": null,
+                    "assets": [
+                        {"uploader": {"id": 1}, "digest": null, "size": 7,
+                         "browser_download_url": "https://example.com/a\\/b.jar"}
+                    ]
+                }
+                """);
+            assertEquals("v1.2.3", release.tag());
+            assertEquals("https://example.com/a/b.jar", release.jarUrl());
+            assertEquals(7, release.jarSize());
+            assertNull(release.jarDigest());
+        }
+    }
+
+    @Nested
+    @DisplayName("Streaming Tests")
+    class StreamingTests {
+
+        @Test
+        @DisplayName("Should stop reading once tag and JAR asset are known")
+        void testEarlyExit() throws Exception {
+            byte[] head = """
+                {"tag_name": "v2.0.0", "assets": [{"browser_download_url": "https://example.com/game.jar"}],
+                 "body": "
+                """.getBytes(StandardCharsets.UTF_8);
+            // A stream that fails if the parser reads past the assets into the release notes
+            InputStream in = new InputStream() {
+                int pos = 0;
+
+                @Override
+                public int read() throws IOException {
+                    if (pos < head.length) return head[pos++];
+                    throw new IOException("read past the needed fields");
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (pos >= head.length) throw new IOException("read past the needed fields");
+                    int n = Math.min(len, head.length - pos);
+                    System.arraycopy(head, pos, b, off, n);
+                    pos += n;
+                    return n;
+                }
+            };
+            var release = ReleaseJson.parse(in);
+            assertEquals("v2.0.0", release.tag());
+            assertEquals("https://example.com/game.jar", release.jarUrl());
+        }
+
+        @Test
+        @DisplayName("Should round-trip the compact cache form")
+        void testToJsonRoundTrip() throws Exception {
+            var original = new ReleaseJson.Release("v1.0.0",
+                new ReleaseJson.Asset("game \"x\".jar", "https://example.com/game.jar", 42, "sha256:ff"));
+            var parsed = ReleaseJson.parse(new ByteArrayInputStream(original.toJson().getBytes(StandardCharsets.UTF_8)));
+            assertEquals(original, parsed);
+        }
+    }
+
+    @Nested
+    @DisplayName("Error Handling Tests")
+    class ErrorHandlingTests {
+
+        @Test
+        @DisplayName("Should handle empty JSON gracefully")
+        void testEmptyJson() throws Exception {
+            var release = ReleaseJson.parse("");
+            assertNull(release.tag());
+            assertNull(release.jarUrl());
+        }
+
+        @Test
+        @DisplayName("Should reject malformed JSON")
+        void testMalformedJson() {
+            assertThrows(IOException.class, () -> ReleaseJson.parse("{\"tag_name\": \"v1"));
+            assertThrows(IOException.class, () -> ReleaseJson.parse("[1, 2]"));
+        }
+
+        @Test
+        @DisplayName("Should fail instead of hanging on a body cut off inside a nested value")
+        void testTruncatedNestedValue() {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                assertThrows(EOFException.class, () -> ReleaseJson.parse("{\"author\": {\"login\": [1, {\"x\""));
+                assertThrows(IOException.class, () -> ReleaseJson.parse("{\"assets\":[{\"x\":"));
+                assertThrows(EOFException.class, () -> ReleaseJson.parse("{\"assets\":[{\"x\": {\"y\": [1"));
+            });
+        }
+
+        @Test
+        @DisplayName("Should handle null JSON")
+        void testNullJson() {
+            assertThrows(NullPointerException.class, () -> ReleaseJson.parse((String) null));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Release Source Tests")
+class ReleaseSourceTest {
+
+    private static final Map<String, String> APIS = Map.of(
+        "game", "https://api.github.com/repos/o/game/releases/latest",
+        "launcher", "https://api.github.com/repos/o/launcher/releases/latest");
+
+    private static final String INDEX = """
+        {"tag_name":"v1.2.0","body":"notes","assets":[
+          {"name":"game.jar","browser_download_url":"jars/game-1.2.0.jar","size":3,"digest":null}]}""";
+
+    @TempDir
+    Path tmp;
+
+    /** Plain GET + parse, like the core's fetcher without the cache. */
+    private static final ReleaseSource.Fetcher HTTP = url -> {
+        var resp = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(url)).build(),
+            HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = resp.body()) {
+            if (resp.statusCode() != 200) throw new IOException("HTTP " + resp.statusCode());
+            return ReleaseJson.parse(body);
+        }
+    };
+
+    /** A source that answers {@code release} (or fails when null) after {@code delayMillis}. */
+    private static ReleaseSource fixed(String name, long delayMillis, ReleaseJson.Release release) {
+        return new ReleaseSource() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public String indexUrl(String track) {
+                return "test://" + name + "/" + track;
+            }
+
+            @Override
+            public ReleaseJson.Release latest(String track) throws IOException, InterruptedException {
+                Thread.sleep(delayMillis);
+                if (release == null) throw new IOException(name + " is down");
+                return release;
+            }
+        };
+    }
+
+    private static ReleaseJson.Release release(String tag) {
+        return new ReleaseJson.Release(tag, new ReleaseJson.Asset("game.jar", "https://example.com/" + tag + ".jar", 1, null));
+    }
+
+    @Nested
+    @DisplayName("Configuration")
+    class Configuration {
+
+        @Test
+        @DisplayName("Should parse GitHub, mirror and directory sources in order")
+        void testParse() {
+            var sources = ReleaseSource.parse("github, https://mirror.lab/tlob ," + tmp.toUri(), APIS, HTTP);
+            assertEquals(3, sources.size());
+            assertTrue(sources.get(0) instanceof ReleaseSource.GitHub);
+            assertEquals(APIS.get("game"), sources.get(0).indexUrl("game"));
+            assertEquals("https://mirror.lab/tlob/launcher.json", sources.get(1).indexUrl("launcher"));
+            assertEquals(tmp.resolve("game.json").toUri().toString(), sources.get(2).indexUrl("game"));
+        }
+
+        @Test
+        @DisplayName("Should fall back to GitHub when nothing usable is configured")
+        void testParseFallback() {
+            var sources = ReleaseSource.parse("ftp://nope, ", APIS, HTTP);
+            assertEquals(1, sources.size());
+            assertEquals("github", sources.get(0).name());
+        }
+
+        @Test
+        @DisplayName("Should resolve relative jar URLs against the index and keep absolute ones")
+        void testResolve() throws IOException {
+            var relative = ReleaseSource.resolve(ReleaseJson.parse(INDEX), "https://mirror.lab/tlob/game.json");
+            assertEquals("https://mirror.lab/tlob/jars/game-1.2.0.jar", relative.jarUrl());
+            assertEquals(3, relative.jarSize());
+
+            var absolute = release("v2");
+            assertSame(absolute, ReleaseSource.resolve(absolute, "https://mirror.lab/tlob/game.json"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Sources")
+    class Sources {
+
+        @Test
+        @DisplayName("Should read a directory index and point at the jar next to it")
+        void testDirectory() throws Exception {
+            Files.writeString(tmp.resolve("game.json"), INDEX);
+            var release = new ReleaseSource.Directory(tmp).latest("game");
+            assertEquals("v1.2.0", release.tag());
+            assertEquals(tmp.resolve("jars/game-1.2.0.jar"), Path.of(URI.create(release.jarUrl())));
+            assertThrows(IOException.class, () -> new ReleaseSource.Directory(tmp).latest("launcher"));
+        }
+
+        @Test
+        @DisplayName("Should read a mirror index over HTTP")
+        void testMirror() throws Exception {
+            try (TestHttpServer server = new TestHttpServer()) {
+                server.put("/tlob/game.json", INDEX.getBytes(StandardCharsets.UTF_8));
+                var release = new ReleaseSource.Mirror(URI.create(server.url("/tlob")), HTTP).latest("game");
+                assertEquals("v1.2.0", release.tag());
+                assertEquals(server.url("/tlob/jars/game-1.2.0.jar"), release.jarUrl());
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Racing")
+    class Racing {
+
+        @Test
+        @DisplayName("Should take the first valid answer when slower sources miss the settle window")
+        void testFirstWins() throws Exception {
+            var sources = List.of(fixed("slow", 5_000, release("v9")), fixed("fast", 0, release("v1")));
+            long start = System.nanoTime();
+            var answer = ReleaseSource.race(sources, "game", Duration.ofSeconds(10));
+            assertEquals("fast", answer.source().name());
+            assertEquals("v1", answer.release().tag());
+            assertTrue(System.nanoTime() - start < 4_000_000_000L, "slow source must not be awaited");
+        }
+
+        @Test
+        @DisplayName("Should prefer a newer version from a slower source within the settle window")
+        void testNewestWins() throws Exception {
+            var sources = List.of(fixed("stale", 0, release("v1.0.0")), fixed("fresh", 300, release("v1.2.0")),
+                fixed("same", 100, release("v1.0.0")));
+            var answer = ReleaseSource.race(sources, "game", Duration.ofSeconds(10), Duration.ofSeconds(2));
+            assertEquals("fresh", answer.source().name());
+            assertEquals("v1.2.0", answer.release().tag());
+            assertTrue(answer.millis() >= 300);
+
+            // A tie keeps the earlier answer
+            var tied = List.of(fixed("first", 0, release("v1.0.0")), fixed("second", 100, release("v1.0.0")));
+            assertEquals("first", ReleaseSource.race(tied, "game", Duration.ofSeconds(10), Duration.ofSeconds(2)).source().name());
+        }
+
+        @Test
+        @DisplayName("Should skip failed and incomplete answers")
+        void testSkipsInvalid() throws Exception {
+            var sources = List.of(
+                fixed("down", 0, null),
+                fixed("empty", 0, new ReleaseJson.Release("v3", null)),
+                fixed("good", 200, release("v2")));
+            assertEquals("good", ReleaseSource.race(sources, "game", Duration.ofSeconds(10)).source().name());
+        }
+
+        @Test
+        @DisplayName("Should report every failure when no source answers validly")
+        void testAllFail() {
+            var sources = List.of(fixed("a", 0, null), fixed("b", 0, null));
+            IOException e = assertThrows(IOException.class, () -> ReleaseSource.race(sources, "game", Duration.ofSeconds(10)));
+            assertEquals(2, e.getSuppressed().length);
+        }
+
+        @Test
+        @DisplayName("Should give up at the timeout")
+        void testTimeout() {
+            var sources = List.of(fixed("a", 5_000, release("v1")), fixed("b", 5_000, release("v1")));
+            long start = System.nanoTime();
+            assertThrows(IOException.class, () -> ReleaseSource.race(sources, "game", Duration.ofMillis(100)));
+            assertTrue(System.nanoTime() - start < 4_000_000_000L);
+        }
+
+        @Test
+        @DisplayName("Should beat a slow HTTP mirror with a local directory")
+        void testLocalMirrorRace() throws Exception {
+            Files.writeString(tmp.resolve("game.json"), INDEX);
+            try (TestHttpServer server = new TestHttpServer()) {
+                server.put("/tlob/game.json", INDEX.getBytes(StandardCharsets.UTF_8));
+                ReleaseSource.Fetcher slowHttp = url -> {
+                    Thread.sleep(2_000);
+                    return HTTP.fetch(url);
+                };
+                var sources = List.of(new ReleaseSource.Mirror(URI.create(server.url("/tlob/")), slowHttp),
+                    new ReleaseSource.Directory(tmp));
+                var answer = ReleaseSource.race(sources, "game", Duration.ofSeconds(10));
+                assertTrue(answer.source() instanceof ReleaseSource.Directory);
+                assertTrue(answer.millis() < 2_000);
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Retry Policy Tests")
+class RetryPolicyTest {
+
+    @TempDir
+    Path tmp;
+
+    private static RetryPolicy plain(int attempts) {
+        return new RetryPolicy("test", attempts, Duration.ofMillis(10), Duration.ofMillis(40), Duration.ofSeconds(5), null);
+    }
+
+    /** A tracker whose p95 is {@code millis}. */
+    private static RetryPolicy.LatencyTracker observed(long millis) {
+        var tracker = new RetryPolicy.LatencyTracker(null);
+        for (int i = 0; i < 20; i++) tracker.record(millis);
+        return tracker;
+    }
+
+    @Nested
+    @DisplayName("Retries")
+    class Retries {
+
+        @Test
+        @DisplayName("Should retry transient failures until an attempt succeeds")
+        void testRetriesTransient() throws Exception {
+            AtomicInteger calls = new AtomicInteger();
+            String result = plain(4).call("op", null, () -> false, timeout -> {
+                if (calls.incrementAndGet() < 3) throw new IOException("connection reset");
+                return "ok";
+            });
+            assertEquals("ok", result);
+            assertEquals(3, calls.get());
+        }
+
+        @Test
+        @DisplayName("Should not retry permanent failures")
+        void testPermanent() {
+            AtomicInteger calls = new AtomicInteger();
+            assertThrows(RetryPolicy.PermanentException.class, () -> plain(4).call("op", null, () -> false, timeout -> {
+                calls.incrementAndGet();
+                throw RetryPolicy.statusFailure(404, "HTTP 404");
+            }));
+            assertEquals(1, calls.get());
+        }
+
+        @Test
+        @DisplayName("Should throw the last failure with earlier ones suppressed after the last attempt")
+        void testExhausted() {
+            AtomicInteger calls = new AtomicInteger();
+            IOException e = assertThrows(IOException.class, () -> plain(3).call("op", null, () -> false, timeout -> {
+                throw new IOException("fail " + calls.incrementAndGet());
+            }));
+            assertEquals("fail 3", e.getMessage());
+            assertEquals(1, e.getSuppressed().length);
+        }
+
+        @Test
+        @DisplayName("Should stay within the overall budget and shrink attempt timeouts to fit")
+        void testBudget() {
+            var policy = new RetryPolicy("test", 100, Duration.ofMillis(50), Duration.ofMillis(50), Duration.ofSeconds(10), null);
+            long start = System.nanoTime();
+            assertThrows(IOException.class, () -> policy.call("op", Duration.ofMillis(300), () -> false, timeout -> {
+                assertTrue(timeout.toMillis() <= 300);
+                throw new IOException("down");
+            }));
+            assertTrue(System.nanoTime() - start < 2_000_000_000L);
+        }
+
+        @Test
+        @DisplayName("Should classify HTTP statuses")
+        void testStatusFailure() {
+            assertTrue(RetryPolicy.statusFailure(404, "x") instanceof RetryPolicy.PermanentException);
+            assertTrue(RetryPolicy.isTransient(RetryPolicy.statusFailure(503, "x")));
+            assertTrue(RetryPolicy.isTransient(RetryPolicy.statusFailure(408, "x")));
+        }
+
+        @Test
+        @DisplayName("Should draw backoff with full jitter under an exponential cap")
+        void testBackoff() {
+            var policy = new RetryPolicy("test", 5, Duration.ofMillis(100), Duration.ofMillis(1000), null, null);
+            assertEquals(0, policy.backoffMillis(0, 0.0));
+            assertEquals(50, policy.backoffMillis(0, 0.5));
+            assertEquals(400, policy.backoffMillis(2, 1.0));
+            assertEquals(1000, policy.backoffMillis(5, 1.0));
+            assertEquals(1000, policy.backoffMillis(60, 1.0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Hedging")
+    class Hedging {
+
+        @Test
+        @DisplayName("Should send a duplicate after the p95 and take the faster answer")
+        void testHedges() throws Exception {
+            var policy = new RetryPolicy("test", 1, Duration.ofMillis(10), Duration.ofMillis(10), Duration.ofSeconds(10), observed(100));
+            AtomicInteger calls = new AtomicInteger();
+            long start = System.nanoTime();
+            String result = policy.call("op", null, () -> true, timeout -> {
+                if (calls.incrementAndGet() == 1) {
+                    Thread.sleep(5_000);
+                    return "slow";
+                }
+                return "hedge";
+            });
+            assertEquals("hedge", result);
+            assertEquals(2, calls.get());
+            assertTrue(System.nanoTime() - start < 3_000_000_000L);
+        }
+
+        @Test
+        @DisplayName("Should not hedge when the caller forbids it or the request is fast")
+        void testNoHedge() throws Exception {
+            var policy = new RetryPolicy("test", 1, Duration.ofMillis(10), Duration.ofMillis(10), Duration.ofSeconds(10), observed(100));
+            AtomicInteger calls = new AtomicInteger();
+            assertEquals("slow", policy.call("op", null, () -> false, timeout -> {
+                calls.incrementAndGet();
+                Thread.sleep(300);
+                return "slow";
+            }));
+            assertEquals("fast", policy.call("op", null, () -> true, timeout -> {
+                calls.incrementAndGet();
+                return "fast";
+            }));
+            assertEquals(2, calls.get());
+        }
+
+        @Test
+        @DisplayName("Should not hedge once the attempt's time is up")
+        void testNoHedgeWithoutTimeLeft() throws Exception {
+            var policy = new RetryPolicy("test", 1, Duration.ofMillis(10), Duration.ofMillis(10), Duration.ofMillis(200), observed(100));
+            AtomicInteger calls = new AtomicInteger();
+            // Deciding takes past the 200 ms timeout, so a duplicate would get none
+            String result = policy.call("op", null, () -> {
+                try {
+                    Thread.sleep(150);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return true;
+            }, timeout -> {
+                calls.incrementAndGet();
+                assertTrue(timeout.isPositive());
+                Thread.sleep(400);
+                return "first";
+            });
+            assertEquals("first", result);
+            assertEquals(1, calls.get());
+        }
+
+        @Test
+        @DisplayName("Should keep the p95 up when hedges keep winning")
+        void testLosersRecorded() throws Exception {
+            var tracker = new RetryPolicy.LatencyTracker(null);
+            for (int i = 0; i < RetryPolicy.LatencyTracker.MIN_SAMPLES; i++) tracker.record(150);
+            var policy = new RetryPolicy("test", 1, Duration.ofMillis(10), Duration.ofMillis(10), Duration.ofSeconds(10), tracker);
+            for (int i = 0; i < 12; i++) {
+                AtomicInteger calls = new AtomicInteger();
+                assertEquals("hedge", policy.call("op", null, () -> true, timeout -> {
+                    if (calls.incrementAndGet() == 1) {
+                        Thread.sleep(5_000);
+                        return "slow";
+                    }
+                    return "hedge";
+                }));
+            }
+            // The first requests took at least the 150 ms hedge delay each time
+            assertTrue(tracker.percentile(0.95) >= 150, "p95 " + tracker.percentile(0.95));
+        }
+
+        @Test
+        @DisplayName("Should record timed-out requests at their timeout")
+        void testTimeoutsRecorded() {
+            var tracker = new RetryPolicy.LatencyTracker(null);
+            var policy = new RetryPolicy("test", 1, Duration.ofMillis(10), Duration.ofMillis(10), Duration.ofMillis(700), tracker);
+            for (int i = 0; i < RetryPolicy.LatencyTracker.MIN_SAMPLES; i++) {
+                assertThrows(HttpTimeoutException.class, () -> policy.call("op", null, () -> false, timeout -> {
+                    throw new HttpTimeoutException("request timed out");
+                }));
+            }
+            assertEquals(700, tracker.percentile(0.5));
+        }
+
+        @Test
+        @DisplayName("Should fall back to the other request when one fails")
+        void testHedgeSurvivesFailure() throws Exception {
+            var policy = new RetryPolicy("test", 1, Duration.ofMillis(10), Duration.ofMillis(10), Duration.ofSeconds(10), observed(50));
+            AtomicInteger calls = new AtomicInteger();
+            String result = policy.call("op", null, () -> true, timeout -> {
+                if (calls.incrementAndGet() == 1) {
+                    Thread.sleep(300);
+                    return "first";
+                }
+                throw new IOException("hedge failed");
+            });
+            assertEquals("first", result);
+        }
+    }
+
+    @Nested
+    @DisplayName("Latency tracker")
+    class Latencies {
+
+        @Test
+        @DisplayName("Should report nearest-rank percentiles once enough samples exist")
+        void testPercentile() {
+            var tracker = new RetryPolicy.LatencyTracker(null);
+            tracker.record(10);
+            assertEquals(-1, tracker.percentile(0.95));
+            for (int i = 2; i <= 100; i++) tracker.record(i * 10);
+            assertEquals(64, tracker.count());
+            // Only the last 64 samples (370..1000) are kept
+            assertEquals(970, tracker.percentile(0.95));
+            assertEquals(1000, tracker.percentile(1.0));
+        }
+
+        @Test
+        @DisplayName("Should keep samples across runs")
+        void testPersistence() {
+            Path file = tmp.resolve("latency.properties");
+            var tracker = new RetryPolicy.LatencyTracker(file);
+            for (int i = 1; i <= 10; i++) tracker.record(i * 100);
+            // Saved every SAVE_EVERY samples, the rest on flush
+            assertEquals(RetryPolicy.LatencyTracker.SAVE_EVERY, new RetryPolicy.LatencyTracker(file).count());
+            tracker.flush();
+            var reloaded = new RetryPolicy.LatencyTracker(file);
+            assertEquals(10, reloaded.count());
+            assertEquals(tracker.percentile(0.95), reloaded.percentile(0.95));
+        }
+
+        @Test
+        @DisplayName("Should read saved samples on first use rather than when constructed")
+        void testLazyLoad() throws Exception {
+            Path file = tmp.resolve("latency.properties");
+            var tracker = new RetryPolicy.LatencyTracker(file);
+            Files.writeString(file, "samples=100,200,300\n");
+            tracker.record(400);
+            assertEquals(4, tracker.count());
+            tracker.flush();
+            assertEquals(4, new RetryPolicy.LatencyTracker(file).count());
+        }
+    }
+}
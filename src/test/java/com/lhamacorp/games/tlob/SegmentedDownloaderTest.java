@@ -0,0 +1,274 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Segmented Downloader Tests")
+class SegmentedDownloaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    private static byte[] randomBytes(int size) {
+        return TestReleases.randomBytes(size, 42);
+    }
+
+    /** Records what the downloader reports. */
+    private static class RecordingProgress implements SegmentedDownloader.Progress {
+        final AtomicLong total = new AtomicLong(-2);
+        final AtomicLong bytes = new AtomicLong();
+
+        @Override
+        public void started(long totalBytes, long alreadyDownloaded) {
+            total.set(totalBytes);
+            bytes.set(alreadyDownloaded);
+        }
+
+        @Override
+        public void transferred(long n) {
+            bytes.addAndGet(n);
+        }
+    }
+
+    @Test
+    @DisplayName("Should download in parallel ranges when supported")
+    void testSegmentedDownload() throws Exception {
+        byte[] data = randomBytes(5 * 1024 * 1024 + 123);
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.put("/game.jar", data);
+            Path target = tempDir.resolve("game.jar.part");
+            var progress = new RecordingProgress();
+
+            var result = new SegmentedDownloader(http, "test").download(server.url("/game.jar"), new PartialDownload(target), -1, progress);
+
+            assertTrue(result.segmented());
+            assertEquals(data.length, result.bytes());
+            assertArrayEquals(data, Files.readAllBytes(target));
+            assertEquals(TestReleases.sha256(data), result.sha256());
+            assertEquals(data.length, progress.total.get());
+            assertEquals(data.length, progress.bytes.get());
+            assertTrue(server.rangeRequests.get() > 1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should fetch ranges over separate connections with its own client")
+    void testSeparateConnections() throws Exception {
+        HttpClient client = SegmentedDownloader.newClient();
+        assertEquals(HttpClient.Version.HTTP_1_1, client.version());
+        // Larger than the probe plus one maximum chunk, so both initial connections get a range
+        byte[] data = randomBytes((int) (SegmentedDownloader.PROBE_CHUNK + SegmentedDownloader.MAX_CHUNK) + 123);
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.put("/game.jar", data);
+            // Slow answers keep the ranges in flight together, so a pooled connection cannot serve them in turn
+            server.delayMillis = 100;
+            Path target = tempDir.resolve("game.jar.part");
+
+            var result = new SegmentedDownloader(client, "test").download(server.url("/game.jar"), new PartialDownload(target), -1,
+                new RecordingProgress());
+
+            assertArrayEquals(data, Files.readAllBytes(target));
+            assertTrue(result.connections() > 1, "connections: " + result.connections());
+            assertTrue(server.connections.size() > 1, "TCP connections: " + server.connections.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Should stay under the bandwidth cap")
+    void testBandwidthCap() throws Exception {
+        byte[] data = randomBytes(600 * 1024);
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.put("/game.jar", data);
+            Path target = tempDir.resolve("game.jar.part");
+            var limiter = new TokenBucket(1024 * 1024, 100 * 1024);
+
+            long start = System.nanoTime();
+            var result = new SegmentedDownloader(http, "test", 1, limiter)
+                .download(server.url("/game.jar"), new PartialDownload(target), -1, new RecordingProgress());
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            assertArrayEquals(data, Files.readAllBytes(target));
+            assertEquals(TestReleases.sha256(data), result.sha256());
+            // 500 KiB beyond the burst at 1 MiB/s
+            assertTrue(millis >= 400, "took " + millis + " ms");
+        }
+    }
+
+    @Test
+    @DisplayName("Should fall back to a single stream without range support")
+    void testSingleStreamFallback() throws Exception {
+        byte[] data = randomBytes(3 * 1024 * 1024);
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.rangesSupported = false;
+            server.put("/game.jar", data);
+            Path target = tempDir.resolve("game.jar.part");
+            var progress = new RecordingProgress();
+
+            var result = new SegmentedDownloader(http, "test").download(server.url("/game.jar"), new PartialDownload(target), data.length, progress);
+
+            assertFalse(result.segmented());
+            assertEquals(1, result.connections());
+            assertEquals(1, server.requests.get());
+            assertArrayEquals(data, Files.readAllBytes(target));
+            assertEquals(data.length, progress.bytes.get());
+            assertEquals(TestReleases.sha256(data), result.sha256());
+        }
+    }
+
+    @Test
+    @DisplayName("Should handle files smaller than the probe chunk")
+    void testSmallFile() throws Exception {
+        byte[] data = randomBytes(1000);
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.put("/small.jar", data);
+            Path target = tempDir.resolve("small.jar.part");
+
+            var result = new SegmentedDownloader(http, "test").download(server.url("/small.jar"), new PartialDownload(target), -1, new RecordingProgress());
+
+            assertEquals(1, server.requests.get());
+            assertEquals(1000, result.bytes());
+            assertArrayEquals(data, Files.readAllBytes(target));
+        }
+    }
+
+    @Test
+    @DisplayName("Should fail on HTTP errors")
+    void testNotFound() throws Exception {
+        try (TestHttpServer server = new TestHttpServer()) {
+            Path target = tempDir.resolve("missing.jar.part");
+            assertThrows(IOException.class, () ->
+                new SegmentedDownloader(http, "test").download(server.url("/missing.jar"), new PartialDownload(target), -1, new RecordingProgress()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should resume a partial download with If-Range")
+    void testResume() throws Exception {
+        byte[] data = randomBytes(4 * 1024 * 1024);
+        int have = 1_500_000;
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.put("/game.jar", data, "\"v1\"");
+            Path target = tempDir.resolve("game.jar.part");
+            // What an interrupted earlier attempt leaves behind: a completed prefix plus garbage
+            byte[] partial = new byte[data.length];
+            System.arraycopy(data, 0, partial, 0, have);
+            Files.write(target, partial);
+            new PartialDownload(target).begin(server.url("/game.jar"), "\"v1\"", data.length, have);
+            var progress = new RecordingProgress();
+
+            var result = new SegmentedDownloader(http, "test")
+                .download(server.url("/game.jar"), new PartialDownload(target), data.length, progress);
+
+            assertEquals(have, result.resumedFrom());
+            assertTrue(server.ranges.get(0).startsWith("bytes=" + have + "-"));
+            assertArrayEquals(data, Files.readAllBytes(target));
+            assertEquals(TestReleases.sha256(data), result.sha256());
+            assertEquals(data.length, progress.bytes.get());
+            assertEquals(data.length, new PartialDownload(target).received());
+        }
+    }
+
+    @Test
+    @DisplayName("Should restart from zero when the asset changed")
+    void testStalePartial() throws Exception {
+        byte[] data = randomBytes(2 * 1024 * 1024);
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.put("/game.jar", data, "\"v2\"");
+            Path target = tempDir.resolve("game.jar.part");
+            Files.write(target, new byte[3 * 1024 * 1024]);
+            new PartialDownload(target).begin(server.url("/game.jar"), "\"v1\"", data.length, 1024);
+
+            var result = new SegmentedDownloader(http, "test")
+                .download(server.url("/game.jar"), new PartialDownload(target), data.length, new RecordingProgress());
+
+            assertEquals(0, result.resumedFrom());
+            assertArrayEquals(data, Files.readAllBytes(target));
+            assertEquals(TestReleases.sha256(data), result.sha256());
+            assertEquals("\"v2\"", new PartialDownload(target).etag());
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep the completed prefix after a failure")
+    void testCheckpointOnFailure() throws Exception {
+        byte[] data = randomBytes(3 * 1024 * 1024);
+        try (TestHttpServer server = new TestHttpServer()) {
+            server.put("/game.jar", data, "\"v1\"");
+            Path target = tempDir.resolve("game.jar.part");
+            // Simulate the connection dropping after the probe chunk
+            server.failAfter = 1;
+
+            assertThrows(IOException.class, () -> new SegmentedDownloader(http, "test", 1)
+                .download(server.url("/game.jar"), new PartialDownload(target), data.length, new RecordingProgress()));
+
+            var part = new PartialDownload(target);
+            assertTrue(part.received() >= SegmentedDownloader.PROBE_CHUNK);
+            assertTrue(part.resumableFrom(server.url("/game.jar"), data.length) > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Should track the contiguous completed prefix")
+    void testSchedulerPrefix() {
+        var scheduler = new SegmentedDownloader.Scheduler(100, 1000);
+        long[] a = scheduler.next(100);
+        long[] b = scheduler.next(100);
+        long[] c = scheduler.next(100);
+        assertArrayEquals(new long[]{100, 199}, a);
+        assertEquals(100, scheduler.complete(b[0], b[1]));
+        assertEquals(100, scheduler.complete(c[0], c[1]));
+        assertEquals(400, scheduler.complete(a[0], a[1]));
+        assertEquals(600, scheduler.remaining());
+    }
+
+    @Test
+    @DisplayName("Should copy and hash assets from a file: source, and treat a finished copy as staged")
+    void testFileSource() throws Exception {
+        byte[] data = randomBytes(300 * 1024 + 7);
+        Path source = Files.write(tempDir.resolve("mirror-game.jar"), data);
+        String url = source.toUri().toString();
+        var part = new PartialDownload(tempDir.resolve("game.jar.part"));
+        var progress = new RecordingProgress();
+
+        var result = new SegmentedDownloader(http, "test").download(url, part, -1, progress);
+
+        assertArrayEquals(data, Files.readAllBytes(part.file()));
+        assertEquals(TestReleases.sha256(data), result.sha256());
+        assertEquals(data.length, progress.total.get());
+        assertEquals(data.length, progress.bytes.get());
+        assertEquals(data.length, part.resumableFrom(url, data.length));
+
+        var again = new SegmentedDownloader(http, "test").download(url, new PartialDownload(part.file()), -1, new RecordingProgress());
+        assertEquals(data.length, again.resumedFrom());
+        assertEquals(TestReleases.sha256(data), again.sha256());
+    }
+
+    @Test
+    @DisplayName("Should size chunks from measured throughput")
+    void testChunkSizing() {
+        assertEquals(2 * SegmentedDownloader.MIN_CHUNK, SegmentedDownloader.chunkFor(0));
+        assertEquals(SegmentedDownloader.MIN_CHUNK, SegmentedDownloader.chunkFor(1000));
+        assertEquals(SegmentedDownloader.MAX_CHUNK, SegmentedDownloader.chunkFor(1e12));
+        assertEquals(4L << 20, SegmentedDownloader.chunkFor(2 << 20));
+    }
+
+    @Test
+    @DisplayName("Should parse Content-Range headers")
+    void testContentRange() {
+        assertArrayEquals(new long[]{0, 99, 1000}, SegmentedDownloader.parseContentRange("bytes 0-99/1000"));
+        assertArrayEquals(new long[]{5, 9, -1}, SegmentedDownloader.parseContentRange("bytes 5-9/*"));
+        assertNull(SegmentedDownloader.parseContentRange("bytes */1000"));
+        assertNull(SegmentedDownloader.parseContentRange(null));
+    }
+}
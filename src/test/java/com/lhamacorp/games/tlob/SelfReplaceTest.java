@@ -0,0 +1,104 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Self Replace Tests")
+class SelfReplaceTest {
+
+    private static final String JAVA = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    @DisplayName("Should swap the staged jar over the destination and leave no temp file")
+    void testReplace() throws Exception {
+        Path staged = Files.writeString(tmp.resolve("launcher.jar.new"), "new");
+        Path dest = Files.writeString(tmp.resolve("launcher.jar"), "old");
+
+        SelfReplace.replace(staged, dest);
+
+        assertEquals("new", Files.readString(dest));
+        assertTrue(Files.exists(staged), "staged jar is copied, not moved");
+        assertFalse(Files.exists(tmp.resolve("launcher.jar.swap")));
+    }
+
+    @Test
+    @DisplayName("Should return as soon as the parent exits")
+    void testAwaitExit() throws Exception {
+        Process parent = new ProcessBuilder(JAVA, "-version").redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        assertTrue(SelfReplace.awaitExit(parent.pid(), Duration.ofSeconds(30)));
+        assertFalse(parent.isAlive());
+    }
+
+    @Test
+    @DisplayName("Should treat a missing parent as exited and time out on a live one")
+    void testAwaitExitEdgeCases() throws Exception {
+        assertTrue(SelfReplace.awaitExit(Long.MAX_VALUE, Duration.ofSeconds(1)));
+
+        Path sleeper = Files.writeString(tmp.resolve("Sleep.java"),
+            "class Sleep { public static void main(String[] a) throws Exception { Thread.sleep(60_000); } }");
+        Process live = new ProcessBuilder(JAVA, sleeper.toString()).start();
+        try {
+            assertFalse(SelfReplace.awaitExit(live.pid(), Duration.ofMillis(50)));
+        } finally {
+            live.destroyForcibly();
+        }
+    }
+
+    @Test
+    @DisplayName("Should replace the jar after the parent exits when run as a helper process")
+    void testHelperProcess() throws IOException, InterruptedException {
+        Path staged = Files.writeString(tmp.resolve("launcher.jar.new"), "new");
+        Path dest = Files.writeString(tmp.resolve("launcher.jar"), "old");
+        Process parent = new ProcessBuilder(JAVA, "-version").redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+
+        // The relaunch of the (not runnable) jar fails in its own process, which is fine here
+        Process helper = new ProcessBuilder(JAVA, "-cp", System.getProperty("java.class.path"), SelfReplace.class.getName(),
+            Long.toString(parent.pid()), staged.toString(), dest.toString(), JAVA)
+            .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+
+        assertTrue(helper.waitFor(30, TimeUnit.SECONDS));
+        assertEquals(0, helper.exitValue());
+        assertEquals("new", Files.readString(dest));
+    }
+
+    @Test
+    @DisplayName("Should return once the helper is ready, leaving it waiting for this process")
+    void testSpawn() throws Exception {
+        Path staged = Files.writeString(tmp.resolve("launcher.jar.new"), "new");
+        Path dest = Files.writeString(tmp.resolve("launcher.jar"), "old");
+
+        Process helper = SelfReplace.spawn(JAVA, System.getProperty("java.class.path"), staged, dest);
+        try {
+            assertTrue(helper.isAlive());
+            assertEquals("old", Files.readString(dest));
+            assertFalse(Files.exists(SelfReplace.readyFile(dest)), "ready marker consumed");
+        } finally {
+            helper.destroyForcibly().waitFor();
+        }
+    }
+
+    @Test
+    @DisplayName("Should fail when the helper cannot run, leaving the destination alone")
+    void testSpawnFailure() throws Exception {
+        Path staged = Files.writeString(tmp.resolve("launcher.jar.new"), "new");
+        Path dest = Files.writeString(tmp.resolve("launcher.jar"), "old");
+        Path broken = Files.writeString(tmp.resolve("launcher.jar.helper"), "not a jar");
+
+        assertThrows(IOException.class, () -> SelfReplace.spawn(JAVA, broken.toString(), staged, dest));
+        assertEquals("old", Files.readString(dest));
+    }
+}
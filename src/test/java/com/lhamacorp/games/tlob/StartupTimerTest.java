@@ -0,0 +1,40 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Startup Timer Tests")
+class StartupTimerTest {
+
+    @Test
+    @DisplayName("Should measure milestones from the origin, in order")
+    void testSummary() {
+        var timer = new StartupTimer(1_000);
+        timer.mark(StartupTimer.MAIN, 1_180);
+        timer.mark(StartupTimer.FIRST_PAINT, 1_420);
+        timer.mark(StartupTimer.READY, 2_230);
+
+        assertEquals(420, timer.elapsed(StartupTimer.FIRST_PAINT));
+        assertEquals("JVM start → main 180 ms → first paint 420 ms → ready to play 1230 ms", timer.summary());
+    }
+
+    @Test
+    @DisplayName("Should keep only the first mark of each milestone")
+    void testMarkOnce() {
+        var timer = new StartupTimer(0);
+        assertTrue(timer.mark(StartupTimer.FIRST_PAINT, 100));
+        assertFalse(timer.mark(StartupTimer.FIRST_PAINT, 900));
+        assertEquals(100, timer.elapsed(StartupTimer.FIRST_PAINT));
+        assertEquals(-1, timer.elapsed(StartupTimer.READY));
+    }
+
+    @Test
+    @DisplayName("Should anchor the JVM timer before main runs")
+    void testJvmOrigin() {
+        var timer = StartupTimer.JVM;
+        timer.mark("test", System.currentTimeMillis());
+        assertTrue(timer.elapsed("test") >= 0);
+    }
+}
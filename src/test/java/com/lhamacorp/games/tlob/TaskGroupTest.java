@@ -0,0 +1,82 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Task Group Tests")
+class TaskGroupTest {
+
+    @Test
+    @DisplayName("Should run tasks concurrently")
+    void testConcurrentTasks() throws Exception {
+        try (TaskGroup group = new TaskGroup("test")) {
+            CountDownLatch both = new CountDownLatch(2);
+            CountDownLatch done = new CountDownLatch(2);
+            for (int i = 0; i < 2; i++) {
+                group.submit(() -> {
+                    both.countDown();
+                    // Only completes if the sibling is running at the same time
+                    assertTrue(both.await(5, TimeUnit.SECONDS));
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep siblings running when a task fails")
+    void testFailureIsolated() throws Exception {
+        try (TaskGroup group = new TaskGroup("test")) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch failed = new CountDownLatch(1);
+            CountDownLatch finished = new CountDownLatch(1);
+            group.submit(() -> {
+                started.countDown();
+                // Interrupted if the failure below cancelled its siblings
+                assertTrue(failed.await(5, TimeUnit.SECONDS));
+                Thread.sleep(100);
+                finished.countDown();
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            group.submit(() -> {
+                failed.countDown();
+                throw new IllegalStateException("boom");
+            });
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+            assertFalse(group.isClosed());
+
+            // The group still takes new work
+            CountDownLatch later = new CountDownLatch(1);
+            assertNotNull(group.submit(later::countDown));
+            assertTrue(later.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("Should cancel running tasks and reject new ones on close")
+    void testClose() throws Exception {
+        TaskGroup group = new TaskGroup("test");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        group.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        group.close();
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(group.isClosed());
+        assertNull(group.submit(() -> fail("should not run")));
+    }
+}
@@ -0,0 +1,127 @@
+package com.lhamacorp.games.tlob;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Minimal local HTTP server for download tests: serves byte arrays with optional single-range support. */
+class TestHttpServer implements AutoCloseable {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private final HttpServer server;
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+    final AtomicInteger requests = new AtomicInteger();
+    final AtomicInteger rangeRequests = new AtomicInteger();
+    final List<String> ranges = new CopyOnWriteArrayList<>();
+    // Client ports seen, one per connection
+    final Set<Integer> connections = ConcurrentHashMap.newKeySet();
+    volatile boolean rangesSupported = true;
+    // Requests after this many answer 503, to simulate a dropped connection
+    volatile int failAfter = Integer.MAX_VALUE;
+    // Held back before answering, so concurrent requests are in flight together
+    volatile long delayMillis;
+
+    TestHttpServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    void put(String path, byte[] data) {
+        files.put(path, data);
+    }
+
+    void put(String path, byte[] data, String etag) {
+        files.put(path, data);
+        etags.put(path, etag);
+    }
+
+    String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        int n = requests.incrementAndGet();
+        connections.add(ex.getRemoteAddress().getPort());
+        try (ex) {
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (n > failAfter) {
+                ex.sendResponseHeaders(503, -1);
+                return;
+            }
+            byte[] data = files.get(ex.getRequestURI().getPath());
+            if (data == null) {
+                ex.sendResponseHeaders(404, -1);
+                return;
+            }
+            String etag = etags.get(ex.getRequestURI().getPath());
+            if (etag != null) ex.getResponseHeaders().set("ETag", etag);
+            boolean head = ex.getRequestMethod().equals("HEAD");
+
+            String range = ex.getRequestHeaders().getFirst("Range");
+            if (range != null) ranges.add(range);
+            String ifRange = ex.getRequestHeaders().getFirst("If-Range");
+            boolean rangeValid = ifRange == null || ifRange.equals(etag);
+            Matcher m = range != null ? RANGE.matcher(range) : null;
+            if (rangesSupported && rangeValid && m != null && m.matches()) {
+                rangeRequests.incrementAndGet();
+                long start, end;
+                if (m.group(1).isEmpty()) { // suffix range: the last N bytes
+                    start = Math.max(0, data.length - Long.parseLong(m.group(2)));
+                    end = data.length - 1;
+                } else {
+                    start = Long.parseLong(m.group(1));
+                    end = m.group(2).isEmpty() ? data.length - 1 : Math.min(data.length - 1, Long.parseLong(m.group(2)));
+                }
+                if (start >= data.length) {
+                    ex.getResponseHeaders().set("Content-Range", "bytes */" + data.length);
+                    ex.sendResponseHeaders(416, -1);
+                    return;
+                }
+                ex.getResponseHeaders().set("Accept-Ranges", "bytes");
+                ex.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+                int len = (int) (end - start + 1);
+                ex.sendResponseHeaders(206, head ? -1 : len);
+                if (!head) {
+                    try (OutputStream out = ex.getResponseBody()) {
+                        out.write(data, (int) start, len);
+                    }
+                }
+                return;
+            }
+            if (rangesSupported) ex.getResponseHeaders().set("Accept-Ranges", "bytes");
+            ex.sendResponseHeaders(200, head ? -1 : data.length);
+            if (!head) {
+                try (OutputStream out = ex.getResponseBody()) {
+                    out.write(data);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
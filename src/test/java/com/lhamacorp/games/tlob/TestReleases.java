@@ -0,0 +1,127 @@
+package com.lhamacorp.games.tlob;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A release directory for tests that drive {@link LauncherCore} end to end: {@code <track>.json}
+ * indexes plus their jars, read through a {@code file:} release source. Installs land in
+ * {@link LauncherCore#HOME_DIR}, which the build points at a scratch directory via -Dtlob.home.
+ */
+class TestReleases {
+
+    private final Path dir;
+
+    TestReleases(Path dir) {
+        this.dir = dir;
+    }
+
+    /** The source spec for {@link LauncherCore#LauncherCore(String)}. */
+    String spec() {
+        return dir.toUri().toString();
+    }
+
+    /** Publishes {@code jar} as {@code track}'s latest release {@code tag}, with its sha256 digest; returns the digest. */
+    String publish(String track, String tag, byte[] jar) throws IOException {
+        String sha256 = sha256(jar);
+        Files.createDirectories(dir.resolve("jars"));
+        Files.write(dir.resolve("jars/" + track + "-" + tag + ".jar"), jar);
+        Files.writeString(dir.resolve(track + ".json"), """
+            {"tag_name":"%s","assets":[{"name":"%s.jar","browser_download_url":"jars/%s-%s.jar","size":%d,"digest":"sha256:%s"}]}"""
+            .formatted(tag, track, track, tag, jar.length, sha256));
+        return sha256;
+    }
+
+    /** Deletes a published jar, so installing it can only succeed without a download. */
+    void unpublishJar(String track, String tag) throws IOException {
+        Files.delete(dir.resolve("jars/" + track + "-" + tag + ".jar"));
+    }
+
+    /** A jar with deflated entries (and so data descriptors), like {@code jar} or {@code ZipOutputStream} write them. */
+    static byte[] jar(Map<String, String> files) throws IOException {
+        Map<String, byte[]> bytes = new LinkedHashMap<>();
+        files.forEach((name, text) -> bytes.put(name, text.getBytes()));
+        return jar(bytes, false);
+    }
+
+    /**
+     * A jar of {@code files}: deflated entries with data descriptors, except {@code .bin} assets,
+     * which are stored as build tools do with compressed data. With {@code allStored}, every entry
+     * is stored and none has a data descriptor.
+     */
+    static byte[] jar(Map<String, byte[]> files, boolean allStored) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(buf)) {
+            for (var e : files.entrySet()) {
+                ZipEntry entry = new ZipEntry(e.getKey());
+                if (allStored || e.getKey().endsWith(".bin")) {
+                    CRC32 crc = new CRC32();
+                    crc.update(e.getValue());
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(e.getValue().length);
+                    entry.setCrc(crc.getValue());
+                }
+                out.putNextEntry(entry);
+                out.write(e.getValue());
+                out.closeEntry();
+            }
+        }
+        return buf.toByteArray();
+    }
+
+    // Entries that differ between two versions from contents()
+    static final int CHANGED_ENTRIES = 3;
+
+    /**
+     * The entries of game version {@code version}: a manifest, 40 classes and a large asset. Only
+     * the manifest and two classes ({@value #CHANGED_ENTRIES} entries) differ between versions.
+     */
+    static Map<String, byte[]> contents(int version) {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("META-INF/MANIFEST.MF", ("Manifest-Version: 1.0\nImplementation-Version: " + version + "\n").getBytes());
+        for (int i = 0; i < 40; i++) {
+            long seed = (i == 7 || i == 23) ? i * 1000L + version : i;
+            files.put("com/example/Class" + i + ".class", randomBytes(20_000, seed));
+        }
+        files.put("assets/big.bin", randomBytes(200_000, 99));
+        return files;
+    }
+
+    static byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Empties the launcher home; refuses to run unless the build moved it away from the real one. */
+    static void resetHome() throws IOException {
+        assertNotNull(System.getProperty("tlob.home"), "run with -Dtlob.home, as the Gradle build does");
+        if (!Files.exists(LauncherCore.HOME_DIR)) return;
+        try (Stream<Path> files = Files.walk(LauncherCore.HOME_DIR)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+}
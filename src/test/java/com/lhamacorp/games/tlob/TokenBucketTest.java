@@ -0,0 +1,52 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Token Bucket Tests")
+class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    @DisplayName("Should allow the burst without waiting")
+    void testBurst() {
+        var bucket = new TokenBucket(1000, 500);
+        long now = System.nanoTime();
+        assertEquals(0, bucket.reserve(300, now));
+        assertEquals(0, bucket.reserve(200, now));
+    }
+
+    @Test
+    @DisplayName("Should ask for a wait proportional to the debt")
+    void testDebt() {
+        var bucket = new TokenBucket(1000, 500);
+        long now = System.nanoTime();
+        bucket.reserve(500, now);
+        assertEquals(SECOND / 2, bucket.reserve(500, now));
+        // After waiting it out, the debt is paid off
+        assertEquals(0, bucket.reserve(0, now + SECOND / 2));
+    }
+
+    @Test
+    @DisplayName("Should refill at the rate but never above the burst size")
+    void testRefillCap() {
+        var bucket = new TokenBucket(1000, 500);
+        long now = System.nanoTime();
+        bucket.reserve(500, now);
+        assertEquals(0, bucket.reserve(250, now + SECOND / 4));
+        // Ten idle seconds still only refill one burst
+        assertEquals(0, bucket.reserve(500, now + 10 * SECOND));
+        assertTrue(bucket.reserve(1, now + 10 * SECOND) > 0);
+    }
+
+    @Test
+    @DisplayName("Should treat a non-positive rate as unlimited")
+    void testUnlimited() {
+        assertNull(TokenBucket.perSecond(0));
+        assertEquals(2048, TokenBucket.perSecond(2048).bytesPerSecond());
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 10));
+    }
+}
@@ -0,0 +1,52 @@
+package com.lhamacorp.games.tlob;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Update Poller Tests")
+class UpdatePollerTest {
+
+    @Test
+    @DisplayName("Should spread delays across the jitter window")
+    void testJitter() {
+        var poller = new UpdatePoller(Duration.ofMinutes(60), 0.2, () -> false, () -> { });
+        assertEquals(Duration.ofMinutes(48).toMillis(), poller.nextDelayMillis(0));
+        assertEquals(Duration.ofMinutes(60).toMillis(), poller.nextDelayMillis(0.5));
+        assertEquals(Duration.ofMinutes(72).toMillis(), poller.nextDelayMillis(1));
+    }
+
+    @Test
+    @DisplayName("Should not start with a zero interval")
+    void testDisabled() {
+        try (var tasks = new TaskGroup("test")) {
+            assertFalse(new UpdatePoller(Duration.ZERO, 0.2, () -> false, () -> { }).start(tasks));
+            assertEquals(0, tasks.runningCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Should poll repeatedly and skip while busy")
+    void testPolling() throws Exception {
+        var busy = new AtomicBoolean(true);
+        var polls = new AtomicInteger();
+        var latch = new CountDownLatch(3);
+        try (var tasks = new TaskGroup("test")) {
+            new UpdatePoller(Duration.ofMillis(20), 0.5, busy::get, () -> {
+                polls.incrementAndGet();
+                latch.countDown();
+            }).start(tasks);
+            Thread.sleep(150);
+            assertEquals(0, polls.get());
+            busy.set(false);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        }
+    }
+}